@@ -21,6 +21,9 @@ public final class App extends JavaPlugin {
             getDataFolder().mkdirs();
         }
 
+        // CREATE DEFAULT config.yml IF IT DOESN'T EXIST
+        saveDefaultConfig();
+
         // CHECK IF SCRIPT ENGINE EXISTS
         try {
             new NashornScriptEngineFactory().getScriptEngine("--language=es6");
@@ -44,10 +47,33 @@ public final class App extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        // STOP WATCHING SCRIPT FILES
+        if (AppStatus.getScriptWatcher() != null) {
+            AppStatus.getScriptWatcher().stop();
+        }
+
+        // STOP COMPILING SCRIPTS IF THE WARMUP ISN'T DONE YET
+        if (AppStatus.getScriptWarmup() != null) {
+            AppStatus.getScriptWarmup().stop();
+        }
+
         // SHUT DOWN EXECUTOR SERVICE IN CASE THERE ARE CURRENTLY ANY IN PROGRESS SCRIPTS
         getLogger().info(String.format("%s %s", "FORCE SHUTTING DOWN ScriptExecutorService!!!",
             "There may be exceptions below if there were scripts in progress..."));
-        AppStatus.getExecutorService().shutdownNow();
+        if (AppStatus.getScriptExecutor() != null) {
+            AppStatus.getScriptExecutor().shutdownNow();
+        }
+
+        // RUN WHAT'S LEFT OF THE MAIN THREAD ACTIONS (DUNGEON RESETS, ETC) SO THEY ARE SAVED BELOW
+        if (AppStatus.getMainThreadQueue() != null) {
+            AppStatus.getMainThreadQueue().runAll();
+        }
+
+        // WRITE ANY UNSAVED FILES
+        if (AppStatus.getWriteBehind() != null) {
+            AppStatus.getWriteBehind().shutdown();
+        }
+        AppStatus.closeVariableStores();
     }
 
     /**
@@ -3,9 +3,12 @@ package io.github.expugn.dungeons;
 import io.github.expugn.dungeons.dungeons.Dungeon;
 import io.github.expugn.dungeons.dungeons.DungeonScript;
 import io.github.expugn.dungeons.dungeons.LoadedDungeon;
+import io.github.expugn.dungeons.scripts.ScriptCache;
+import io.github.expugn.dungeons.scripts.ScriptExecutor;
 import io.github.expugn.dungeons.scripts.ScriptType;
+import io.github.expugn.dungeons.scripts.ScriptWarmup;
 import io.github.expugn.dungeons.scripts.ScriptWriter;
-import io.github.expugn.dungeons.worlds.WorldVariables;
+import io.github.expugn.dungeons.storage.WriteBehind;
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileWriter;
@@ -131,6 +134,18 @@ public class AppCommand implements CommandExecutor {
          */
         RUN_SCRIPT("runscript", true),
 
+        /**
+         * Flush the compiled script cache.
+         * Every script will be read and compiled again the next time it is triggered.
+         */
+        FLUSH_CACHE("flushcache", true),
+
+        /**
+         * Show script executor metrics.
+         * Includes queue depth, active workers, rejections and task latency.
+         */
+        METRICS("metrics", true),
+
         /**
          * Download all files listed on a file manifest.
          * All files will be overwritten, so avoid using this command if you are afraid of
@@ -246,6 +261,12 @@ public class AppCommand implements CommandExecutor {
             case RUN_SCRIPT: // partydungeons runscript <dungeon_name> <type> <script_name>
                 runScript(player, args);
                 break;
+            case FLUSH_CACHE: // partydungeons flushcache
+                flushCache(player);
+                break;
+            case METRICS: // partydungeons metrics
+                showMetrics(player);
+                break;
             case DOWNLOAD: // partydungeons download <dungeon_name> <manifest_url>
                 downloadManifest(player, args);
                 break;
@@ -280,16 +301,15 @@ public class AppCommand implements CommandExecutor {
     private void leaveDungeon(Player player) {
         Map<UUID, String> activePlayers = AppStatus.getActivePlayers();
         UUID uuid = player.getUniqueId();
-        if (!activePlayers.containsKey(uuid)) {
+        String dungeonName = activePlayers.get(uuid);
+        if (dungeonName == null) {
             // PLAYER IS NOT ACTIVE IN A DUNGEON
             player.sendMessage(String.format("%sYou are not a part of a dungeon.", ChatColor.RED));
             return;
         }
 
-        String dungeonName = activePlayers.get(uuid);
-        Map<String, LoadedDungeon> activeDungeons = AppStatus.getActiveDungeons();
-
-        if (!activeDungeons.containsKey(dungeonName)) {
+        LoadedDungeon dungeon = AppStatus.getActiveDungeons().get(dungeonName);
+        if (dungeon == null) {
             // PLAYER IS A PART OF AN UNLOADED DUNGEON, FOR SOME REASON
             player.sendMessage(String.format("%sYou are no longer a part of %s%s%s.",
                 ChatColor.YELLOW, ChatColor.GOLD, dungeonName, ChatColor.YELLOW));
@@ -298,7 +318,6 @@ public class AppCommand implements CommandExecutor {
         }
 
         // PLAYER IS TRYING TO LEAVE AN ACTIVE DUNGEON THEY AREA A PART OF
-        LoadedDungeon dungeon = activeDungeons.get(dungeonName);
         dungeon.leave(player);
     }
 
@@ -405,12 +424,13 @@ public class AppCommand implements CommandExecutor {
         // CREATE SCRIPT DIRECTORIES BESIDES "dungeon" (BECAUSE WORLDS DONT USE DUNGEON SCRIPTS)
         Arrays.stream(AppConstants.DUNGEON_SCRIPT_DIRECTORIES).filter(s -> !s.equals("dungeon"))
             .forEach(sd -> new File(String.format("%s/%s", scripts.getPath(), sd)).mkdir());
+        AppStatus.getScriptManager().getScriptIndex().update(scripts.toPath());
 
         // CREATE WORLD VARIABLE FILE
         File worldVariableFile = AppUtils.getWorldVariableFile(world);
         if (!worldVariableFile.exists()) {
             // CREATE NEW DEFAULT WORLD VARIABLE FILE
-            new WorldVariables(world).saveJSON();
+            AppStatus.getWorldVariables(world).saveJSON();
         }
 
         // PROCESS COMPLETE
@@ -618,8 +638,13 @@ public class AppCommand implements CommandExecutor {
             scriptName = String.format("script_%d", System.currentTimeMillis());
         }
 
-        boolean isSuccessful = new ScriptWriter(AppUtils.getDungeonScriptDirectory(dungeonName, scriptType).toString(),
-            scriptName, player.getName(), scriptType, null, targetBlock).writeFile();
+        File scriptDirectory = AppUtils.getDungeonScriptDirectory(dungeonName, scriptType);
+        boolean isSuccessful = new ScriptWriter(scriptDirectory.toString(), scriptName, player.getName(), scriptType,
+            null, targetBlock).writeFile();
+        if (isSuccessful) {
+            // LET EVENT LISTENERS KNOW THE SCRIPT EXISTS
+            AppStatus.getScriptManager().getScriptIndex().update(scriptDirectory.toPath());
+        }
         player.sendMessage(isSuccessful
             ? String.format("%sScript %s%s %screated!", ChatColor.GREEN, ChatColor.GOLD, scriptName, ChatColor.GREEN)
             : String.format("%sScript %s%s %scould not be created. %s(Does it already exist?)", ChatColor.RED,
@@ -696,9 +721,13 @@ public class AppCommand implements CommandExecutor {
             scriptName = String.format("script_%d", System.currentTimeMillis());
         }
 
-        boolean isSuccessful = new ScriptWriter(
-            AppUtils.getWorldScriptDirectory(player.getWorld(), scriptType).toString(), scriptName, player.getName(),
-            scriptType, null, targetBlock).writeFile();
+        File scriptDirectory = AppUtils.getWorldScriptDirectory(player.getWorld(), scriptType);
+        boolean isSuccessful = new ScriptWriter(scriptDirectory.toString(), scriptName, player.getName(), scriptType,
+            null, targetBlock).writeFile();
+        if (isSuccessful) {
+            // LET EVENT LISTENERS KNOW THE SCRIPT EXISTS
+            AppStatus.getScriptManager().getScriptIndex().update(scriptDirectory.toPath());
+        }
         player.sendMessage(isSuccessful
             ? String.format("%sWorld script %s%s %screated!", ChatColor.GREEN, ChatColor.GOLD, scriptName,
                 ChatColor.GREEN)
@@ -736,6 +765,7 @@ public class AppCommand implements CommandExecutor {
 
         try {
             file.delete();
+            AppStatus.getScriptManager().getScriptIndex().update(file.toPath());
             player.sendMessage(String.format("%sScript %s%s %shas been deleted!",
                 ChatColor.GREEN, ChatColor.GOLD, file, ChatColor.GREEN));
         } catch (SecurityException e) {
@@ -872,6 +902,104 @@ public class AppCommand implements CommandExecutor {
         }
     }
 
+    private void flushCache(Player player) {
+        if (!player.hasPermission(AppConstants.ADMIN_PERMISSION)) {
+            // PLAYER HAS INSUFFICIENT PERMISSIONS
+            player.sendMessage("You do not have permission to run this command.");
+            return;
+        }
+
+        ScriptCache scriptCache = AppStatus.getScriptManager().getScriptCache();
+        long hits = scriptCache.getHits();
+        long misses = scriptCache.getMisses();
+        long evictions = scriptCache.getEvictions();
+        int flushed = scriptCache.flush();
+        int indexed = AppStatus.getScriptManager().getScriptIndex().build();
+        player.sendMessage(String.format("%sFlushed %s%d %scompiled script(s). %s(hits: %d, misses: %d, evictions: %d)",
+            ChatColor.GREEN, ChatColor.GOLD, flushed, ChatColor.GREEN, ChatColor.GRAY, hits, misses, evictions));
+        player.sendMessage(String.format("%sIndexed %s%d %sscript(s).", ChatColor.GREEN, ChatColor.GOLD, indexed,
+            ChatColor.GREEN));
+        int reloaded = AppStatus.reloadWorldVariables();
+        player.sendMessage(String.format("%sReloading variables for %s%d %sworld(s).", ChatColor.GREEN, ChatColor.GOLD,
+            reloaded, ChatColor.GREEN));
+    }
+
+    private void showMetrics(Player player) {
+        if (!player.hasPermission(AppConstants.ADMIN_PERMISSION)) {
+            // PLAYER HAS INSUFFICIENT PERMISSIONS
+            player.sendMessage("You do not have permission to run this command.");
+            return;
+        }
+
+        ScriptExecutor executor = AppStatus.getScriptExecutor();
+        player.sendMessage(String.format("%sScript executor %s(%s)",
+            ChatColor.GOLD, ChatColor.GRAY, executor.getMode()));
+        player.sendMessage(String.format("%sWorkers: %s%d active %s/ %d in pool %s(largest: %d)",
+            ChatColor.YELLOW, ChatColor.GOLD, executor.getActiveWorkers(), ChatColor.YELLOW, executor.getPoolSize(),
+            ChatColor.GRAY, executor.getLargestActiveWorkers()));
+        player.sendMessage(String.format("%sQueue: %s%d %s/ %d %s(completed: %d)",
+            ChatColor.YELLOW, ChatColor.GOLD, executor.getQueueDepth(), ChatColor.YELLOW,
+            executor.getQueueCapacity(), ChatColor.GRAY, executor.getCompletedTasks()));
+        player.sendMessage(String.format("%sRetry queue: %s%d %s/ %d", ChatColor.YELLOW, ChatColor.GOLD,
+            executor.getRetryQueueDepth(), ChatColor.YELLOW, executor.getRetryQueueCapacity()));
+
+        StringBuilder rejections = new StringBuilder();
+        for (ScriptType scriptType : ScriptType.values()) {
+            rejections.append(String.format("%s%s: %s%d %s(%s) ", ChatColor.YELLOW, scriptType, ChatColor.GOLD,
+                executor.getRejections(scriptType), ChatColor.GRAY, executor.getRejectionPolicy(scriptType)));
+        }
+        player.sendMessage(String.format("%sRejections: %s", ChatColor.YELLOW, rejections.toString().trim()));
+
+        final double[] percentiles = {50, 95, 99};
+        long[] wait = executor.getWaitTimes().getPercentiles(percentiles);
+        long[] run = executor.getRunTimes().getPercentiles(percentiles);
+        player.sendMessage(String.format("%sQueue wait (ms): %sp50 %.2f, p95 %.2f, p99 %.2f",
+            ChatColor.YELLOW, ChatColor.GOLD, toMillis(wait[0]), toMillis(wait[1]), toMillis(wait[2])));
+        player.sendMessage(String.format("%sRun time (ms): %sp50 %.2f, p95 %.2f, p99 %.2f %s(%d samples)",
+            ChatColor.YELLOW, ChatColor.GOLD, toMillis(run[0]), toMillis(run[1]), toMillis(run[2]), ChatColor.GRAY,
+            executor.getRunTimes().getCount()));
+        ScriptWarmup warmup = AppStatus.getScriptWarmup();
+        if (warmup != null) {
+            player.sendMessage(String.format("%sWarmup: %s%d %s/ %d scripts %s(%d failed)",
+                ChatColor.YELLOW, ChatColor.GOLD, warmup.getFinished(), ChatColor.YELLOW, warmup.getTotal(),
+                ChatColor.GRAY, warmup.getFailed()));
+        }
+        if (executor.getPinningMonitor() != null) {
+            player.sendMessage(String.format("%sPinned virtual threads: %s%d",
+                ChatColor.YELLOW, ChatColor.GOLD, executor.getPinningMonitor().getPinnedCount()));
+        }
+
+        MainThreadQueue mainThreadQueue = AppStatus.getMainThreadQueue();
+        player.sendMessage(String.format("%sMain thread %s(%d ms per tick)", ChatColor.GOLD, ChatColor.GRAY,
+            mainThreadQueue.getBudget()));
+        player.sendMessage(String.format("%sActions: %s%d %s/ %d added %s(%d ticks over budget, %d spikes)",
+            ChatColor.YELLOW, ChatColor.GOLD, mainThreadQueue.getRan(), ChatColor.YELLOW, mainThreadQueue.getAdded(),
+            ChatColor.GRAY, mainThreadQueue.getCarriedOver(), mainThreadQueue.getSpikes()));
+        player.sendMessage(String.format("%sWaiting: %s%d high, %d normal, %d low",
+            ChatColor.YELLOW, ChatColor.GOLD, mainThreadQueue.getQueueDepth(MainThreadQueue.Priority.HIGH),
+            mainThreadQueue.getQueueDepth(MainThreadQueue.Priority.NORMAL),
+            mainThreadQueue.getQueueDepth(MainThreadQueue.Priority.LOW)));
+        MovePipeline movePipeline = AppStatus.getMovePipeline();
+        player.sendMessage(String.format("%sMoves: %s%d %s/ %d recorded %s(%d ticks)",
+            ChatColor.YELLOW, ChatColor.GOLD, movePipeline.getHandledMoves(), ChatColor.YELLOW,
+            movePipeline.getRecordedMoves(), ChatColor.GRAY, movePipeline.getDrains()));
+
+        WriteBehind writeBehind = AppStatus.getWriteBehind();
+        long[] flush = writeBehind.getFlushTimes().getPercentiles(percentiles);
+        player.sendMessage(String.format("%sStorage %s(every %d ms, %d fsyncs)", ChatColor.GOLD, ChatColor.GRAY,
+            writeBehind.getInterval(), writeBehind.getFileWriter().getSyncCount()));
+        player.sendMessage(String.format("%sWrites: %s%d %s/ %d saves %s(%d dirty, %d bytes written)",
+            ChatColor.YELLOW, ChatColor.GOLD, writeBehind.getWriteCount(), ChatColor.YELLOW,
+            writeBehind.getMarkedCount(), ChatColor.GRAY, writeBehind.getDirtyCount(), writeBehind.getBytesWritten()));
+        player.sendMessage(String.format("%sFlush time (ms): %sp50 %.2f, p95 %.2f, p99 %.2f",
+            ChatColor.YELLOW, ChatColor.GOLD, toMillis(flush[0]), toMillis(flush[1]), toMillis(flush[2])));
+    }
+
+    private static double toMillis(long nanos) {
+        final double nanosPerMilli = 1_000_000.0;
+        return nanos / nanosPerMilli;
+    }
+
     private void downloadManifest(Player player, String[] args) {
         if (!player.hasPermission(AppConstants.ADMIN_PERMISSION)) {
             // PLAYER HAS INSUFFICIENT PERMISSIONS
@@ -908,7 +1036,7 @@ public class AppCommand implements CommandExecutor {
                 return;
             }
             // DO FILE DOWNLOAD IN A DIFFERENT THREAD
-            AppStatus.getExecutorService().execute(() -> {
+            boolean isStarted = AppStatus.getScriptExecutor().execute(ScriptType.None, () -> {
                 while (scanner.hasNext()) {
                     String next = scanner.nextLine();
                     if (next.length() <= 0 || next.startsWith("#")) {
@@ -932,6 +1060,8 @@ public class AppCommand implements CommandExecutor {
                         }
                         Files.copy(input, Paths.get(location.toString()), StandardCopyOption.REPLACE_EXISTING);
                         input.close();
+                        AppStatus.getScriptManager().getScriptIndex().update(location.toPath());
+                        reloadIfWorldVariables(location);
                     } catch (MalformedURLException e) {
                         player.sendMessage(String.format("%sMalformed URL in manifest. Stopping download. %s%s",
                             ChatColor.RED, ChatColor.GOLD, line[1]));
@@ -946,6 +1076,10 @@ public class AppCommand implements CommandExecutor {
                 scanner.close();
                 player.sendMessage(String.format("%sManifest download process completed.", ChatColor.YELLOW));
             });
+            if (!isStarted) {
+                scanner.close();
+                player.sendMessage(String.format("%sScript executor is busy, try again later.", ChatColor.RED));
+            }
             return;
         }
 
@@ -972,7 +1106,7 @@ public class AppCommand implements CommandExecutor {
         }
 
         // DO FILE DOWNLOAD IN A DIFFERENT THREAD
-        AppStatus.getExecutorService().execute(() -> {
+        boolean isStarted = AppStatus.getScriptExecutor().execute(ScriptType.None, () -> {
             while (scanner.hasNext()) {
                 String next = scanner.nextLine();
                 if (next.length() <= 0 || next.startsWith("#")) {
@@ -998,6 +1132,7 @@ public class AppCommand implements CommandExecutor {
                     }
                     Files.copy(input, Paths.get(location.toString()), StandardCopyOption.REPLACE_EXISTING);
                     input.close();
+                    AppStatus.getScriptManager().getScriptIndex().update(location.toPath());
                 } catch (MalformedURLException e) {
                     player.sendMessage(String.format("%sMalformed URL in manifest. Stopping download. %s%s",
                         ChatColor.RED, ChatColor.GOLD, line[1]));
@@ -1013,6 +1148,23 @@ public class AppCommand implements CommandExecutor {
             scanner.close();
             player.sendMessage(String.format("%sManifest download process completed.", ChatColor.YELLOW));
         });
+        if (!isStarted) {
+            scanner.close();
+            player.sendMessage(String.format("%sScript executor is busy, try again later.", ChatColor.RED));
+        }
+    }
+
+    /**
+     * Drop a world's loaded variables if a downloaded file replaced its variables.json, so the old variables are
+     * not written over the new file.
+     * @param location Downloaded file.
+     */
+    private static void reloadIfWorldVariables(File location) {
+        File worldDirectory = location.getAbsoluteFile().toPath().normalize().getParent().toFile();
+        File worldsDirectory = AppUtils.getWorldDirectory().getAbsoluteFile().toPath().normalize().toFile();
+        if (location.getName().equals("variables.json") && worldsDirectory.equals(worldDirectory.getParentFile())) {
+            AppStatus.reloadWorldVariables(worldDirectory.getName());
+        }
     }
 
     private void createManifest(Player player, String[] args) {
@@ -48,6 +48,92 @@ public final class AppConstants {
      */
     public static final String SCRIPT_ENGINE_EXTENSION = ".js";
 
+    /**
+     * Max amount of compiled scripts that are kept in memory, see {@link ScriptCache}.
+     * The least recently used script is evicted when this is exceeded.
+     */
+    public static final int SCRIPT_CACHE_SIZE = 256;
+
+    /**
+     * Milliseconds a script file has to go without changes before it is reloaded, see {@link ScriptWatcher}.
+     * Editors may write a file several times when saving, this makes sure the script is only compiled once.
+     */
+    public static final long SCRIPT_WATCH_QUIET_PERIOD = 250L;
+
+    /**
+     * Default amount of threads a bounded {@link ScriptExecutor} uses.
+     * Can be changed in config.yml with `script-executor.threads`.
+     */
+    public static final int SCRIPT_EXECUTOR_THREADS = 8;
+
+    /**
+     * Default max amount of scripts that can wait for a bounded {@link ScriptExecutor}'s threads.
+     * Can be changed in config.yml with `script-executor.queue-size`.
+     */
+    public static final int SCRIPT_EXECUTOR_QUEUE_SIZE = 256;
+
+    /**
+     * Amount of recent script latencies kept to calculate percentiles, see {@link ScriptExecutor}.
+     */
+    public static final int SCRIPT_EXECUTOR_LATENCY_SAMPLES = 1024;
+
+    /**
+     * Default max amount of scripts that can wait for room in a full bounded {@link ScriptExecutor}'s queue.
+     * Can be changed in config.yml with `script-executor.retry-queue-size`.
+     */
+    public static final int SCRIPT_EXECUTOR_RETRY_QUEUE_SIZE = 256;
+
+    /**
+     * Default time (in milliseconds) a virtual thread has to be pinned for before it is reported.
+     * Can be changed in config.yml with `script-executor.pinning-threshold-ms`.
+     */
+    public static final long SCRIPT_EXECUTOR_PINNING_THRESHOLD = 20L;
+
+    /**
+     * Default time (in milliseconds) between {@link WriteBehind} flushes.
+     * Can be changed in config.yml with `storage.write-behind-interval-ms`.
+     */
+    public static final long STORAGE_WRITE_BEHIND_INTERVAL = 1000L;
+
+    /**
+     * Max time (in milliseconds) to wait for an in progress {@link WriteBehind} flush when the plugin is disabled.
+     */
+    public static final long STORAGE_SHUTDOWN_TIMEOUT = 5000L;
+
+    /**
+     * Amount of records a {@link PartyJournal} can have before it is compacted into the dungeon file.
+     */
+    public static final int PARTY_JOURNAL_COMPACT_RECORDS = 256;
+
+    /**
+     * Size (in bytes) a new {@link io.github.expugn.dungeons.storage.MappedStore} file is mapped with.
+     * The file grows when it is full.
+     */
+    public static final long MAPPED_STORE_INITIAL_SIZE = 1L << 20;
+
+    /**
+     * Bytes of old records a {@link io.github.expugn.dungeons.storage.MappedStore} must have before it is compacted
+     * when opened. It is also only compacted if the old records take up more space than the live records.
+     */
+    public static final long MAPPED_STORE_COMPACT_BYTES = 1L << 16;
+
+    /**
+     * Default time (in milliseconds) {@link MainThreadQueue} actions can run for every tick.
+     * Can be changed in config.yml with `main-thread.budget-ms`.
+     */
+    public static final long MAIN_THREAD_BUDGET = 5L;
+
+    /**
+     * Default time (in milliseconds) a tick's {@link MainThreadQueue} actions can take before they are logged.
+     * Can be changed in config.yml with `main-thread.warn-ms`.
+     */
+    public static final long MAIN_THREAD_WARN = 20L;
+
+    /**
+     * Time (in ticks) between removing cleared players from the previous days from dungeon files (1 hour).
+     */
+    public static final long CLEAR_PRUNE_INTERVAL = 72000L;
+
     private AppConstants() {
         // NOT USED, BUT AppConstants IS A UTILITY CLASS THAT REQUIRES THIS PRIVATE CONSTRUCTOR
     }
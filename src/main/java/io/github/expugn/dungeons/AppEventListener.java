@@ -1,21 +1,18 @@
 package io.github.expugn.dungeons;
 
-import io.github.expugn.dungeons.dungeons.DungeonFile;
 import io.github.expugn.dungeons.dungeons.DungeonScript;
 import io.github.expugn.dungeons.dungeons.LoadedDungeon;
 import io.github.expugn.dungeons.dungeons.PlayerState;
 import io.github.expugn.dungeons.dungeons.ResetHandler;
+import io.github.expugn.dungeons.regions.RegionGrid;
+import io.github.expugn.dungeons.scripts.ScriptIndex;
 import io.github.expugn.dungeons.scripts.ScriptType;
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Stream;
 import javax.script.Bindings;
 import javax.script.SimpleBindings;
 import org.bukkit.ChatColor;
+import org.bukkit.Location;
 import org.bukkit.block.Block;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
@@ -57,23 +54,21 @@ public class AppEventListener implements Listener {
 
         Player player = e.getPlayer();
         Block clickedBlock = e.getClickedBlock();
-        String scriptName = AppUtils.getBlockString(clickedBlock);
+        ScriptIndex scriptIndex = AppStatus.getScriptManager().getScriptIndex();
 
         if (!AppUtils.isPlayerInDungeon(player)) {
             // PLAYER IS NOT ACTIVELY IN A DUNGEON
             // CHECK FOR WORLD INTERACT SCRIPTS
-            if (!AppUtils.getWorldScriptDirectory(player.getWorld(), ScriptType.None).exists()) {
-                // WORLD SCRIPT DIRECTORY PROBABLY DOESN'T EXIST (INTERACT SCRIPTS WON'T EXIST), SO STOP HERE
-                return;
-            }
-
-            if (!AppUtils.getWorldScript(player.getWorld(), ScriptType.Interact, scriptName).exists()) {
+            String worldName = clickedBlock.getWorld().getName();
+            if (!scriptIndex.isNearWorldScript(worldName, clickedBlock.getX(), clickedBlock.getZ())
+                || !scriptIndex.hasWorldScript(worldName, ScriptType.Interact, AppUtils.getBlockKey(clickedBlock))) {
                 // WORLD SCRIPT DOESN'T EXIST
                 return;
             }
 
             // SCRIPT EXISTS, RUN
-            e.setCancelled(AppStatus.getScriptManager().startScript(scriptName, ScriptType.Interact, player));
+            e.setCancelled(AppStatus.getScriptManager().startScript(AppUtils.getBlockString(clickedBlock),
+                ScriptType.Interact, player));
             return;
         }
 
@@ -82,10 +77,17 @@ public class AppEventListener implements Listener {
             return;
         }
 
+        if (!scriptIndex.hasDungeonScript(AppUtils.getPlayerDungeon(player), ScriptType.Interact,
+            AppUtils.getBlockKey(clickedBlock))) {
+            // DUNGEON SCRIPT DOESN'T EXIST
+            return;
+        }
+
         // RUN DUNGEON SCRIPT
         // CANCEL EVENT IF A SCRIPT HAS SUCCESSFULLY TRIGGERED
         // THIS WILL STOP BLOCKS FROM BEING PLACED
-        e.setCancelled(AppStatus.getScriptManager().startScript(scriptName, ScriptType.Interact, player));
+        e.setCancelled(AppStatus.getScriptManager().startScript(AppUtils.getBlockString(clickedBlock),
+            ScriptType.Interact, player));
     }
 
     /**
@@ -102,20 +104,15 @@ public class AppEventListener implements Listener {
         }
 
         UUID uuid = player.getUniqueId();
-        Map<String, LoadedDungeon> activeDungeons = AppStatus.getActiveDungeons();
-        Map<UUID, String> activePlayers = AppStatus.getActivePlayers();
-        String dungeonName = AppStatus.getActivePlayers().get(uuid);
-
-        if (!activeDungeons.containsKey(dungeonName)) {
+        LoadedDungeon dungeon = AppStatus.getLoadedDungeon(AppStatus.getActivePlayers().get(uuid));
+        if (dungeon == null) {
             // PLAYER IS A PART OF A DUNGEON THAT ISN'T LOADED FOR SOME REASON
-            activePlayers.remove(uuid);
+            AppStatus.getActivePlayers().remove(uuid);
             return;
         }
 
         // PLAYER DIED AND IS ACTIVELY PART OF A LOADED DUNGEON
         // THIS MEANS THE PLAYER IS EITHER Alive OR Dead (Quitters AREN'T ACTIVE)
-
-        LoadedDungeon dungeon = activeDungeons.get(dungeonName);
         if (!dungeon.isActive()) {
             // DUNGEON ISN'T ACTIVE AND PLAYER DIED FOR SOME REASON
             // DO NOTHING
@@ -140,157 +137,32 @@ public class AppEventListener implements Listener {
 
     /**
      * Triggers whenever a player moves from one block to another.
-     * Used to fire Walk or AreaWalk type scripts and to check if a player walks out of dungeon bounds.
+     * Only records the move, Walk and AreaWalk scripts and dungeon bounds are handled once per tick by
+     * {@link MovePipeline}. Players that aren't in a dungeon are only recorded near world scripts.
      * @param e PlayerMoveEvent
      */
     @EventHandler
     public void onPlayerMove(PlayerMoveEvent e) {
-        Player player = e.getPlayer();
-        if (e.getTo().getBlockX() == e.getFrom().getBlockX()
-            && e.getTo().getBlockY() == e.getFrom().getBlockY()
-            && e.getTo().getBlockZ() == e.getFrom().getBlockZ()) {
+        Location from = e.getFrom();
+        Location to = e.getTo();
+        if (to.getBlockX() == from.getBlockX()
+            && to.getBlockY() == from.getBlockY()
+            && to.getBlockZ() == from.getBlockZ()) {
             // NO PLAYER MOVEMENT
             return;
         }
+        Player player = e.getPlayer();
         if (!AppUtils.isPlayerInDungeon(player)) {
-            // PLAYER IS NOT ACTIVELY IN A DUNGEON ; POTENTIAL NON-DUNGEON SCRIPT EXISTS?
-            // LOOK FOR SCRIPT IN PartyDungeons/world/<world_name>/<script_type>/<script_name>.js
-            if (!AppUtils.getWorldScriptDirectory(player.getWorld(), ScriptType.None).exists()) {
-                // WORLD SCRIPT DIRECTORY PROBABLY DOESN'T EXIST (WALK/AREAWALK SCRIPTS WON'T EXIST), SO STOP HERE
+            // PLAYER CAN ONLY TRIGGER WORLD SCRIPTS, SKIP MOVES THAT AREN'T NEAR ANY
+            // THE PREVIOUS CHUNK IS CHECKED TOO, THE PLAYER MAY HAVE JUST LEFT AN AREA
+            ScriptIndex scriptIndex = AppStatus.getScriptManager().getScriptIndex();
+            String worldName = to.getWorld().getName();
+            if (!scriptIndex.isNearWorldScript(worldName, to.getBlockX(), to.getBlockZ())
+                && !scriptIndex.isNearWorldScript(worldName, from.getBlockX(), from.getBlockZ())) {
                 return;
             }
-            AppStatus.getExecutorService().execute(() -> {
-                // CHECK WORLD WALK SCRIPT
-                String worldWalkScriptName = AppUtils.getWalkScriptName(e.getTo().getBlock());
-                File worldWalkScript = AppUtils.getWorldScript(player.getWorld(), ScriptType.Walk, worldWalkScriptName);
-                if (worldWalkScript.exists()) {
-                    // WORLD WALK SCRIPT EXISTS, RUN IT
-                    AppStatus.getScriptManager().startScript(worldWalkScriptName, ScriptType.Walk, e.getPlayer());
-                }
-
-                // CHECK WORLD AREA SCRIPT
-                File worldAreaWalkScripts = AppUtils.getWorldScriptDirectory(player.getWorld(), ScriptType.AreaWalk);
-                if (!worldAreaWalkScripts.exists()) {
-                    return;
-                }
-                try (Stream<Path> paths = Files.walk(worldAreaWalkScripts.toPath())) {
-                    paths.filter(Files::isRegularFile)
-                        .forEach(filePath -> {
-                            String fileName = filePath.getFileName().toString();
-                            String areaString = fileName.substring(0, fileName.lastIndexOf("."));
-                            String[][] splitAreaString = AppUtils.splitAreaString(areaString);
-                            boolean playerPreviouslyInArea = AppUtils.isInsideArea(splitAreaString[0],
-                                splitAreaString[1], e.getFrom());
-                            boolean playerCurrentlyInArea = AppUtils.isInsideArea(splitAreaString[0],
-                                splitAreaString[1], e.getTo());
-                            if ((!playerPreviouslyInArea && playerCurrentlyInArea) || (playerPreviouslyInArea
-                                && !playerCurrentlyInArea)) {
-
-                                // PLAYER ENTERED OR EXITED AREA
-                                AppStatus.getScriptManager().startScript(areaString, ScriptType.AreaWalk, e.getPlayer(),
-                                    (!playerPreviouslyInArea && playerCurrentlyInArea) ? "_enter" : "_exit");
-                            }
-                        });
-                } catch (IOException io) {
-                    io.printStackTrace();
-                }
-            });
-            return;
         }
-        if (!AppUtils.getPlayerState(player).equals(PlayerState.Alive)) {
-            // PLAYER IS NOT ALIVE IN THEIR DUNGEON PARTY
-            return;
-        }
-        AppStatus.getExecutorService().execute(() -> {
-            Map<UUID, String> activePlayers = AppStatus.getActivePlayers();
-            Map<String, LoadedDungeon> activeDungeons = AppStatus.getActiveDungeons();
-            String dungeonName = AppUtils.getPlayerDungeon(player);
-            UUID uuid = player.getUniqueId();
-            if (!activeDungeons.containsKey(dungeonName)) {
-                // PLAYER IS A PART OF AN UNLOADED DUNGEON FOR SOME REASON
-                activePlayers.remove(uuid);
-                return;
-            }
-            LoadedDungeon dungeon = activeDungeons.get(dungeonName);
-            if (!AppUtils.isInsideDungeonArea(dungeon, e.getTo())) {
-                // PLAYER MOVED OUTSIDE THE DUNGEON THEY'RE A PART OF
-                if (dungeon.isCleared()) {
-                    // DUNGEON IS CLEARED AND PLAYER MOVED OUT OF BOUNDS, JUST REMOVE THEM FROM ACTIVE PLAYERS,
-                    // NO PENALTY NEEDED. INFORM ALL CURRENT PARTY MEMBERS TOO.
-                    dungeon.messageParty(
-                        String.format("%s%s %shas walked out of dungeon boundaries and left the party.",
-                        ChatColor.GOLD, player.getName(), ChatColor.YELLOW));
-                    AppStatus.getScriptManager().startScript(DungeonScript.ON_PLAYER_RESET, ScriptType.Dungeon, player);
-                    activeDungeons.get(dungeonName).removePlayerFromParty(player);
-                    dungeon.resetCheck();
-                    return;
-                }
-                if (!dungeon.isActive()) {
-                    // DUNGEON ISN'T ACTIVE AND PLAYER MOVED OUT OF BOUNDS, JUST REMOVE THEM FROM ACTIVE PLAYERS
-                    // NO PENALTY NEEDED. INFORM ALL CURRENT PARTY MEMBERS TOO.
-                    dungeon.messageParty(
-                        String.format("%s%s %shas walked out of dungeon boundaries and left the party.",
-                        ChatColor.GOLD, player.getName(), ChatColor.YELLOW));
-                    activeDungeons.get(dungeonName).removePlayerFromParty(player);
-                    return;
-                }
-                // PLAYER IS ALIVE IN A ACTIVE DUNGEON PARTY THAT HASN'T BEEN CLEARED YET
-                // EFFECTIVELY THE SAME AS LEAVING
-                dungeon.messageParty(
-                    String.format("%s%s %shas walked out of dungeon boundaries and abandoned the party.",
-                    ChatColor.GOLD, player.getName(), ChatColor.RED));
-
-                // RUN DUNGEON SPECIFIC RESET SCRIPTS HERE (RESET HEALTH CHANGES, POTION EFFECTS, ETC)
-                AppStatus.getScriptManager().startScript(DungeonScript.ON_PLAYER_RESET, ScriptType.Dungeon, player);
-                AppStatus.getScriptManager().startScript(DungeonScript.ON_PARTY_MEMBER_QUIT, ScriptType.Dungeon,
-                    player);
-
-                // MODIFY PLAYER TYPE IN DUNGEON PARTY TO BE "QUITTER"
-                dungeon.modifyPlayerState(player, PlayerState.Quitter);
-
-                // REMOVE THEM FROM activePlayers
-                AppStatus.getActivePlayers().remove(player.getUniqueId());
-
-                // CHECK IF WE SHOULD RESET THE DUNGEON
-                dungeon.resetCheck();
-                return;
-            }
-
-            // PLAYER SHOULD BE ABLE TO RUN SCRIPTS ; TRIGGER WALK SCRIPT
-            // DOING AN ADDITIONAL FILE CHECK BECAUSE IT HAD FALSE POSITIVE TRIGGERS FOR SOME REASON
-            String walkScriptName = AppUtils.getWalkScriptName(e.getTo().getBlock());
-            if (new File(String.format("%s/%s%s", AppUtils.getDungeonScriptDirectory(dungeonName, ScriptType.Walk),
-                walkScriptName, AppConstants.SCRIPT_ENGINE_EXTENSION)).exists()) {
-                AppStatus.getScriptManager().startScript(walkScriptName, ScriptType.Walk, e.getPlayer());
-            }
-
-            // TRIGGER AREAWALK SCRIPT
-            File areaWalkScripts = AppUtils.getDungeonScriptDirectory(dungeonName, ScriptType.AreaWalk);
-            if (!areaWalkScripts.exists()) {
-                return;
-            }
-            try (Stream<Path> paths = Files.walk(areaWalkScripts.toPath())) {
-                paths.filter(Files::isRegularFile)
-                    .forEach(filePath -> {
-                        String fileName = filePath.getFileName().toString();
-                        String areaString = fileName.substring(0, fileName.lastIndexOf("."));
-                        String[][] splitAreaString = AppUtils.splitAreaString(areaString);
-                        boolean playerPreviouslyInArea = AppUtils.isInsideArea(splitAreaString[0], splitAreaString[1],
-                            e.getFrom());
-                        boolean playerCurrentlyInArea = AppUtils.isInsideArea(splitAreaString[0], splitAreaString[1],
-                            e.getTo());
-                        if ((!playerPreviouslyInArea && playerCurrentlyInArea) || (playerPreviouslyInArea
-                            && !playerCurrentlyInArea)) {
-
-                            // PLAYER ENTERED OR EXITED AREA
-                            AppStatus.getScriptManager().startScript(areaString, ScriptType.AreaWalk, e.getPlayer(),
-                                (!playerPreviouslyInArea && playerCurrentlyInArea) ? "_enter" : "_exit");
-                        }
-                    });
-            } catch (IOException io) {
-                io.printStackTrace();
-            }
-        });
+        AppStatus.getMovePipeline().record(player, from, to);
     }
 
     /**
@@ -313,8 +185,8 @@ public class AppEventListener implements Listener {
         // PREVIOUSLY ACTIVE PLAYER HAS LOGGED IN AGAIN
         // TELEPORT PLAYER TO DUNGEON SPAWN LOCATION
         String dungeonName = resetHandler.removePlayer(player);
-        Map<String, LoadedDungeon> activeDungeons = AppStatus.getActiveDungeons();
-        if (!activeDungeons.containsKey(dungeonName)) {
+        LoadedDungeon dungeon = AppStatus.getLoadedDungeon(dungeonName);
+        if (dungeon == null) {
             // THE DUNGEON THE PLAYER WAS ASSIGNED TO IS NOT CURRENTLY ACTIVE
             // DON'T BOTHER TELEPORTING THEM AND JUST REMOVE THEM FROM THE OFFLINE PLAYER LIST
             return;
@@ -324,14 +196,14 @@ public class AppEventListener implements Listener {
         AppStatus.getPlugin().getLogger().info(
             String.format("Teleporting player %s to %s's spawn location because %s",
             player.getName(), dungeonName, "they have disconnected while participating."));
-        player.teleport(activeDungeons.get(dungeonName).getDungeon().getDungeonFile().getSpawnLocation());
+        player.teleport(dungeon.getDungeon().getDungeonFile().getSpawnLocation());
         player.sendMessage(
             String.format("%sYou have disconnected from the server while participating in %s%s%s. %s",
             ChatColor.RED, ChatColor.GOLD, dungeonName, ChatColor.RED,
             "You have returned to the spawn location as a result."));
 
         // CHANGE PLAYER STATE IF THEY ARE IN THE CURRENT PARTY (IF THEY AREN'T IN THE PARTY THEN NOTHING HAPPENS)
-        activeDungeons.get(dungeonName).modifyPlayerState(player, PlayerState.Dead);
+        dungeon.modifyPlayerState(player, PlayerState.Dead);
     }
 
     /**
@@ -344,27 +216,26 @@ public class AppEventListener implements Listener {
         ResetHandler resetHandler = AppStatus.getResetHandler();
         Player player = e.getPlayer();
         UUID uuid = player.getUniqueId();
+        AppStatus.getMovePipeline().forget(player);
 
         Map<UUID, String> activePlayers = AppStatus.getActivePlayers();
-        if (!activePlayers.containsKey(uuid)) {
+        String dungeonName = activePlayers.get(uuid);
+        if (dungeonName == null) {
             // PLAYER WAS NOT AN ACTIVE PLAYER
             return;
         }
 
-        String dungeonName = activePlayers.get(uuid);
-        Map<String, LoadedDungeon> activeDungeons = AppStatus.getActiveDungeons();
-        if (!activeDungeons.containsKey(dungeonName)) {
+        LoadedDungeon dungeon = AppStatus.getLoadedDungeon(dungeonName);
+        if (dungeon == null) {
             // DUNGEON IS UNLOADED FOR SOME REASON, FORGET ABOUT IT
             // REMOVE PLAYER FROM ACTIVE PLAYERS TOO
-            activeDungeons.get(dungeonName).removePlayerFromParty(player);
+            activePlayers.remove(uuid);
             return;
         }
-
-        LoadedDungeon dungeon = activeDungeons.get(dungeonName);
         if (!dungeon.isActive() || dungeon.isCleared()) {
             // DUNGEON ISN'T ACTIVE OR CLEARED AND PLAYER DISCONNECTED, JUST REMOVE THEM FROM ACTIVE PLAYERS
             // NO PENALTY NEEDED. INFORM ALL CURRENT PARTY MEMBERS TOO
-            activeDungeons.get(dungeonName).removePlayerFromParty(player);
+            dungeon.removePlayerFromParty(player);
             dungeon.messageParty(String.format("%s%s %shas disconnected and left the party.",
                 ChatColor.GOLD, player.getName(), ChatColor.YELLOW));
 
@@ -411,26 +282,26 @@ public class AppEventListener implements Listener {
             return;
         }
 
-        // FIND WHICH DUNGEON THE ENTITY DIED AT
+        // FIND WHICH (ACTIVE) DUNGEON THE ENTITY DIED AT, ONLY DUNGEONS IN THE SAME CHUNK ARE CHECKED
         LivingEntity livingEntity = e.getEntity();
-        Map<String, LoadedDungeon> activeDungeons = AppStatus.getActiveDungeons();
-        for (Map.Entry<String, LoadedDungeon> entry : activeDungeons.entrySet()) {
-            if (!entry.getValue().isActive()) {
-                // DUNGEON ISN'T ACTIVE, IGNORE
-                continue;
-            }
-
-            LoadedDungeon dungeon = entry.getValue();
-            DungeonFile dungeonFile = dungeon.getDungeon().getDungeonFile();
-            if (AppUtils.isInsideArea(dungeonFile.getBlockA(), dungeonFile.getBlockB(), livingEntity.getLocation())) {
-                // AREA FOUND
-                Bindings bindings = new SimpleBindings();
-                bindings.put("entity", livingEntity);
-                AppStatus.getScriptManager().startScript(DungeonScript.ON_ENTITY_DEATH, ScriptType.Dungeon, dungeon,
-                    bindings);
-                return;
-            }
+        Location location = livingEntity.getLocation();
+        RegionGrid<LoadedDungeon> dungeons = AppStatus.getDungeonGrid(location.getWorld().getName());
+        if (dungeons.isEmpty()) {
+            // NO DUNGEONS IN THIS WORLD
+            return;
+        }
+        LoadedDungeon dungeon = dungeons.find(location.getBlockX(), location.getBlockY(), location.getBlockZ(),
+            LoadedDungeon::isActive);
+        if (dungeon == null) {
+            // ENTITY DIDN'T DIE IN AN ACTIVE DUNGEON
+            return;
         }
+
+        // AREA FOUND
+        Bindings bindings = new SimpleBindings();
+        bindings.put("entity", livingEntity);
+        AppStatus.getScriptManager().startScript(DungeonScript.ON_ENTITY_DEATH, ScriptType.Dungeon, dungeon,
+            bindings);
     }
 
     /**
@@ -452,9 +323,11 @@ public class AppEventListener implements Listener {
 
         // PLAYER IS ALIVE, IN A DUNGEON PARTY
         UUID uuid = player.getUniqueId();
-        Map<String, LoadedDungeon> activeDungeons = AppStatus.getActiveDungeons();
-        String dungeonName = AppStatus.getActivePlayers().get(uuid);
-        LoadedDungeon dungeon = activeDungeons.get(dungeonName);
+        LoadedDungeon dungeon = AppStatus.getLoadedDungeon(AppStatus.getActivePlayers().get(uuid));
+        if (dungeon == null) {
+            // PLAYER'S DUNGEON WAS UNLOADED IN THE MEANTIME
+            return;
+        }
 
         if (AppUtils.isInsideDungeonArea(dungeon, e.getTo())) {
             // CHECKING IF USER IS INSIDE DUNGEON AREA STILL
@@ -474,12 +347,12 @@ public class AppEventListener implements Listener {
             if (dungeon.isCleared()) {
                 // RESET PLAYER IF THEY TELEPORT AWAY
                 AppStatus.getScriptManager().startScript(DungeonScript.ON_PLAYER_RESET, ScriptType.Dungeon, player);
-                activeDungeons.get(dungeonName).removePlayerFromParty(player);
+                dungeon.removePlayerFromParty(player);
                 dungeon.resetCheck();
                 return;
             }
 
-            activeDungeons.get(dungeonName).removePlayerFromParty(player);
+            dungeon.removePlayerFromParty(player);
             return;
         }
 
@@ -514,12 +387,7 @@ public class AppEventListener implements Listener {
             return;
         }
 
-        String dungeonName = AppStatus.getActivePlayers().get(player.getUniqueId());
-        if (new File(String.format("%s/%s%s", AppUtils.getDungeonScriptDirectory(dungeonName, ScriptType.Dungeon),
-            DungeonScript.ON_PLAYER_RESPAWN, AppConstants.SCRIPT_ENGINE_EXTENSION)).exists()) {
-
-            // RUN ON_PLAYER_RESPAWN SCRIPT IF IT EXISTS
-            AppStatus.getScriptManager().startScript(DungeonScript.ON_PLAYER_RESPAWN, ScriptType.Dungeon, player);
-        }
+        // RUN ON_PLAYER_RESPAWN SCRIPT IF IT EXISTS
+        AppStatus.getScriptManager().startScript(DungeonScript.ON_PLAYER_RESPAWN, ScriptType.Dungeon, player);
     }
 }
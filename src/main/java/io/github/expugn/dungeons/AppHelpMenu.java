@@ -135,6 +135,18 @@ public final class AppHelpMenu {
             new Text(String.format("Run a dungeon's script.\n%sPlayer must be in a dungeon party %s", ChatColor.YELLOW,
             "for best\ncompatibility. Probably avoid using this command."))));
         runscript.setClickEvent(new ClickEvent(ClickEvent.Action.SUGGEST_COMMAND, "/partydungeons runscript"));
+        TextComponent flushcache = new TextComponent(String.format("%s/partydungeons %sflushcache\n", ChatColor.GRAY,
+            ChatColor.GOLD));
+        flushcache.setHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT,
+            new Text(String.format("Flush the compiled script cache.\n%s%s", ChatColor.YELLOW,
+            "Scripts will be compiled again the next time\nthey are triggered. Also rebuilds the script index."))));
+        flushcache.setClickEvent(new ClickEvent(ClickEvent.Action.SUGGEST_COMMAND, "/partydungeons flushcache"));
+        TextComponent metrics = new TextComponent(String.format("%s/partydungeons %smetrics\n", ChatColor.GRAY,
+            ChatColor.GOLD));
+        metrics.setHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT,
+            new Text(String.format("Show script executor metrics.\n%s%s", ChatColor.YELLOW,
+            "Queue depth, active workers, rejections\nand task latency percentiles."))));
+        metrics.setClickEvent(new ClickEvent(ClickEvent.Action.SUGGEST_COMMAND, "/partydungeons metrics"));
         TextComponent download = new TextComponent(
             String.format("%s/partydungeons %sdownload %s<dungeon_name> <manifest_url>\n"
                 + "%s/partydungeons %sdownload %s<manifest_url>\n", ChatColor.GRAY,
@@ -155,6 +167,6 @@ public final class AppHelpMenu {
         manifest.setClickEvent(new ClickEvent(ClickEvent.Action.SUGGEST_COMMAND, "/partydungeons manifest"));
         sender.spigot().sendMessage(title, help, join, leave, status, createdungeon, createworlddirectory, loaddungeon,
             unloaddungeon, setspawnposition, setstartposition, createscript, createworldscript, deletescript, settings,
-            runscript, download, manifest, footer);
+            runscript, flushcache, metrics, download, manifest, footer);
     }
 }
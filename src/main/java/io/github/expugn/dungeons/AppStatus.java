@@ -4,32 +4,64 @@ import io.github.expugn.dungeons.dungeons.Dungeon;
 import io.github.expugn.dungeons.dungeons.DungeonFile;
 import io.github.expugn.dungeons.dungeons.LoadedDungeon;
 import io.github.expugn.dungeons.dungeons.PlayerState;
+import io.github.expugn.dungeons.dungeons.ResetClock;
 import io.github.expugn.dungeons.dungeons.ResetHandler;
+import io.github.expugn.dungeons.regions.Region;
+import io.github.expugn.dungeons.regions.RegionGrid;
+import io.github.expugn.dungeons.scripts.ScriptExecutor;
 import io.github.expugn.dungeons.scripts.ScriptManager;
+import io.github.expugn.dungeons.scripts.ScriptWarmup;
+import io.github.expugn.dungeons.scripts.ScriptWatcher;
+import io.github.expugn.dungeons.storage.MappedStore;
+import io.github.expugn.dungeons.storage.SnapshotFormat;
+import io.github.expugn.dungeons.storage.WriteBehind;
+import io.github.expugn.dungeons.worlds.WorldVariables;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import net.milkbowl.vault.economy.Economy;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
 
 /**
  * Manages the current PartyDungeons App's status.
  * These variables are accessible throughout the entire plugin if needed.
+ * The active player, selection, and dungeon maps are read and written by both the main thread and script threads,
+ * so they are concurrent maps. Use a single {@code get} (and check for null) instead of {@code containsKey} followed
+ * by {@code get}, the entry may be removed in between.
  * @author S'pugn
  * @version 0.3
  */
 public final class AppStatus {
     private static boolean isInitialized;
     private static App plugin;
-    private static Map<UUID, String> activePlayers;
-    private static Map<Player, String> activeSelections;
-    private static Map<String, LoadedDungeon> activeDungeons;
+    private static volatile Map<UUID, String> activePlayers;
+    private static volatile Map<Player, String> activeSelections;
+    private static volatile Map<String, LoadedDungeon> activeDungeons;
     private static ResetHandler resetHandler;
+    private static ResetClock resetClock;
     private static ScriptManager scriptManager;
-    private static final ExecutorService SCRIPT_EXECUTOR_SERVICE = Executors.newCachedThreadPool();
+    private static ScriptWatcher scriptWatcher;
+    private static ScriptWarmup scriptWarmup;
+    private static ScriptExecutor scriptExecutor;
+    private static MainThreadQueue mainThreadQueue;
+    private static MovePipeline movePipeline;
+    private static WriteBehind writeBehind;
+    private static SnapshotFormat snapshotFormat;
+    private static Map<String, WorldVariables> worldVariables;
+    private static volatile Map<String, RegionGrid<LoadedDungeon>> dungeonGrids = Map.of();
+    private static Map<String, MappedStore> variableStores;
     private static Economy economy;
 
     private AppStatus() {
@@ -47,14 +79,76 @@ public final class AppStatus {
         }
         isInitialized = true;
         plugin = p;
-        activePlayers = new HashMap<>();
-        activeSelections = new HashMap<>();
+        initRegistries();
+        worldVariables = new ConcurrentHashMap<>();
+        variableStores = new ConcurrentHashMap<>();
+        writeBehind = WriteBehind.fromConfig(p.getConfig());
+        snapshotFormat = SnapshotFormat.fromConfig(p.getConfig());
+        resetClock = ResetClock.fromConfig(p.getConfig());
         resetHandler = ResetHandler.getResetHandler();
+        scriptExecutor = ScriptExecutor.fromConfig(p.getConfig());
+        mainThreadQueue = MainThreadQueue.fromConfig(p.getConfig());
+        mainThreadQueue.runTaskTimer(p, 1L, 1L);
         scriptManager = new ScriptManager();
+        scriptWatcher = null;
         economy = null;
-        // activeDungeons = new HashMap<>(); DONE IN loadAllDungeons()
+        // activeDungeons = new ConcurrentHashMap<>(); DONE IN loadAllDungeons()
 
         loadAllDungeons();
+        startScriptWatcher();
+        startClearPruner();
+        startMovePipeline();
+        startScriptWarmup();
+    }
+
+    /**
+     * Compile every script of every loaded dungeon and world in the background, if enabled in config.yml.
+     */
+    private static void startScriptWarmup() {
+        scriptWarmup = ScriptWarmup.fromConfig(plugin.getConfig(), scriptManager.getScriptCache());
+        if (scriptWarmup != null) {
+            scriptWarmup.start(scriptManager.getScriptIndex().getScripts(activeDungeons.keySet()));
+        }
+    }
+
+    /**
+     * Regularly remove cleared players whose daily clear count has started over from every loaded dungeon.
+     * Runs on the main thread, right away and then every {@link AppConstants#CLEAR_PRUNE_INTERVAL} ticks.
+     */
+    private static void startClearPruner() {
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                for (LoadedDungeon loadedDungeon : activeDungeons.values()) {
+                    Dungeon dungeon = loadedDungeon.getDungeon();
+                    if (dungeon.getDungeonFile().pruneClearedPlayers() > 0) {
+                        dungeon.saveDungeonFile();
+                    }
+                }
+            }
+        }.runTaskTimer(plugin, 0L, AppConstants.CLEAR_PRUNE_INTERVAL);
+    }
+
+    /**
+     * Start handling player movement once per tick, see {@link MovePipeline}.
+     */
+    private static void startMovePipeline() {
+        movePipeline = new MovePipeline();
+        movePipeline.runTaskTimer(plugin, 1L, 1L);
+    }
+
+    /**
+     * Start watching script files for changes.
+     * If the watcher can't be started, the script cache will check script files every time a script runs instead.
+     */
+    private static void startScriptWatcher() {
+        try {
+            scriptWatcher = new ScriptWatcher(scriptManager.getScriptCache(), scriptManager.getScriptIndex());
+            scriptWatcher.start();
+        } catch (IOException e) {
+            plugin.getLogger().warning(String.format("Could not watch script files for changes: %s", e.getMessage()));
+            scriptWatcher = null;
+        }
     }
 
     public static Map<UUID, String> getActivePlayers() {
@@ -69,16 +163,145 @@ public final class AppStatus {
         return activeDungeons;
     }
 
+    /**
+     * Get a loaded dungeon by name.
+     * @param dungeonName Name of the dungeon, can be null.
+     * @return LoadedDungeon, or null if the dungeon isn't loaded.
+     */
+    public static LoadedDungeon getLoadedDungeon(String dungeonName) {
+        if (dungeonName == null) {
+            // activeDungeons DOESN'T ALLOW NULL KEYS
+            return null;
+        }
+        return activeDungeons.get(dungeonName);
+    }
+
+    /**
+     * Create empty active player, selection, and dungeon maps.
+     * Called when AppStatus is initialized, tests call it directly because they don't have a plugin.
+     */
+    static void initRegistries() {
+        activePlayers = new ConcurrentHashMap<>();
+        activeSelections = new ConcurrentHashMap<>();
+        activeDungeons = new ConcurrentHashMap<>();
+    }
+
     public static ResetHandler getResetHandler() {
         return resetHandler;
     }
 
+    /**
+     * Get a world's variables.
+     * The variables are loaded from the world's variables.json file the first time, after that the same instance is
+     * returned for the world.
+     * @param world World to get the variables of.
+     * @return The world's variables.
+     */
+    public static WorldVariables getWorldVariables(World world) {
+        return worldVariables.computeIfAbsent(world.getName(), worldName -> WorldVariables.load(world));
+    }
+
+    /**
+     * Drop every loaded world's variables, they are loaded from variables.json again the next time they are used.
+     * Changes that were not written yet are dropped too, so the files on disk are kept as they are.
+     * Used after variables.json files were edited by hand.
+     * @return Amount of worlds that were dropped.
+     */
+    public static int reloadWorldVariables() {
+        int dropped = 0;
+        for (String worldName : worldVariables.keySet()) {
+            if (reloadWorldVariables(worldName)) {
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Drop a world's variables, they are loaded from variables.json again the next time they are used.
+     * Changes that were not written yet are dropped too, so the file on disk is kept as it is.
+     * @param worldName Name of the world.
+     * @return true if the world's variables were loaded.
+     */
+    public static boolean reloadWorldVariables(String worldName) {
+        WorldVariables dropped = worldVariables.remove(worldName);
+        if (dropped == null) {
+            return false;
+        }
+        writeBehind.discard(dropped.getFile());
+        return true;
+    }
+
+    /**
+     * Get a variable store.
+     * The store is opened the first time, after that the same instance is returned for the file.
+     * @param file File the store is kept in.
+     * @return The variable store, or null if it could not be opened.
+     */
+    public static MappedStore getVariableStore(File file) {
+        try {
+            return variableStores.computeIfAbsent(file.getAbsolutePath(), path -> {
+                try {
+                    return MappedStore.open(file, writeBehind.getFileWriter().isFsync());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // STORE COULD NOT BE OPENED, TRY AGAIN NEXT TIME
+            e.getCause().printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Close every open variable store.
+     * Called when the plugin is disabled.
+     */
+    public static void closeVariableStores() {
+        if (variableStores == null) {
+            return;
+        }
+        for (MappedStore store : variableStores.values()) {
+            store.close();
+        }
+        variableStores.clear();
+    }
+
+    public static SnapshotFormat getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    public static ResetClock getResetClock() {
+        return resetClock;
+    }
+
     public static ScriptManager getScriptManager() {
         return scriptManager;
     }
 
-    public static ExecutorService getExecutorService() {
-        return SCRIPT_EXECUTOR_SERVICE;
+    public static ScriptWatcher getScriptWatcher() {
+        return scriptWatcher;
+    }
+
+    public static ScriptWarmup getScriptWarmup() {
+        return scriptWarmup;
+    }
+
+    public static ScriptExecutor getScriptExecutor() {
+        return scriptExecutor;
+    }
+
+    public static MainThreadQueue getMainThreadQueue() {
+        return mainThreadQueue;
+    }
+
+    public static MovePipeline getMovePipeline() {
+        return movePipeline;
+    }
+
+    public static WriteBehind getWriteBehind() {
+        return writeBehind;
     }
 
     public static App getPlugin() {
@@ -95,12 +318,16 @@ public final class AppStatus {
 
     /**
      * Loads all dungeons in the dungeon directory.
+     * Dungeon files are read (and their party journals replayed) in parallel on a temporary loader pool, the rest
+     * is done on the calling thread in directory order. How long each step took is logged for every dungeon.
      * Also checks if dungeons were in progress or not (by looking at the dungeon file's saved party).
      * If the dungeon was active, then active players at the time will be handled by {@link ResetHandler}
      * and the dungeon will be reset before it is loaded.
      */
     public static void loadAllDungeons() {
-        activeDungeons = new HashMap<>();
+        // WRITE ANY UNSAVED DUNGEON FILES FIRST, THEY'RE ABOUT TO BE READ AGAIN
+        writeBehind.flush();
+        activeDungeons = new ConcurrentHashMap<>();
         File mainDirectory = AppUtils.getDungeonDirectory();
         File[] dungeonDirectories = mainDirectory.listFiles(File::isDirectory);
         if (dungeonDirectories == null) {
@@ -108,38 +335,117 @@ public final class AppStatus {
             return;
         }
 
-        for (File dd : dungeonDirectories) {
-            activeDungeons.put(dd.getName(), new LoadedDungeon(new Dungeon(dd.getName())));
-            DungeonFile df = activeDungeons.get(dd.getName()).getDungeon().getDungeonFile();
-            if (df.hasParty()) {
-                // UH OH, DUNGEON SHUT DOWN WHILE IT WAS IN PROGRESS
-                plugin.getLogger().info(String.format("%s was in progress before the plugin was unloaded!",
-                    dd.getName()));
-                for (Map.Entry<UUID, PlayerState> entry : df.getParty().entrySet()) {
-                    Player player = AppUtils.uuidToPlayer(entry.getKey());
-                    if (!entry.getValue().equals(PlayerState.Alive)) {
-                        // IGNORE PREVIOUSLY Dead, Offline, etc PLAYERS
-                        continue;
-                    }
-                    if (player != null && player.isOnline()) {
-                        // IGNORE ONLINE PLAYERS, WE DON'T WANT TO TELEPORT THEM
-                        plugin.getLogger().info(String.format("%s was a part of the dungeon but they are online.%s",
-                            player.getName(), " Ignoring..."));
-                        continue;
-                    }
+        long started = System.nanoTime();
+        int threads = Math.max(1, Math.min(dungeonDirectories.length, Runtime.getRuntime().availableProcessors()));
+        ExecutorService loader = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "PartyDungeons-Loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<DungeonLoad>> loads = new ArrayList<>();
+        try {
+            for (File dd : dungeonDirectories) {
+                loads.add(loader.submit(() -> DungeonLoad.read(dd.getName())));
+            }
+            for (int i = 0; i < dungeonDirectories.length; i++) {
+                try {
+                    finishLoading(loads.get(i).get());
+                } catch (ExecutionException e) {
+                    plugin.getLogger().warning(String.format("Could not load %s, skipping...",
+                        dungeonDirectories[i].getName()));
+                    e.getCause().printStackTrace();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            loader.shutdownNow();
+        }
+        rebuildDungeonGrids();
+        plugin.getLogger().info(String.format("Loaded %d dungeon(s) in %.1f ms (%d loader thread(s)).",
+            activeDungeons.size(), toMillis(System.nanoTime() - started), threads));
+    }
 
-                    // ADD PLAYER TO ResetHandler
-                    plugin.getLogger().info(String.format("Marked UUID %s as an OfflinePlayer...", entry.getKey()));
-                    resetHandler.addPlayer(entry.getKey(), dd.getName());
+    /**
+     * Rebuild the index of loaded dungeon areas, see {@link #getDungeonGrid(String)}.
+     * Called whenever a dungeon is loaded or unloaded.
+     */
+    private static void rebuildDungeonGrids() {
+        Map<String, Map<LoadedDungeon, Region>> regions = new HashMap<>();
+        for (LoadedDungeon loadedDungeon : activeDungeons.values()) {
+            DungeonFile df = loadedDungeon.getDungeon().getDungeonFile();
+            if (df == null) {
+                // DUNGEON FILE IS MISSING OR CORRUPT, THERE ARE NO BOUNDARIES
+                continue;
+            }
+            regions.computeIfAbsent(df.getWorldName(), k -> new HashMap<>()).put(loadedDungeon, df.getRegion());
+        }
+
+        Map<String, RegionGrid<LoadedDungeon>> grids = new HashMap<>();
+        for (Map.Entry<String, Map<LoadedDungeon, Region>> world : regions.entrySet()) {
+            grids.put(world.getKey(), new RegionGrid<>(world.getValue()));
+        }
+        dungeonGrids = grids;
+    }
+
+    /**
+     * Get the areas of every loaded dungeon in a world, bucketed by chunk.
+     * @param worldName Name of the world.
+     * @return Index of the world's dungeon areas, empty if there are no dungeons in the world.
+     */
+    public static RegionGrid<LoadedDungeon> getDungeonGrid(String worldName) {
+        RegionGrid<LoadedDungeon> grid = dungeonGrids.get(worldName);
+        return grid != null ? grid : RegionGrid.empty();
+    }
+
+    /**
+     * Finish loading a dungeon that was read by the loader pool.
+     * Resetting an in progress dungeon runs scripts and moves players, so this is not done on the loader pool.
+     * @param load Dungeon that was read.
+     */
+    private static void finishLoading(DungeonLoad load) {
+        if (load.loadedDungeon == null) {
+            // DUNGEON FILE IS MISSING OR CORRUPT, DON'T LOAD A DUNGEON WITH NO SETTINGS
+            plugin.getLogger().warning(String.format("Could not read %s's dungeon file, skipping...", load.name));
+            return;
+        }
+
+        long started = System.nanoTime();
+        DungeonFile df = load.loadedDungeon.getDungeon().getDungeonFile();
+        activeDungeons.put(load.name, load.loadedDungeon);
+        if (df.hasParty()) {
+            // UH OH, DUNGEON SHUT DOWN WHILE IT WAS IN PROGRESS
+            plugin.getLogger().info(String.format("%s was in progress before the plugin was unloaded!", load.name));
+            for (Map.Entry<UUID, PlayerState> entry : df.getParty().entrySet()) {
+                Player player = AppUtils.uuidToPlayer(entry.getKey());
+                if (!entry.getValue().equals(PlayerState.Alive)) {
+                    // IGNORE PREVIOUSLY Dead, Offline, etc PLAYERS
+                    continue;
+                }
+                if (player != null && player.isOnline()) {
+                    // IGNORE ONLINE PLAYERS, WE DON'T WANT TO TELEPORT THEM
+                    plugin.getLogger().info(String.format("%s was a part of the dungeon but they are online.%s",
+                        player.getName(), " Ignoring..."));
+                    continue;
                 }
 
-                // RESET DUNGEON
-                plugin.getLogger().info(String.format("Resetting %s...", dd.getName()));
-                activeDungeons.get(dd.getName()).reset();
+                // ADD PLAYER TO ResetHandler
+                plugin.getLogger().info(String.format("Marked UUID %s as an OfflinePlayer...", entry.getKey()));
+                resetHandler.addPlayer(entry.getKey(), load.name);
             }
 
-            plugin.getLogger().info(String.format("Loaded %s...", dd.getName()));
+            // RESET DUNGEON
+            plugin.getLogger().info(String.format("Resetting %s...", load.name));
+            load.loadedDungeon.reset();
         }
+
+        plugin.getLogger().info(String.format("Loaded %s... (read %.1f ms, recover %.1f ms, reset %.1f ms)",
+            load.name, toMillis(load.readTime), toMillis(load.recoverTime), toMillis(System.nanoTime() - started)));
+    }
+
+    private static double toMillis(long nanos) {
+        final double nanosPerMilli = 1_000_000.0;
+        return nanos / nanosPerMilli;
     }
 
     /**
@@ -161,7 +467,16 @@ public final class AppStatus {
             return false;
         }
 
-        activeDungeons.put(dungeonName, new LoadedDungeon(new Dungeon(dungeonName)));
+        // WRITE ANY UNSAVED CHANGES TO THE DUNGEON FILE (FROM BEFORE IT WAS UNLOADED) BEFORE READING IT
+        writeBehind.flush();
+
+        LoadedDungeon loadedDungeon = new LoadedDungeon(new Dungeon(dungeonName));
+        if (activeDungeons.putIfAbsent(dungeonName, loadedDungeon) != null) {
+            // DUNGEON WAS LOADED IN THE MEANTIME
+            return false;
+        }
+        loadedDungeon.recoverParty();
+        rebuildDungeonGrids();
         plugin.getLogger().info(String.format("Loaded %s...", dungeonName));
 
         return true;
@@ -174,18 +489,55 @@ public final class AppStatus {
      * @return true if unload successful, false otherwise.
      */
     public static boolean unloadDungeon(String dungeonName) {
-        if (!activeDungeons.containsKey(dungeonName)) {
+        LoadedDungeon dungeon = activeDungeons.remove(dungeonName);
+        if (dungeon == null) {
             // DUNGEON IS ALREADY UNLOADED
             return false;
         }
+        rebuildDungeonGrids();
 
         // DO THINGS BEFORE DUNGEON UNLOADS HERE...
         // KICK ACTIVE PLAYERS?
-        activeDungeons.get(dungeonName).reset();
+        dungeon.reset();
 
-        activeDungeons.remove(dungeonName);
         plugin.getLogger().info(String.format("Unloaded %s.", dungeonName));
 
         return true;
     }
+
+    /**
+     * A dungeon that was read on the loader pool, and how long it took.
+     */
+    private static final class DungeonLoad {
+        private final String name;
+        private LoadedDungeon loadedDungeon;
+        private long readTime;
+        private long recoverTime;
+
+        private DungeonLoad(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Read a dungeon's file and recover its party.
+         * Only touches the dungeon's own files, so many dungeons can be read at the same time.
+         * @param name Name of the dungeon.
+         * @return The dungeon, loadedDungeon is null if its dungeon file is missing or corrupt.
+         */
+        private static DungeonLoad read(String name) {
+            DungeonLoad load = new DungeonLoad(name);
+            long started = System.nanoTime();
+            Dungeon dungeon = new Dungeon(name);
+            load.readTime = System.nanoTime() - started;
+            if (dungeon.getDungeonFile() == null) {
+                return load;
+            }
+
+            started = System.nanoTime();
+            load.loadedDungeon = new LoadedDungeon(dungeon);
+            load.loadedDungeon.recoverParty();
+            load.recoverTime = System.nanoTime() - started;
+            return load;
+        }
+    }
 }
@@ -1,7 +1,8 @@
 package io.github.expugn.dungeons;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import io.github.expugn.dungeons.dungeons.Dungeon;
-import io.github.expugn.dungeons.dungeons.DungeonFile;
 import io.github.expugn.dungeons.dungeons.LoadedDungeon;
 import io.github.expugn.dungeons.dungeons.PlayerState;
 import io.github.expugn.dungeons.dungeons.ResetHandler;
@@ -11,7 +12,6 @@ import java.util.Map;
 import java.util.UUID;
 import java.util.logging.Level;
 import java.util.stream.Stream;
-import org.apache.commons.lang.math.IntRange;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
@@ -24,10 +24,25 @@ import org.bukkit.entity.Player;
  * @version 0.2
  */
 public final class AppUtils {
+    private static final int BLOCK_XZ_BITS = 26;
+    private static final int BLOCK_Y_BITS = 12;
+    private static final long BLOCK_XZ_MASK = (1L << BLOCK_XZ_BITS) - 1;
+    private static final long BLOCK_Y_MASK = (1L << BLOCK_Y_BITS) - 1;
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
     private AppUtils() {
         // NOT USED, BUT AppUtils IS A UTILITY CLASS AND REQUIRES THIS PRIVATE CONSTRUCTOR.
     }
 
+    /**
+     * Get the Gson instance used to read and write the plugin's JSON files.
+     * Gson is thread-safe, so one (pretty printing) instance is shared instead of building one for every save.
+     * @return Shared Gson instance.
+     */
+    public static Gson getGson() {
+        return GSON;
+    }
+
     /**
      * Check if location is in the bounding box of 2 different string arrays containing ["x", "y", "z"].
      * @param lowerBound Corner 1 of the bounding box.
@@ -52,9 +67,9 @@ public final class AppUtils {
     public static boolean isInsideArea(int[] lowerBound, int[] upperBound, Location playerLocation) {
         // LOWER BOUND = [x, y, z]
         // UPPER BOUND = [x, y, z]
-        return new IntRange(lowerBound[0], upperBound[0]).containsInteger(playerLocation.getBlockX())
-               && new IntRange(lowerBound[1], upperBound[1]).containsInteger(playerLocation.getBlockY())
-               && new IntRange(lowerBound[2], upperBound[2]).containsInteger(playerLocation.getBlockZ());
+        return isBetween(lowerBound[0], upperBound[0], playerLocation.getBlockX())
+               && isBetween(lowerBound[1], upperBound[1], playerLocation.getBlockY())
+               && isBetween(lowerBound[2], upperBound[2], playerLocation.getBlockZ());
     }
 
     /**
@@ -65,9 +80,16 @@ public final class AppUtils {
      * @return true if location is in bounding box, false otherwise.
      */
     public static boolean isInsideArea(Block blockA, Block blockB, Location playerLocation) {
-        return new IntRange(blockA.getX(), blockB.getX()).containsInteger(playerLocation.getBlockX())
-               && new IntRange(blockA.getY(), blockB.getY()).containsInteger(playerLocation.getBlockY())
-               && new IntRange(blockA.getZ(), blockB.getZ()).containsInteger(playerLocation.getBlockZ());
+        return isBetween(blockA.getX(), blockB.getX(), playerLocation.getBlockX())
+               && isBetween(blockA.getY(), blockB.getY(), playerLocation.getBlockY())
+               && isBetween(blockA.getZ(), blockB.getZ(), playerLocation.getBlockZ());
+    }
+
+    private static boolean isBetween(int a, int b, int value) {
+        // a AND b CAN BE IN ANY ORDER
+        return a <= b
+            ? value >= a && value <= b
+            : value >= b && value <= a;
     }
 
     public static boolean isInsideDungeonArea(LoadedDungeon dungeon, Location location) {
@@ -75,8 +97,7 @@ public final class AppUtils {
     }
 
     public static boolean isInsideDungeonArea(Dungeon dungeon, Location location) {
-        DungeonFile dungeonFile = dungeon.getDungeonFile();
-        return isInsideArea(dungeonFile.getBlockA(), dungeonFile.getBlockB(), location);
+        return dungeon.getDungeonFile().getRegion().contains(location);
     }
 
     public static boolean isPlayerInDungeon(Player player) {
@@ -97,9 +118,9 @@ public final class AppUtils {
         UUID uuid = player.getUniqueId();
 
         // CHECK ACTIVE PLAYERS
-        Map<UUID, String> activePlayer = AppStatus.getActivePlayers();
-        if (activePlayer.containsKey(uuid)) {
-            return activePlayer.get(uuid);
+        String dungeonName = AppStatus.getActivePlayers().get(uuid);
+        if (dungeonName != null) {
+            return dungeonName;
         }
 
         // PLAYER ISN'T AN ACTIVE PLAYER, ARE THEY AN OFFLINE PLAYER?
@@ -118,21 +139,17 @@ public final class AppUtils {
      * @return PlayerState of player.
      */
     public static PlayerState getPlayerState(Player player) {
-        Map<UUID, String> activePlayers = AppStatus.getActivePlayers();
-        UUID uuid = player.getUniqueId();
-        if (!activePlayers.containsKey(uuid)) {
+        String dungeonName = AppStatus.getActivePlayers().get(player.getUniqueId());
+        if (dungeonName == null) {
             // PLAYER IS NOT ACTIVELY IN A DUNGEON
             return PlayerState.None;
         }
 
-        String dungeonName = activePlayers.get(uuid);
-        Map<String, LoadedDungeon> activeDungeons = AppStatus.getActiveDungeons();
-        if (!activeDungeons.containsKey(dungeonName)) {
+        LoadedDungeon dungeon = AppStatus.getLoadedDungeon(dungeonName);
+        if (dungeon == null) {
             // DUNGEON THAT THE PLAYER IS IN IS NOT ACTIVE, FOR SOME REASON
             return PlayerState.None;
         }
-
-        LoadedDungeon dungeon = activeDungeons.get(dungeonName);
         return dungeon.getPlayerState(player);
     }
 
@@ -168,13 +185,8 @@ public final class AppUtils {
      * @return true if add was successful, false otherwise.
      */
     public static boolean playerJoinDungeon(Player player, String dungeonName) {
-        Map<UUID, String> activePlayers = AppStatus.getActivePlayers();
-        if (activePlayers.containsKey(player.getUniqueId())) {
-            // PLAYER IS ALREADY IN A DUNGEON
-            return false;
-        }
-        activePlayers.put(player.getUniqueId(), dungeonName);
-        return true;
+        // PLAYER IS ALREADY IN A DUNGEON IF THERE'S A PREVIOUS VALUE
+        return AppStatus.getActivePlayers().putIfAbsent(player.getUniqueId(), dungeonName) == null;
     }
 
     /**
@@ -183,13 +195,8 @@ public final class AppUtils {
      * @return true if removal successful, false otherwise.
      */
     public static boolean playerLeaveDungeon(Player player) {
-        Map<UUID, String> activePlayers = AppStatus.getActivePlayers();
-        if (!activePlayers.containsKey(player.getUniqueId())) {
-            // PLAYER IS NOT IN A DUNGEON
-            return false;
-        }
-        activePlayers.remove(player.getUniqueId());
-        return true;
+        // PLAYER IS NOT IN A DUNGEON IF THERE'S NO PREVIOUS VALUE
+        return AppStatus.getActivePlayers().remove(player.getUniqueId()) != null;
     }
 
     public static String getBlockString(Block block) {
@@ -197,7 +204,73 @@ public final class AppUtils {
     }
 
     public static String getWalkScriptName(Block block) {
-        return String.format("%d_%d_%d", block.getX(), block.getY() - 1, block.getZ());
+        return getWalkScriptName(block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Get the name of the Walk script for a player standing in a block.
+     * Walk scripts are named after the block below the player.
+     * @param x X coordinate of the block the player is in.
+     * @param y Y coordinate of the block the player is in.
+     * @param z Z coordinate of the block the player is in.
+     * @return Walk script name.
+     */
+    public static String getWalkScriptName(int x, int y, int z) {
+        return String.format("%d_%d_%d", x, y - 1, z);
+    }
+
+    /**
+     * Pack block coordinates into a single long.
+     * X and Z use 26 bits each and Y uses 12 bits, which covers every block inside a world's border.
+     * @param x Block X coordinate.
+     * @param y Block Y coordinate.
+     * @param z Block Z coordinate.
+     * @return Packed block coordinates.
+     */
+    public static long packBlock(int x, int y, int z) {
+        return ((x & BLOCK_XZ_MASK) << (BLOCK_XZ_BITS + BLOCK_Y_BITS))
+            | ((z & BLOCK_XZ_MASK) << BLOCK_Y_BITS)
+            | (y & BLOCK_Y_MASK);
+    }
+
+    /**
+     * Get the X coordinate of packed block coordinates.
+     * @param blockKey Block coordinates packed with {@link #packBlock(int, int, int)}.
+     * @return Block X coordinate.
+     */
+    public static int unpackBlockX(long blockKey) {
+        return (int) (blockKey >> (BLOCK_XZ_BITS + BLOCK_Y_BITS));
+    }
+
+    /**
+     * Get the Z coordinate of packed block coordinates.
+     * @param blockKey Block coordinates packed with {@link #packBlock(int, int, int)}.
+     * @return Block Z coordinate.
+     */
+    public static int unpackBlockZ(long blockKey) {
+        // SHIFT Z TO THE TOP FIRST SO ITS SIGN IS KEPT
+        return (int) ((blockKey << BLOCK_XZ_BITS) >> (BLOCK_XZ_BITS + BLOCK_Y_BITS));
+    }
+
+    /**
+     * Packed version of {@link #getBlockString(Block)}.
+     */
+    public static long getBlockKey(Block block) {
+        return packBlock(block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Packed version of {@link #getWalkScriptName(Block)}.
+     */
+    public static long getWalkScriptKey(Block block) {
+        return getWalkScriptKey(block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Packed version of {@link #getWalkScriptName(int, int, int)}.
+     */
+    public static long getWalkScriptKey(int x, int y, int z) {
+        return packBlock(x, y - 1, z);
     }
 
     /**
@@ -209,19 +282,16 @@ public final class AppUtils {
      */
     public static String playerSelection(Player player, Block targetBlock) {
         Map<Player, String> activeSelections = AppStatus.getActiveSelections();
-        if (!activeSelections.containsKey(player)) {
+        // SELECTION IS COMPLETE IF THERE'S A PREVIOUS VALUE, DELETE IT FROM activeSelections
+        String firstBlock = activeSelections.remove(player);
+        if (firstBlock == null) {
             // PLAYER IS NOT IN PROGRESS OF MAKING A SELECTION
             activeSelections.put(player, getBlockString(targetBlock));
             return "";
-        } else {
-            // PLAYER HAS A SELECTION IN PROGRESS, RETURN A COMPLETED STRING
-            String completedString = String.format("%s~%s", activeSelections.get(player), getBlockString(targetBlock));
-
-            // SELECTION IS COMPLETE, DELETE FROM activeSelections
-            activeSelections.remove(player);
-
-            return completedString;
         }
+
+        // PLAYER HAS A SELECTION IN PROGRESS, RETURN A COMPLETED STRING
+        return String.format("%s~%s", firstBlock, getBlockString(targetBlock));
     }
 
     public static Block getTargetBlock(Player player) {
@@ -289,6 +359,14 @@ public final class AppUtils {
         return new File(String.format("%s/config.json", getDungeonDirectory(dungeonName)));
     }
 
+    public static File getDungeonStoreFile(String dungeonName) {
+        return new File(String.format("%s/variables.store", getDungeonDirectory(dungeonName)));
+    }
+
+    public static File getDungeonJournalFile(String dungeonName) {
+        return new File(String.format("%s/party.journal", getDungeonDirectory(dungeonName)));
+    }
+
     public static File getWorldDirectory() {
         return new File(String.format("plugins/%s/worlds", AppStatus.getPlugin().getName()));
     }
@@ -326,6 +404,10 @@ public final class AppUtils {
         return new File(String.format("%s/variables.json", getWorldDirectory(world)));
     }
 
+    public static File getWorldStoreFile(World world) {
+        return new File(String.format("%s/variables.store", getWorldDirectory(world)));
+    }
+
     /**
      * "Straighten" a given yaw.
      * Straighten a yaw meaning this will make sure a player is looking exactly straight in a cardinal direction.
@@ -0,0 +1,264 @@
+package io.github.expugn.dungeons;
+
+import io.github.expugn.dungeons.scripts.ScriptManager;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import org.bukkit.configuration.Configuration;
+import org.bukkit.scheduler.BukkitRunnable;
+
+/**
+ * Runs actions that have to be done on the main thread (teleporting players, changing potion effects, etc).
+ * Any thread can add actions, they are kept in lock-free queues (one per {@link Priority}) and run by a single task
+ * that runs every tick, instead of scheduling a new task for every action. Higher priority actions always run first,
+ * actions with the same priority run in the order they were added.
+ * Actions only run until the tick's time budget is used up, whatever is left over runs on the next tick. At least one
+ * action runs every tick, so a single slow action can't stop the queue.
+ * Every action remembers where it came from (usually the dungeon and script that added it). If a tick's actions take
+ * longer than the warning threshold, the slowest action's source is logged.
+ * @author S'pugn
+ * @version 0.1
+ */
+public final class MainThreadQueue extends BukkitRunnable {
+    private static final String BUDGET_KEY = "main-thread.budget-ms";
+    private static final String WARN_KEY = "main-thread.warn-ms";
+    private static final String UNKNOWN_SOURCE = "PartyDungeons";
+    private final Queue<Action>[] queues;
+    private final long budget;
+    private final long warnThreshold;
+    private final LongAdder added;
+    private long ran;
+    private long carriedOver;
+    private long spikes;
+
+    /**
+     * How soon an action should run when the main thread is busy.
+     */
+    public enum Priority {
+        /**
+         * Actions that change dungeon or player state, like teleporting players.
+         */
+        HIGH,
+
+        /**
+         * Actions players notice right away, like potion effects.
+         */
+        NORMAL,
+
+        /**
+         * Cosmetic actions, like particles and sounds.
+         */
+        LOW;
+
+        /**
+         * Get a priority from its name, like the ones scripts pass to sm.runOnMainThread.
+         * @param value Priority name (HIGH, NORMAL or LOW), in any case.
+         * @return The priority, NORMAL if the name is not a priority.
+         */
+        public static Priority parse(String value) {
+            if (value != null) {
+                try {
+                    return Priority.valueOf(value.trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    // NOT A PRIORITY, WARN BELOW
+                }
+            }
+            AppUtils.consoleLog(Level.WARNING, String.format("Invalid main thread priority \"%s\", using %s.",
+                value, NORMAL));
+            return NORMAL;
+        }
+    }
+
+    /**
+     * Construct a new main thread queue.
+     * Start it with {@link #runTaskTimer} every tick.
+     * @param budget Time in milliseconds actions can run for every tick.
+     * @param warnThreshold A tick's actions taking longer than this many milliseconds are logged.
+     */
+    @SuppressWarnings("unchecked")
+    public MainThreadQueue(long budget, long warnThreshold) {
+        this.queues = new Queue[Priority.values().length];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.budget = TimeUnit.MILLISECONDS.toNanos(Math.max(0, budget));
+        this.warnThreshold = TimeUnit.MILLISECONDS.toNanos(Math.max(0, warnThreshold));
+        this.added = new LongAdder();
+    }
+
+    /**
+     * Create a main thread queue from the plugin's config.yml.
+     * @param config Plugin configuration.
+     * @return A new main thread queue.
+     */
+    public static MainThreadQueue fromConfig(Configuration config) {
+        return new MainThreadQueue(config.getLong(BUDGET_KEY, AppConstants.MAIN_THREAD_BUDGET),
+            config.getLong(WARN_KEY, AppConstants.MAIN_THREAD_WARN));
+    }
+
+    /**
+     * Run an action on the main thread, on the next tick with time left.
+     * If this is called by a script, the script is the action's source.
+     * Can be called from any thread.
+     * @param priority How soon the action should run.
+     * @param action Action to run.
+     */
+    public void execute(Priority priority, Runnable action) {
+        String source = ScriptManager.getRunningScript();
+        execute(priority, source != null ? source : UNKNOWN_SOURCE, action);
+    }
+
+    /**
+     * Run an action on the main thread, on the next tick with time left.
+     * Can be called from any thread.
+     * @param priority How soon the action should run.
+     * @param source What added the action (for example the dungeon and script), logged if the action is slow.
+     * @param action Action to run.
+     */
+    public void execute(Priority priority, String source, Runnable action) {
+        queues[priority.ordinal()].add(new Action(source, action));
+        added.increment();
+    }
+
+    /**
+     * Run actions until the tick's time budget is used up.
+     */
+    @Override
+    public void run() {
+        long started = System.nanoTime();
+        Action slowest = null;
+        long slowestTime = 0;
+        Action action = poll();
+        while (action != null) {
+            long actionStarted = System.nanoTime();
+            runAction(action);
+            long now = System.nanoTime();
+            if (now - actionStarted > slowestTime) {
+                slowest = action;
+                slowestTime = now - actionStarted;
+            }
+            if (now - started >= budget) {
+                break;
+            }
+            action = poll();
+        }
+
+        if (getQueueDepth() > 0) {
+            carriedOver++;
+        }
+        long time = System.nanoTime() - started;
+        if (slowest != null && time >= warnThreshold) {
+            spikes++;
+            AppUtils.consoleLog(Level.WARNING, String.format(
+                "Main thread actions took %.1f ms this tick (budget %d ms), slowest: %s (%.1f ms).",
+                toMillis(time), getBudget(), slowest.source, toMillis(slowestTime)));
+        }
+    }
+
+    /**
+     * Run every action that is left, ignoring the time budget.
+     * Called when the plugin is disabled, so dungeons that were being reset are still reset before they are saved.
+     */
+    public void runAll() {
+        Action action = poll();
+        while (action != null) {
+            runAction(action);
+            action = poll();
+        }
+    }
+
+    /**
+     * Get the amount of actions waiting to run.
+     * @return Amount of waiting actions of every priority.
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Queue<Action> queue : queues) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Get the amount of actions of a priority waiting to run.
+     * @param priority Priority to check.
+     * @return Amount of waiting actions.
+     */
+    public int getQueueDepth(Priority priority) {
+        return queues[priority.ordinal()].size();
+    }
+
+    public long getAdded() {
+        return added.sum();
+    }
+
+    public long getRan() {
+        return ran;
+    }
+
+    /**
+     * Get the amount of ticks that had actions left over after their time budget was used up.
+     * @return Amount of ticks that ran out of time.
+     */
+    public long getCarriedOver() {
+        return carriedOver;
+    }
+
+    /**
+     * Get the amount of ticks whose actions took longer than the warning threshold.
+     * @return Amount of logged ticks.
+     */
+    public long getSpikes() {
+        return spikes;
+    }
+
+    /**
+     * Get the time actions can run for every tick.
+     * @return Time budget in milliseconds.
+     */
+    public long getBudget() {
+        return TimeUnit.NANOSECONDS.toMillis(budget);
+    }
+
+    private Action poll() {
+        for (Queue<Action> queue : queues) {
+            Action action = queue.poll();
+            if (action != null) {
+                return action;
+            }
+        }
+        return null;
+    }
+
+    private void runAction(Action action) {
+        ran++;
+        try {
+            action.task.run();
+        } catch (RuntimeException e) {
+            // DON'T LET ONE BROKEN ACTION STOP THE REST OF THE QUEUE
+            AppUtils.consoleLog(Level.WARNING, String.format("Main thread action from %s failed.", action.source));
+            e.printStackTrace();
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        final double nanosPerMilli = 1_000_000.0;
+        return nanos / nanosPerMilli;
+    }
+
+    /**
+     * An action and where it came from.
+     */
+    private static final class Action {
+        private final String source;
+        private final Runnable task;
+
+        Action(String source, Runnable task) {
+            this.source = source;
+            this.task = task;
+        }
+    }
+}
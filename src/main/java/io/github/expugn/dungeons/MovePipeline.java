@@ -0,0 +1,286 @@
+package io.github.expugn.dungeons;
+
+import io.github.expugn.dungeons.dungeons.DungeonFile;
+import io.github.expugn.dungeons.dungeons.DungeonScript;
+import io.github.expugn.dungeons.dungeons.LoadedDungeon;
+import io.github.expugn.dungeons.dungeons.PlayerState;
+import io.github.expugn.dungeons.regions.RegionGrid;
+import io.github.expugn.dungeons.scripts.ScriptIndex;
+import io.github.expugn.dungeons.scripts.ScriptType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+
+/**
+ * Collects player movement and handles it once per tick, see {@link AppEventListener#onPlayerMove}.
+ * Move events only record the block a player moved from and to in that player's slot. Every tick, the players that
+ * moved are handled in one batch on the main thread, in the order they first moved that tick: dungeon boundaries are
+ * checked and Walk and AreaWalk scripts are started (the scripts themselves still run on script threads).
+ * A player that moves more than one block in a tick is handled once, from the block they were on when the tick
+ * started to the block they're on now. Walk scripts of the blocks in between are skipped.
+ * Everything here runs on the main thread, so nothing is synchronized.
+ * @author S'pugn
+ * @version 0.1
+ */
+public final class MovePipeline extends BukkitRunnable {
+    private final Map<UUID, Slot> slots;
+    private final Consumer<Slot> handler;
+    private List<Slot> pending;
+    private List<Slot> draining;
+    private long recordedMoves;
+    private long handledMoves;
+    private long drains;
+
+    /**
+     * Construct a new move pipeline.
+     * Start it with {@link #runTaskTimer} every tick.
+     */
+    public MovePipeline() {
+        this(null);
+    }
+
+    /**
+     * Construct a move pipeline that gives every player's movement for a tick to a handler.
+     * Used by tests, so the batching can be checked without a server.
+     * @param handler Handles a player's movement, null to check dungeon boundaries and start scripts.
+     */
+    MovePipeline(Consumer<Slot> handler) {
+        this.slots = new HashMap<>();
+        this.handler = handler != null ? handler : this::handle;
+        this.pending = new ArrayList<>();
+        this.draining = new ArrayList<>();
+    }
+
+    /**
+     * Record a player moving from one block to another.
+     * Must be called from the main thread.
+     * @param player Player that moved.
+     * @param from Location the player moved from.
+     * @param to Location the player moved to.
+     */
+    public void record(Player player, Location from, Location to) {
+        recordedMoves++;
+        Slot slot = slots.computeIfAbsent(player.getUniqueId(), k -> new Slot());
+        slot.player = player;
+        String worldName = to.getWorld().getName();
+        if (!slot.pending || !worldName.equals(slot.worldName)) {
+            // FIRST MOVE THIS TICK (OR THE PLAYER CHANGED WORLDS), THE TICK'S MOVEMENT STARTS HERE
+            slot.fromX = from.getBlockX();
+            slot.fromY = from.getBlockY();
+            slot.fromZ = from.getBlockZ();
+            slot.worldName = worldName;
+        }
+        slot.toX = to.getBlockX();
+        slot.toY = to.getBlockY();
+        slot.toZ = to.getBlockZ();
+        if (!slot.pending) {
+            slot.pending = true;
+            pending.add(slot);
+        }
+    }
+
+    /**
+     * Forget a player's slot, their movement this tick is dropped.
+     * Called when a player leaves the server.
+     * @param player Player to forget.
+     */
+    public void forget(Player player) {
+        Slot slot = slots.remove(player.getUniqueId());
+        if (slot != null && slot.pending) {
+            slot.pending = false;
+            pending.remove(slot);
+        }
+    }
+
+    /**
+     * Handle every player that moved since the last tick.
+     */
+    @Override
+    public void run() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        drains++;
+
+        // SWAP THE LISTS, HANDLING A MOVE CAN CAUSE MORE MOVES (TELEPORTS, SCRIPTS) THAT ARE HANDLED NEXT TICK
+        List<Slot> batch = pending;
+        pending = draining;
+        draining = batch;
+        for (Slot slot : batch) {
+            slot.pending = false;
+            handledMoves++;
+            if (slot.player.isOnline()) {
+                handler.accept(slot);
+            }
+        }
+        batch.clear();
+    }
+
+    public long getRecordedMoves() {
+        return recordedMoves;
+    }
+
+    public long getHandledMoves() {
+        return handledMoves;
+    }
+
+    public long getDrains() {
+        return drains;
+    }
+
+    private void handle(Slot slot) {
+        Player player = slot.player;
+        ScriptIndex scriptIndex = AppStatus.getScriptManager().getScriptIndex();
+        String dungeonName = AppStatus.getActivePlayers().get(player.getUniqueId());
+        if (dungeonName == null) {
+            // PLAYER IS NOT ACTIVELY IN A DUNGEON ; POTENTIAL NON-DUNGEON SCRIPT EXISTS?
+            // LOOK FOR SCRIPT IN PartyDungeons/world/<world_name>/<script_type>/<script_name>.js
+            if (!scriptIndex.hasWorldScripts(slot.worldName)) {
+                // WORLD SCRIPT DIRECTORY DOESN'T EXIST (WALK/AREAWALK SCRIPTS WON'T EXIST), SO STOP HERE
+                return;
+            }
+
+            // CHECK WORLD WALK SCRIPT
+            if (scriptIndex.hasWorldScript(slot.worldName, ScriptType.Walk,
+                AppUtils.getWalkScriptKey(slot.toX, slot.toY, slot.toZ))) {
+                AppStatus.getScriptManager().startScript(AppUtils.getWalkScriptName(slot.toX, slot.toY, slot.toZ),
+                    ScriptType.Walk, player);
+            }
+
+            // CHECK WORLD AREA SCRIPT
+            triggerAreaWalkScripts(scriptIndex.getWorldAreaWalkScripts(slot.worldName), slot);
+            return;
+        }
+        if (!AppUtils.getPlayerState(player).equals(PlayerState.Alive)) {
+            // PLAYER IS NOT ALIVE IN THEIR DUNGEON PARTY
+            return;
+        }
+
+        LoadedDungeon dungeon = AppStatus.getActiveDungeons().get(dungeonName);
+        if (dungeon == null) {
+            // PLAYER IS A PART OF AN UNLOADED DUNGEON FOR SOME REASON
+            AppStatus.getActivePlayers().remove(player.getUniqueId());
+            return;
+        }
+        DungeonFile df = dungeon.getDungeon().getDungeonFile();
+        if (!df.getRegion().contains(slot.toX, slot.toY, slot.toZ)) {
+            // PLAYER MOVED OUTSIDE THE DUNGEON THEY'RE A PART OF
+            walkOutOfDungeon(player, dungeon);
+            return;
+        }
+
+        // PLAYER SHOULD BE ABLE TO RUN SCRIPTS ; TRIGGER WALK SCRIPT
+        // CHECKING THE DUNGEON'S SCRIPT INDEX FIRST BECAUSE IT HAD FALSE POSITIVE TRIGGERS FOR SOME REASON
+        if (scriptIndex.hasDungeonScript(dungeonName, ScriptType.Walk,
+            AppUtils.getWalkScriptKey(slot.toX, slot.toY, slot.toZ))) {
+            AppStatus.getScriptManager().startScript(AppUtils.getWalkScriptName(slot.toX, slot.toY, slot.toZ),
+                ScriptType.Walk, player);
+        }
+
+        // TRIGGER AREAWALK SCRIPT
+        triggerAreaWalkScripts(scriptIndex.getDungeonAreaWalkScripts(dungeonName), slot);
+    }
+
+    /**
+     * Remove a player that walked out of their dungeon's boundaries from the party.
+     * @param player Player that walked out.
+     * @param dungeon Dungeon the player is a part of.
+     */
+    private void walkOutOfDungeon(Player player, LoadedDungeon dungeon) {
+        if (dungeon.isCleared()) {
+            // DUNGEON IS CLEARED AND PLAYER MOVED OUT OF BOUNDS, JUST REMOVE THEM FROM ACTIVE PLAYERS,
+            // NO PENALTY NEEDED. INFORM ALL CURRENT PARTY MEMBERS TOO.
+            dungeon.messageParty(
+                String.format("%s%s %shas walked out of dungeon boundaries and left the party.",
+                ChatColor.GOLD, player.getName(), ChatColor.YELLOW));
+            AppStatus.getScriptManager().startScript(DungeonScript.ON_PLAYER_RESET, ScriptType.Dungeon, player);
+            dungeon.removePlayerFromParty(player);
+            dungeon.resetCheck();
+            return;
+        }
+        if (!dungeon.isActive()) {
+            // DUNGEON ISN'T ACTIVE AND PLAYER MOVED OUT OF BOUNDS, JUST REMOVE THEM FROM ACTIVE PLAYERS
+            // NO PENALTY NEEDED. INFORM ALL CURRENT PARTY MEMBERS TOO.
+            dungeon.messageParty(
+                String.format("%s%s %shas walked out of dungeon boundaries and left the party.",
+                ChatColor.GOLD, player.getName(), ChatColor.YELLOW));
+            dungeon.removePlayerFromParty(player);
+            return;
+        }
+        // PLAYER IS ALIVE IN A ACTIVE DUNGEON PARTY THAT HASN'T BEEN CLEARED YET
+        // EFFECTIVELY THE SAME AS LEAVING
+        dungeon.messageParty(
+            String.format("%s%s %shas walked out of dungeon boundaries and abandoned the party.",
+            ChatColor.GOLD, player.getName(), ChatColor.RED));
+
+        // RUN DUNGEON SPECIFIC RESET SCRIPTS HERE (RESET HEALTH CHANGES, POTION EFFECTS, ETC)
+        AppStatus.getScriptManager().startScript(DungeonScript.ON_PLAYER_RESET, ScriptType.Dungeon, player);
+        AppStatus.getScriptManager().startScript(DungeonScript.ON_PARTY_MEMBER_QUIT, ScriptType.Dungeon, player);
+
+        // MODIFY PLAYER TYPE IN DUNGEON PARTY TO BE "QUITTER"
+        dungeon.modifyPlayerState(player, PlayerState.Quitter);
+
+        // REMOVE THEM FROM activePlayers
+        AppStatus.getActivePlayers().remove(player.getUniqueId());
+
+        // CHECK IF WE SHOULD RESET THE DUNGEON
+        dungeon.resetCheck();
+    }
+
+    /**
+     * Start the AreaWalk scripts of every area the player has entered or exited.
+     * Only areas in the same chunk as the player's previous or current block are checked.
+     * @param areas AreaWalk script regions of the player's dungeon or world.
+     * @param slot Player's movement this tick.
+     */
+    private void triggerAreaWalkScripts(RegionGrid<String> areas, Slot slot) {
+        if (areas.isEmpty()) {
+            return;
+        }
+
+        // AREAS THE PLAYER EXITED CONTAIN THE PREVIOUS BLOCK, SO THEY ARE IN THE PREVIOUS BLOCK'S CHUNK
+        areas.forEachCandidate(slot.fromX, slot.fromZ, area -> {
+            if (area.getRegion().contains(slot.fromX, slot.fromY, slot.fromZ)
+                && !area.getRegion().contains(slot.toX, slot.toY, slot.toZ)) {
+                AppStatus.getScriptManager().startScript(area.getValue(), ScriptType.AreaWalk, slot.player, "_exit");
+            }
+        });
+
+        // AREAS THE PLAYER ENTERED CONTAIN THE CURRENT BLOCK, SO THEY ARE IN THE CURRENT BLOCK'S CHUNK
+        areas.forEachCandidate(slot.toX, slot.toZ, area -> {
+            if (!area.getRegion().contains(slot.fromX, slot.fromY, slot.fromZ)
+                && area.getRegion().contains(slot.toX, slot.toY, slot.toZ)) {
+                AppStatus.getScriptManager().startScript(area.getValue(), ScriptType.AreaWalk, slot.player, "_enter");
+            }
+        });
+    }
+
+    /**
+     * A player's movement since the last tick, kept as block coordinates.
+     * Slots are reused every tick, so recording a move doesn't allocate anything.
+     */
+    static final class Slot {
+        private Player player;
+        private String worldName;
+        private int fromX;
+        private int fromY;
+        private int fromZ;
+        private int toX;
+        private int toY;
+        private int toZ;
+        private boolean pending;
+
+        @Override
+        public String toString() {
+            return String.format("%s %s (%d, %d, %d) -> (%d, %d, %d)", player.getName(), worldName,
+                fromX, fromY, fromZ, toX, toY, toZ);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.expugn.dungeons.dungeons;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import io.github.expugn.dungeons.AppStatus;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * How many times a player cleared a dungeon on a single day.
+ * Only the latest day is kept, a clear on a new day starts the count over.
+ * Days are decided by the plugin's {@link ResetClock}.
+ * Saved as {"day": epochDay, "count": count}. Dungeon files that still have the old list of clear times are read
+ * and converted when they are loaded.
+ * @author S'pugn
+ * @version 0.1
+ */
+@JsonAdapter(ClearRecord.Adapter.class)
+public final class ClearRecord {
+    private final long day;
+    private final int count;
+
+    /**
+     * Construct a new clear record.
+     * @param day Day of the clears, see {@link ResetClock#toDay(long)}.
+     * @param count Amount of clears on that day.
+     */
+    public ClearRecord(long day, int count) {
+        this.day = day;
+        this.count = count;
+    }
+
+    /**
+     * Get a new record with one more clear.
+     * @param clearDay Day of the new clear.
+     * @return New clear record, the count starts over if the day is different.
+     */
+    public ClearRecord add(long clearDay) {
+        return clearDay == day ? new ClearRecord(day, count + 1) : new ClearRecord(clearDay, 1);
+    }
+
+    public long getDay() {
+        return day;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%d)", LocalDate.ofEpochDay(day), count);
+    }
+
+    /**
+     * Reads and writes clear records, including the old list of clear times.
+     */
+    static final class Adapter extends TypeAdapter<ClearRecord> {
+        @Override
+        public void write(JsonWriter out, ClearRecord record) throws IOException {
+            if (record == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("day").value(record.day);
+            out.name("count").value(record.count);
+            out.endObject();
+        }
+
+        @Override
+        public ClearRecord read(JsonReader in) throws IOException {
+            JsonToken token = in.peek();
+            if (token == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            if (token == JsonToken.BEGIN_ARRAY) {
+                // OLD FORMAT, A LIST OF CLEAR TIMES (IN MILLIS) FROM THE SAME DAY
+                long lastClear = 0;
+                int clears = 0;
+                in.beginArray();
+                while (in.hasNext()) {
+                    lastClear = in.nextLong();
+                    clears++;
+                }
+                in.endArray();
+                return clears > 0 ? new ClearRecord(AppStatus.getResetClock().toDay(lastClear), clears) : null;
+            }
+
+            long day = 0;
+            int count = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if ("day".equals(name)) {
+                    day = in.nextLong();
+                } else if ("count".equals(name)) {
+                    count = in.nextInt();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ClearRecord(day, count);
+        }
+    }
+}
@@ -76,7 +76,7 @@ public class Dungeon {
             df.setBlockB(split[1]);
 
             // SAVE FILE
-            df.saveJSON(dungeonConfig);
+            df.writeJSON(dungeonConfig);
 
             this.config = df;
         }
@@ -111,6 +111,6 @@ public class Dungeon {
      * @return true if the player is in the area, false otherwise.
      */
     public boolean isPlayerInDungeonBoundaries(Player player) {
-        return AppUtils.isInsideArea(config.getBlockA(), config.getBlockB(), player.getLocation());
+        return config.getRegion().contains(player.getLocation());
     }
 }
@@ -1,20 +1,24 @@
 package io.github.expugn.dungeons.dungeons;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import io.github.expugn.dungeons.AppStatus;
 import io.github.expugn.dungeons.AppUtils;
+import io.github.expugn.dungeons.regions.Region;
+import io.github.expugn.dungeons.storage.SnapshotFormat;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.Reader;
-import java.text.SimpleDateFormat;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
@@ -24,10 +28,21 @@ import org.bukkit.entity.Player;
 /**
  * Manages a JSON file containing important dungeon information like
  * dungeon settings and permanent/persisting variables.
+ * The file can also be saved in a binary format instead, see {@link SnapshotFormat}.
+ * Saves are written in the background by {@link io.github.expugn.dungeons.storage.WriteBehind}, so many changes in
+ * a short time only rewrite the file once.
+ * Variables and cleared players are only read from the file the first time they are used, see
+ * {@link #getDungeonFile(File)}.
  * @author S'pugn
  * @version 0.1
  */
 public class DungeonFile {
+    private static final String VARIABLES = "variables";
+    private static final String CLEARED_PLAYERS = "clearedPlayers";
+    private static final Set<String> UNREAD_FIELDS = Set.of(VARIABLES, CLEARED_PLAYERS);
+    private static final Type VARIABLES_TYPE = new TypeToken<Map<String, Object>>() { }.getType();
+    private static final Type CLEARED_PLAYERS_TYPE = new TypeToken<Map<UUID, ClearRecord>>() { }.getType();
+
     // MAX AMOUNT OF PLAYERS THAT SHOULD BE IN THE DUNGEON AT A TIME
     private int maxParty;
 
@@ -54,15 +69,26 @@ public class DungeonFile {
     // (money_spent, hall_of_fame, etc)
     private Map<String, Object> variables;
 
-    // PLAYER UUIDS AND THE currentTimeMills WHEN THEY CLEARED THE DUNGEON
-    // USED FOR daily_clear
-    private Map<UUID, List<Long>> clearedPlayers;
+    // PLAYER UUIDS AND HOW MANY TIMES THEY CLEARED THE DUNGEON ON THEIR LATEST DAY
+    // USED FOR daily_clear, OLD DAYS ARE PRUNED
+    // CHANGED BY SCRIPT THREADS (CLEARS) AND THE MAIN THREAD (JOINS AND PRUNING), SO ALWAYS A ConcurrentHashMap
+    private Map<UUID, ClearRecord> clearedPlayers;
 
     // CURRENT PARTY, IF THERE IS A PARTY THAT EXISTS WHEN THE DUNGEON HAS LOADED
     // WE KNOW THAT IT PROBABLY WAS RESET DURING AN ACTIVE DUNGEON RUN
     // IF IT ISN'T EMPTY WE SHOULD ADD PLAYERS TO ResetHandler AND RESET DUNGEON
     private Map<UUID, PlayerState> party;
 
+    // DUNGEON BOUNDARIES MADE FROM blockA AND blockB, BUILT WHEN FIRST NEEDED (NOT SAVED)
+    private transient Region region;
+
+    // FILE THAT variables AND clearedPlayers ARE READ FROM THE FIRST TIME THEY ARE USED (NOT SAVED)
+    private transient File unreadFile;
+    private transient SnapshotFormat unreadFormat;
+    private transient volatile boolean variablesUnread;
+    private transient volatile boolean clearedPlayersUnread;
+    private final transient Lock unreadLock = new ReentrantLock();
+
     /**
      * Construct a new dungeon file.
      */
@@ -82,8 +108,11 @@ public class DungeonFile {
         this.startPosition = List.of(0, 0, 0, 0);  // [x, y, z, yaw]
         this.blockA = List.of(0, 0, 0);            // [x, y, z]
         this.blockB = List.of(0, 0, 0);            // [x, y, z]
+        this.region = null;
         this.variables = new HashMap<>();
-        this.clearedPlayers = new HashMap<>();
+        this.clearedPlayers = new ConcurrentHashMap<>();
+        this.variablesUnread = false;
+        this.clearedPlayersUnread = false;
         this.party = new HashMap<>();
     }
 
@@ -135,6 +164,14 @@ public class DungeonFile {
         return Bukkit.getServer().getWorld(worldName);
     }
 
+    /**
+     * Get the name of the world that the dungeon exists in, without looking the world up.
+     * @return Dungeon's world name, empty if it isn't defined.
+     */
+    public String getWorldName() {
+        return worldName;
+    }
+
     /**
      * Set the world that the dungeon exists in.
      * @param world World that the dungeon should exist in.
@@ -258,6 +295,7 @@ public class DungeonFile {
      */
     public void setBlockA(int x, int y, int z) {
         blockA = List.of(x, y, z);
+        region = null;
     }
 
     /**
@@ -266,6 +304,7 @@ public class DungeonFile {
      */
     public void setBlockA(Block block) {
         blockA = List.of(block.getX(), block.getY(), block.getZ());
+        region = null;
     }
 
     /**
@@ -274,6 +313,7 @@ public class DungeonFile {
      */
     public void setBlockA(String[] block) {
         blockA = List.of(Integer.parseInt(block[0]), Integer.parseInt(block[1]), Integer.parseInt(block[2]));
+        region = null;
     }
 
     /**
@@ -296,6 +336,7 @@ public class DungeonFile {
      */
     public void setBlockB(int x, int y, int z) {
         blockB = List.of(x, y, z);
+        region = null;
     }
 
     /**
@@ -304,6 +345,7 @@ public class DungeonFile {
      */
     public void setBlockB(Block block) {
         blockB = List.of(block.getX(), block.getY(), block.getZ());
+        region = null;
     }
 
     /**
@@ -312,6 +354,21 @@ public class DungeonFile {
      */
     public void setBlockB(String[] block) {
         blockB = List.of(Integer.parseInt(block[0]), Integer.parseInt(block[1]), Integer.parseInt(block[2]));
+        region = null;
+    }
+
+    /**
+     * Get the dungeon's boundaries, the area between BlockA and BlockB.
+     * Unlike {@link #getBlockA()} and {@link #getBlockB()}, this does not need to look up the dungeon's world.
+     * @return Region of the dungeon's boundaries.
+     */
+    public Region getRegion() {
+        Region r = region;
+        if (r == null) {
+            r = new Region(blockA.get(0), blockA.get(1), blockA.get(2), blockB.get(0), blockB.get(1), blockB.get(2));
+            region = r;
+        }
+        return r;
     }
 
     /**
@@ -350,7 +407,7 @@ public class DungeonFile {
      * @return Map of dungeon variables.
      */
     public Map<String, Object> getVariables() {
-        return this.variables;
+        return variables();
     }
 
     /**
@@ -359,7 +416,7 @@ public class DungeonFile {
      * @param value Object value to save.
      */
     public void setVariable(String variableName, Object value) {
-        this.variables.put(variableName, value);
+        variables().put(variableName, value);
     }
 
     /**
@@ -368,16 +425,16 @@ public class DungeonFile {
      * @return Value of given Key.
      */
     public Object getVariable(String variableName) {
-        return this.variables.get(variableName);
+        return variables().get(variableName);
     }
 
     /**
      * Get a Map of players who have cleared the dungeon
-     * and the timestamps that they cleared in.
+     * and how many times they cleared it on their latest day.
      * @return Map of cleared players.
      */
-    public Map<UUID, List<Long>> getClearedPlayers() {
-        return this.clearedPlayers;
+    public Map<UUID, ClearRecord> getClearedPlayers() {
+        return clearedPlayers();
     }
 
     /**
@@ -388,28 +445,25 @@ public class DungeonFile {
      * @param currentTimeMillis Time in Millis of when they cleared the dungeon.
      */
     public void addClearedPlayer(Player player, Long currentTimeMillis) {
-        UUID uuid = player.getUniqueId();
-
-        // MAKE A COPY OF THE PLAYERS CLEAR TIMES BECAUSE THE VARIABLE
-        // WOULD BE IMMUTABLE ON FIRST CREATION.
-        final List<Long> current = this.clearedPlayers.get(uuid) != null
-            ? new ArrayList<>(this.clearedPlayers.get(uuid))
-            : new ArrayList<>();
-        if (this.clearedPlayers.containsKey(uuid) && current.size() > 0) {
-            // THERE ARE ENTRIES IN HERE, CHECK LATEST IS FROM SAME DAY
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd");
-            Date currentDate = new Date(currentTimeMillis);
-            Date lastDate = new Date(current.get(current.size() - 1));
-            if (sdf.format(currentDate).equals(sdf.format(lastDate))) {
-                // DATE IS EQUAL, ADD TO LIST
-                current.add(currentTimeMillis);
-                this.clearedPlayers.put(uuid, current);
-                return;
-            }
-            // IF DATE IS NOT EQUAL, CLEAR LIST BEFORE ADDING
+        long day = AppStatus.getResetClock().toDay(currentTimeMillis);
+        clearedPlayers().merge(player.getUniqueId(), new ClearRecord(day, 1), (record, first) -> record.add(day));
+    }
+
+    /**
+     * Remove every cleared player whose latest clear was before today.
+     * Their daily clear count would start over anyway, so there's no need to keep them.
+     * Cleared players that haven't been read from the file yet are left alone until they are used.
+     * @return Amount of removed players.
+     */
+    public int pruneClearedPlayers() {
+        if (clearedPlayersUnread) {
+            // DON'T READ THEM JUST TO PRUNE THEM, canPlayerJoin IGNORES OLD RECORDS ANYWAY
+            return 0;
         }
-        // NO EXISTING ENTRIES FOR PLAYER OR DATE WAS NOT EQUAL, ADD
-        this.clearedPlayers.put(uuid, List.of(currentTimeMillis));
+        long today = AppStatus.getResetClock().today();
+        int size = this.clearedPlayers.size();
+        this.clearedPlayers.values().removeIf(record -> record.getDay() < today);
+        return size - this.clearedPlayers.size();
     }
 
     /**
@@ -417,7 +471,7 @@ public class DungeonFile {
      * @param player Player to delete their entry for.
      */
     public void removeClearedPlayer(Player player) {
-        this.clearedPlayers.remove(player.getUniqueId());
+        clearedPlayers().remove(player.getUniqueId());
     }
 
     /**
@@ -428,27 +482,111 @@ public class DungeonFile {
      * @return true if they can join, false otherwise.
      */
     public boolean canPlayerJoin(Player player) {
+        return canPlayerJoin(player.getUniqueId(), AppStatus.getResetClock().today());
+    }
+
+    /**
+     * Check which players have exceeded the dungeon's daily clear count, all at once.
+     * Like {@link #canPlayerJoin(Player)}, old clear counts may be reset so a file save may be necessary.
+     * @param players UUIDs of the players to check (a whole party).
+     * @return UUIDs of the players that can not join, empty if everyone can join.
+     */
+    public List<UUID> getPlayersOverDailyClear(Collection<UUID> players) {
+        if (dailyClear <= 0) {
+            // LET EVERYONE IN
+            return List.of();
+        }
+        long today = AppStatus.getResetClock().today();
+        List<UUID> overDailyClear = new ArrayList<>();
+        for (UUID uuid : players) {
+            if (!canPlayerJoin(uuid, today)) {
+                overDailyClear.add(uuid);
+            }
+        }
+        return overDailyClear;
+    }
+
+    private boolean canPlayerJoin(UUID uuid, long today) {
         if (dailyClear <= 0) {
             // LET PLAYER IN
             return true;
         }
-        UUID uuid = player.getUniqueId();
-        List<Long> current = this.clearedPlayers.get(uuid);
-        if (this.clearedPlayers.containsKey(uuid) && current.size() > 0) {
-            // THERE ARE ENTRIES IN HERE, CHECK LATEST IS FROM SAME DAY
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd");
-            Date currentDate = new Date(System.currentTimeMillis());
-            Date lastDate = new Date(current.get(current.size() - 1));
-            if (sdf.format(currentDate).equals(sdf.format(lastDate))) {
-                // DATE IS EQUAL
-                return current.size() < dailyClear;
-            }
-            // DATE IS NOT EQUAL, WE CAN CLEAR PLAYER'S EXISTING ENTRIES
-            this.clearedPlayers.remove(uuid);
+        ClearRecord record = clearedPlayers().get(uuid);
+        if (record == null) {
+            // PLAYER HASN'T CLEARED THE DUNGEON (OR WAS PRUNED)
+            return true;
+        }
+        if (record.getDay() == today) {
+            // LATEST CLEAR IS FROM TODAY
+            return record.getCount() < dailyClear;
         }
+        // LATEST CLEAR IS FROM A DIFFERENT DAY, WE CAN CLEAR PLAYER'S EXISTING ENTRY
+        // (UNLESS THE PLAYER CLEARED THE DUNGEON AGAIN IN THE MEANTIME)
+        clearedPlayers().remove(uuid, record);
         return true;
     }
 
+    /**
+     * Get the dungeon variables, reading them from the file the first time they are used.
+     */
+    private Map<String, Object> variables() {
+        if (variablesUnread) {
+            try {
+                unreadLock.lock();
+                if (variablesUnread) {
+                    Map<String, Object> read = readUnreadField(VARIABLES, VARIABLES_TYPE);
+                    if (read != null) {
+                        variables = read;
+                    }
+                    variablesUnread = false;
+                }
+            } finally {
+                unreadLock.unlock();
+            }
+        }
+        return variables;
+    }
+
+    /**
+     * Get the cleared players, reading them from the file the first time they are used.
+     */
+    private Map<UUID, ClearRecord> clearedPlayers() {
+        if (clearedPlayersUnread) {
+            try {
+                unreadLock.lock();
+                if (clearedPlayersUnread) {
+                    Map<UUID, ClearRecord> read = readUnreadField(CLEARED_PLAYERS, CLEARED_PLAYERS_TYPE);
+                    if (read != null) {
+                        clearedPlayers = toConcurrentMap(read);
+                    }
+                    clearedPlayersUnread = false;
+                }
+            } finally {
+                unreadLock.unlock();
+            }
+        }
+        return clearedPlayers;
+    }
+
+    /**
+     * Read a field that was skipped when the dungeon file was loaded.
+     * If it can't be read it stays unread, so the dungeon file is never saved without it.
+     */
+    private <T> T readUnreadField(String name, Type type) {
+        try {
+            return unreadFormat.readField(unreadFile, name, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Check if the variables or cleared players haven't been read from the file yet. Used by tests.
+     */
+    boolean hasUnreadFields() {
+        return variablesUnread || clearedPlayersUnread;
+    }
+
     /**
      * Save the dungeon file, given a dungeon name.
      * @param dungeonName Name of the dungeon to save this file to.
@@ -459,44 +597,90 @@ public class DungeonFile {
 
     /**
      * Save the dungeon file, given a file location.
+     * The file is marked as dirty and written on the next write-behind flush.
+     * It is saved in the configured {@link SnapshotFormat}, so config.json may be saved as config.bin instead.
      * @param file File of location to save dungeon file to.
      */
     public void saveJSON(File file) {
-        if (!file.exists()) {
-            // CREATE FILE IF IT DOESN'T EXIST
-            try {
-                file.createNewFile();
-            } catch (IOException e) {
-                e.printStackTrace();
-                return;
-            }
-        }
+        SnapshotFormat format = AppStatus.getSnapshotFormat();
+        AppStatus.getWriteBehind().markDirty(format.getFile(file), () -> serialize(format));
+    }
 
-        Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        try (FileWriter writer = new FileWriter(file)) {
-            gson.toJson(this, writer);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    /**
+     * Write the dungeon file right away, given a file location.
+     * Used when the file has to exist on disk before anything else happens (like when a dungeon is created).
+     * @param file File of location to save dungeon file to.
+     * @return true if the dungeon file was written.
+     */
+    public boolean writeJSON(File file) {
+        SnapshotFormat format = AppStatus.getSnapshotFormat();
+        return AppStatus.getWriteBehind().writeNow(format.getFile(file), () -> serialize(format));
+    }
+
+    /**
+     * Serialize the dungeon file, reading the variables and cleared players first so they are saved too.
+     * Used by {@link #saveJSON(File)}, {@link #writeJSON(File)} and tests.
+     * @param format Format to serialize to.
+     * @return File contents.
+     */
+    byte[] serialize(SnapshotFormat format) {
+        variables();
+        clearedPlayers();
+        return format.serialize(this);
     }
 
     /**
      * Get the dungeon file from a File.
+     * The latest save is read, whether it is JSON or binary.
+     * Variables and cleared players grow with every run and aren't needed to load a dungeon, so they are skipped and
+     * only read from the file the first time they are used. The file isn't written until they are read, so it still
+     * has them then.
      * @param file File pointing to the dungeon file.
-     * @return A DungeonFile object.
+     * @return A DungeonFile object, or null if it does not exist or could not be read.
      */
     public static DungeonFile getDungeonFile(File file) {
-        if (!file.exists()) {
-            // FILE DOES NOT EXIST
-            return null;
+        return getDungeonFile(file, AppStatus.getSnapshotFormat());
+    }
+
+    /**
+     * Get the dungeon file from a File, in a given format. Used by {@link #getDungeonFile(File)} and tests.
+     * @param file File pointing to the dungeon file.
+     * @param format Configured snapshot format.
+     * @return A DungeonFile object, or null if it does not exist or could not be read.
+     */
+    static DungeonFile getDungeonFile(File file, SnapshotFormat format) {
+        if (!format.isLatest(file)) {
+            // THE FILE HAS TO BE CONVERTED (OR DOESN'T EXIST), WHICH NEEDS ALL OF IT
+            DungeonFile dungeonFile = format.read(file, DungeonFile.class);
+            if (dungeonFile != null) {
+                dungeonFile.clearedPlayers = toConcurrentMap(dungeonFile.clearedPlayers);
+            }
+            return dungeonFile;
         }
 
-        Gson gson = new Gson();
-        try (Reader reader = new FileReader(file)) {
-            return gson.fromJson(reader, DungeonFile.class);
-        } catch (IOException e) {
-            e.printStackTrace();
+        DungeonFile dungeonFile = format.readWithout(file, DungeonFile.class, UNREAD_FIELDS);
+        if (dungeonFile != null) {
+            dungeonFile.unreadFile = format.getFile(file);
+            dungeonFile.unreadFormat = format;
+            dungeonFile.variablesUnread = true;
+            dungeonFile.clearedPlayersUnread = true;
+        }
+        return dungeonFile;
+    }
+
+    /**
+     * Move cleared players read by Gson into a ConcurrentHashMap.
+     * Gson creates its own map, and ConcurrentHashMap can't hold empty records so they are dropped.
+     */
+    private static Map<UUID, ClearRecord> toConcurrentMap(Map<UUID, ClearRecord> read) {
+        Map<UUID, ClearRecord> records = new ConcurrentHashMap<>();
+        if (read != null) {
+            read.forEach((uuid, record) -> {
+                if (uuid != null && record != null) {
+                    records.put(uuid, record);
+                }
+            });
         }
-        return null;
+        return records;
     }
 }
@@ -2,31 +2,43 @@ package io.github.expugn.dungeons.dungeons;
 
 import io.github.expugn.dungeons.AppStatus;
 import io.github.expugn.dungeons.AppUtils;
+import io.github.expugn.dungeons.MainThreadQueue;
+import io.github.expugn.dungeons.MainThreadQueue.Priority;
+import io.github.expugn.dungeons.scripts.ScriptLane;
 import io.github.expugn.dungeons.scripts.ScriptType;
+import java.io.File;
 import java.time.Duration;
-import java.util.Calendar;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
 
 /**
  * Manages a dungeon's party, temporary variables, and state.
  * A loaded dungeon is a {@link Dungeon} that is currently "active" on the server. Players can join these loaded
  * dungeons with the `/partymembers join` command when they are in the area.
+ * Scripts for a loaded dungeon run in its {@link ScriptLane}, one at a time and in the order they were started.
+ * Party changes while the dungeon is active are appended to its {@link PartyJournal} instead of rewriting the
+ * dungeon file.
+ * The party and temporary variables are changed by both the main thread and the dungeon's script lane, so they are
+ * kept in concurrent maps.
  * @author S'pugn
  * @version 0.2
  */
 public class LoadedDungeon {
     private Dungeon dungeon;
-    private boolean active;
-    private boolean clear;
-    private Map<UUID, PlayerState> party;
-    private Map<String, Object> tempVariables;
+    private volatile boolean active;
+    private volatile boolean clear;
+    private volatile Map<UUID, PlayerState> party;
+    private volatile Map<String, Object> tempVariables;
+    private final ScriptLane scriptLane;
+    private final PartyJournal partyJournal;
+    private final AtomicBoolean resetting;
 
     /**
      * Construct a new LoadedDungeon instance.
@@ -36,8 +48,29 @@ public class LoadedDungeon {
         this.dungeon = dungeon;
         this.active = false;
         this.clear = false;
-        this.party = new HashMap<>();
-        this.tempVariables = new HashMap<>();
+        this.party = new ConcurrentHashMap<>();
+        this.tempVariables = new ConcurrentHashMap<>();
+        this.scriptLane = AppStatus.getScriptExecutor().newLane(dungeon.getName());
+        this.partyJournal = new PartyJournal(AppUtils.getDungeonJournalFile(dungeon.getName()),
+            AppStatus.getWriteBehind().getFileWriter().isFsync());
+        this.resetting = new AtomicBoolean(false);
+    }
+
+    /**
+     * Recover the party the dungeon had when the server stopped.
+     * The party journal is replayed on top of the party saved in the dungeon file, then compacted if it had anything
+     * in it (even only a partly written record).
+     * Should only be called when the dungeon is loaded.
+     */
+    public void recoverParty() {
+        DungeonFile dungeonFile = dungeon.getDungeonFile();
+        if (dungeonFile == null) {
+            // DUNGEON FILE IS MISSING OR CORRUPT, THERE'S NOTHING TO REPLAY ON
+            return;
+        }
+        if (partyJournal.replay(dungeonFile.getParty())) {
+            compactPartyJournal();
+        }
     }
 
     public boolean isActive() {
@@ -52,8 +85,13 @@ public class LoadedDungeon {
         return dungeon;
     }
 
+    public ScriptLane getScriptLane() {
+        return scriptLane;
+    }
+
     /**
      * Force a dungeon to start. A dungeon with an empty party or one that is already active can not start.
+     * - Party members over the daily clear limit are removed from the party.
      * - Dungeon active state is set to true.
      * - All (alive) party members will be teleported to the start location.
      * - Party is saved in dungeon file in case of server shutdown.
@@ -65,6 +103,7 @@ public class LoadedDungeon {
 
     /**
      * Force a dungeon to start. A dungeon with an empty party or one that is already active can not start.
+     * - Party members over the daily clear limit are removed from the party.
      * - Dungeon active state is set to true.
      * - All (alive) party members will be teleported to the start location.
      * - Party is saved in dungeon file in case of server shutdown.
@@ -80,30 +119,65 @@ public class LoadedDungeon {
             // DUNGEON IS ALREADY ACTIVE
             return false;
         }
+        if (removePlayersOverDailyClear() && party.isEmpty()) {
+            // NOBODY IN THE PARTY CAN CLEAR THE DUNGEON TODAY
+            return false;
+        }
 
         // START DUNGEON AND TELEPORT PARTY MEMBERS TO START
         active = true;
         if (teleportPlayers) {
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    for (Map.Entry<UUID, PlayerState> entry : party.entrySet()) {
-                        // TELEPORT ONLY ALIVE PLAYERS
-                        if (entry.getValue().equals(PlayerState.Alive)) {
-                            AppUtils.uuidToPlayer(entry.getKey()).teleport(dungeon.getDungeonFile().getStartLocation());
-                        }
+            MainThreadQueue queue = AppStatus.getMainThreadQueue();
+            String source = String.format("%s: start", dungeon.getName());
+            queue.execute(Priority.HIGH, source, () -> {
+                for (Map.Entry<UUID, PlayerState> entry : party.entrySet()) {
+                    // TELEPORT ONLY ALIVE PLAYERS, ONE PLAYER PER ACTION SO BIG PARTIES CAN BE SPREAD OVER TICKS
+                    if (entry.getValue().equals(PlayerState.Alive)) {
+                        UUID uuid = entry.getKey();
+                        queue.execute(Priority.HIGH, source, () -> {
+                            Player player = AppUtils.uuidToPlayer(uuid);
+                            if (player != null) {
+                                player.teleport(dungeon.getDungeonFile().getStartLocation());
+                            }
+                        });
                     }
                 }
-            }.runTaskLater(AppStatus.getPlugin(), 0L);
+            });
         }
 
         // SAVE PARTY IN DUNGEON FILE
         dungeon.getDungeonFile().setParty(party);
-        dungeon.getDungeonFile().saveJSON(dungeon.getName());
+        for (Map.Entry<UUID, PlayerState> entry : party.entrySet()) {
+            partyJournal.set(entry.getKey(), entry.getValue());
+        }
+        compactPartyJournalIfNeeded();
 
         return true;
     }
 
+    /**
+     * Remove every party member who has reached the daily clear limit, checking the whole party at once.
+     * Players are checked when they join, but the limit can be lowered (or the party recovered after a restart)
+     * before the dungeon starts.
+     * @return true if anyone was removed.
+     */
+    private boolean removePlayersOverDailyClear() {
+        List<UUID> overDailyClear = dungeon.getDungeonFile().getPlayersOverDailyClear(party.keySet());
+        for (UUID uuid : overDailyClear) {
+            party.remove(uuid);
+            AppStatus.getActivePlayers().remove(uuid, dungeon.getName());
+            Player player = AppUtils.uuidToPlayer(uuid);
+            if (player != null) {
+                player.sendMessage(String.format("%sYou have achieved %s%s%s's daily clear limit %s",
+                    ChatColor.RED, ChatColor.GOLD, dungeon.getName(), ChatColor.RED,
+                    "and were removed from the party."));
+                messageParty(String.format("%s%s %shas reached the daily clear limit and was removed from the party.",
+                    ChatColor.GOLD, player.getName(), ChatColor.YELLOW));
+            }
+        }
+        return !overDailyClear.isEmpty();
+    }
+
     /**
      * Force a dungeon to stop.
      * @return true if the stop was successful, else false.
@@ -128,57 +202,109 @@ public class LoadedDungeon {
      * - Dungeon temporary variables will be reset.
      * - onDungeonReset will be called.
      * - Dungeon active and clear state will be reset.
+     * The reset is spread over ticks, resetting a dungeon that is already being reset does nothing.
      */
     public void reset() {
-        // RETURN ACTIVE PLAYERS TO SPAWN POINT
-        Location spawn = dungeon.getDungeonFile().getSpawnLocation();
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                for (Map.Entry<UUID, PlayerState> entry : party.entrySet()) {
-                    Map<UUID, String> activePlayers = AppStatus.getActivePlayers();
-                    // ONLY TELEPORT ALIVE PLAYERS
-                    if (entry.getValue().equals(PlayerState.Alive)) {
-                        Player player = AppUtils.uuidToPlayer(entry.getKey());
-                        player.sendMessage(String.format("%s%s %sis being reset, %s",
-                            ChatColor.GOLD, dungeon.getName(), ChatColor.YELLOW,
-                            "you have returned to the spawn location."));
-
-                        // TELEPORT PLAYER BACK TO SPAWN
-                        player.teleport(spawn);
-
-                        // RUN RESET SCRIPT ON PLAYER
-                        AppStatus.getScriptManager().startScript(DungeonScript.ON_PLAYER_RESET, ScriptType.Dungeon,
-                            player);
-                    }
+        if (!resetting.compareAndSet(false, true)) {
+            // DUNGEON IS ALREADY BEING RESET
+            return;
+        }
 
-                    if (activePlayers.get(entry.getKey()) == dungeon.getName()) {
-                        // PLAYER IS IN activePlayers AND ALSO ACTIVE IN THIS DUNGEON (POSSIBLY OFFLINE?)
-                        // REMOVE PLAYER FROM ACTIVE PLAYERS, THEIR RESET WILL BE HANDLED LATER
-                        activePlayers.remove(entry.getKey());
+        // RETURN ACTIVE PLAYERS TO SPAWN POINT
+        MainThreadQueue queue = AppStatus.getMainThreadQueue();
+        String source = String.format("%s: reset", dungeon.getName());
+        try {
+            Location spawn = dungeon.getDungeonFile().getSpawnLocation();
+            queue.execute(Priority.HIGH, source, () -> {
+                try {
+                    for (Map.Entry<UUID, PlayerState> entry : party.entrySet()) {
+                        // ONLY TELEPORT ALIVE PLAYERS, ONE PLAYER PER ACTION SO BIG PARTIES CAN BE SPREAD OVER TICKS
+                        if (entry.getValue().equals(PlayerState.Alive)) {
+                            UUID uuid = entry.getKey();
+                            queue.execute(Priority.HIGH, source, () -> resetPlayer(uuid, spawn));
+                        }
                     }
+                } finally {
+                    // THE PARTY IS CLEARED AFTER EVERY PLAYER HAS BEEN RESET, THE RESET SCRIPT STILL SEES THEM IN
+                    // THE DUNGEON. IT IS QUEUED EVEN IF SOMETHING WENT WRONG, OTHERWISE THE RESET WOULD NEVER FINISH
+                    queue.execute(Priority.HIGH, source, this::clearParty);
                 }
+            });
+        } catch (RuntimeException e) {
+            // THE RESET NEVER STARTED, SO IT CAN BE TRIED AGAIN
+            resetting.set(false);
+            throw e;
+        }
+
+        // RUN onDungeonReset SCRIPT TO DEAL WITH ANY PREVIOUS CHANGES
+        AppStatus.getScriptManager().startScript(DungeonScript.ON_DUNGEON_RESET, ScriptType.Dungeon, this);
+    }
 
-                // CLEAR PARTY
-                party = new HashMap<>();
+    /**
+     * Teleport a player back to the dungeon's spawn location and run the player reset script on them.
+     * The player is removed from active players in the same action, so their next move isn't handled as walking out
+     * of the dungeon while the rest of the party is still being reset.
+     * @param uuid UUID of the player.
+     * @param spawn Dungeon's spawn location.
+     */
+    private void resetPlayer(UUID uuid, Location spawn) {
+        Player player = AppUtils.uuidToPlayer(uuid);
+        if (!dungeon.getName().equals(AppStatus.getActivePlayers().get(uuid))) {
+            // PLAYER ALREADY LEFT THE DUNGEON WHILE IT WAS BEING RESET
+            return;
+        }
+        if (player == null) {
+            // PLAYER WENT OFFLINE WHILE THE DUNGEON WAS BEING RESET, THEIR RESET WILL BE HANDLED LATER
+            return;
+        }
+        player.sendMessage(String.format("%s%s %sis being reset, %s",
+            ChatColor.GOLD, dungeon.getName(), ChatColor.YELLOW,
+            "you have returned to the spawn location."));
 
-                // RESET TEMPORARY VARIABLES
-                resetTempVariables();
+        // TELEPORT PLAYER BACK TO SPAWN
+        player.teleport(spawn);
 
-                // MAKE DUNGEON INACTIVE
-                active = false;
+        // RUN RESET SCRIPT ON PLAYER (THE SCRIPT'S DUNGEON IS LOOKED UP HERE, BEFORE THE PLAYER IS REMOVED)
+        AppStatus.getScriptManager().startScript(DungeonScript.ON_PLAYER_RESET, ScriptType.Dungeon, player);
 
-                // MARK clear AS FALSE
-                clear = false;
+        // REMOVE PLAYER FROM ACTIVE PLAYERS, THEY ARE NO LONGER IN THE DUNGEON
+        AppStatus.getActivePlayers().remove(uuid, dungeon.getName());
+    }
 
-                // CLEAR PARTY IN DUNGEON FILE
-                dungeon.getDungeonFile().clearParty();
-                dungeon.getDungeonFile().saveJSON(dungeon.getName());
+    /**
+     * Last step of a reset, remove every party member from active players and clear the dungeon's state.
+     */
+    private void clearParty() {
+        try {
+            Map<UUID, String> activePlayers = AppStatus.getActivePlayers();
+            for (UUID uuid : party.keySet()) {
+                if (activePlayers.get(uuid) == dungeon.getName()) {
+                    // PLAYER IS IN activePlayers AND ALSO ACTIVE IN THIS DUNGEON (POSSIBLY OFFLINE?)
+                    // REMOVE PLAYER FROM ACTIVE PLAYERS, THEIR RESET WILL BE HANDLED LATER
+                    activePlayers.remove(uuid);
+                }
             }
-        }.runTaskLater(AppStatus.getPlugin(), 0L);
 
-        // RUN onDungeonReset SCRIPT TO DEAL WITH ANY PREVIOUS CHANGES
-        AppStatus.getScriptManager().startScript(DungeonScript.ON_DUNGEON_RESET, ScriptType.Dungeon, this);
+            // CLEAR PARTY
+            party = new ConcurrentHashMap<>();
+
+            // RESET TEMPORARY VARIABLES
+            resetTempVariables();
+
+            // MAKE DUNGEON INACTIVE
+            active = false;
+
+            // MARK clear AS FALSE
+            clear = false;
+
+            // CLEAR PARTY IN DUNGEON FILE
+            dungeon.getDungeonFile().clearParty();
+            partyJournal.clear();
+            compactPartyJournalIfNeeded();
+        } finally {
+            // THE DUNGEON CAN BE RESET AGAIN, EVEN IF CLEARING IT FAILED
+            resetting.set(false);
+        }
     }
 
     /**
@@ -265,13 +391,7 @@ public class LoadedDungeon {
 
         if (!dungeon.getDungeonFile().canPlayerJoin(player)) {
             // PLAYER ACHIEVED TOO MANY CLEARS TODAY
-            Calendar c = Calendar.getInstance();
-            c.add(Calendar.DAY_OF_MONTH, 1);
-            c.set(Calendar.HOUR_OF_DAY, 0);
-            c.set(Calendar.MINUTE, 0);
-            c.set(Calendar.SECOND, 0);
-            c.set(Calendar.MILLISECOND, 0);
-            Duration d = Duration.ofMillis(c.getTimeInMillis() - System.currentTimeMillis());
+            Duration d = AppStatus.getResetClock().untilReset();
 
             player.sendMessage(
                 String.format("%s%s%s%s%s%s%s%s %stime(s) a day.\nThis limit will reset in %s%s%s.",
@@ -388,9 +508,24 @@ public class LoadedDungeon {
     public void removePlayerFromParty(Player player) {
         AppStatus.getActivePlayers().remove(player.getUniqueId());
         party.remove(player.getUniqueId());
+        if (active) {
+            // PARTY IS SAVED IN THE DUNGEON FILE WHILE THE DUNGEON IS ACTIVE
+            partyJournal.remove(player.getUniqueId());
+            compactPartyJournalIfNeeded();
+        }
     }
 
+    /**
+     * Set a temporary variable, setting it to null removes it.
+     * @param variableName Name of the variable.
+     * @param value Value of the variable.
+     */
     public void setTempVariable(String variableName, Object value) {
+        if (value == null) {
+            // CONCURRENT MAPS DON'T ALLOW NULL VALUES, A MISSING VARIABLE IS ALREADY null
+            tempVariables.remove(variableName);
+            return;
+        }
         tempVariables.put(variableName, value);
     }
 
@@ -403,7 +538,7 @@ public class LoadedDungeon {
     }
 
     public void resetTempVariables() {
-        tempVariables = new HashMap<>();
+        tempVariables = new ConcurrentHashMap<>();
     }
 
     /**
@@ -449,7 +584,22 @@ public class LoadedDungeon {
 
         // UPDATE PARTY IN DUNGEON FILE
         dungeon.getDungeonFile().setParty(party);
-        dungeon.getDungeonFile().saveJSON(dungeon.getName());
+        partyJournal.set(uuid, playerState);
+        compactPartyJournalIfNeeded();
+    }
+
+    /**
+     * Save the party in the dungeon file and empty the party journal.
+     */
+    private void compactPartyJournal() {
+        File dungeonConfig = AppUtils.getDungeonConfigFile(dungeon.getName());
+        partyJournal.compact(() -> dungeon.getDungeonFile().writeJSON(dungeonConfig));
+    }
+
+    private void compactPartyJournalIfNeeded() {
+        if (partyJournal.needsCompaction()) {
+            compactPartyJournal();
+        }
     }
 
     /**
@@ -0,0 +1,205 @@
+package io.github.expugn.dungeons.dungeons;
+
+import io.github.expugn.dungeons.AppConstants;
+import io.github.expugn.dungeons.AppUtils;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+
+/**
+ * An append-only log of a dungeon party's state changes.
+ * Changing a party member's state only appends a small record to the journal instead of rewriting the whole
+ * dungeon file. When the journal gets too long it is compacted: the party is saved in the dungeon file and the
+ * journal is emptied. When a dungeon is loaded the journal is replayed on top of the dungeon file's party, so the
+ * party is exactly what it was before the server stopped.
+ * Every record is {@value #RECORD_SIZE} bytes: type (1), UUID (16) and player state (1).
+ * With fsync on every record is synced to disk before the state change returns, otherwise the last few records can
+ * be lost in a crash (the party goes back to an older state, but the journal is still readable).
+ * @author S'pugn
+ * @version 0.1
+ */
+public class PartyJournal {
+    private static final int RECORD_SIZE = 18;
+    private static final byte SET = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLEAR = 3;
+    private static final byte NO_STATE = -1;
+    private static final PlayerState[] STATES = PlayerState.values();
+    private final File file;
+    private final boolean fsync;
+    private final Lock lock;
+    private volatile int records;
+
+    /**
+     * Construct a new party journal.
+     * @param file Journal file, usually {@link AppUtils#getDungeonJournalFile(String)}.
+     * @param fsync true to sync every record to disk as it is appended.
+     */
+    public PartyJournal(File file, boolean fsync) {
+        this.file = file;
+        this.fsync = fsync;
+        this.lock = new ReentrantLock();
+        this.records = 0;
+    }
+
+    /**
+     * Record a party member's new state.
+     * @param uuid Party member's UUID.
+     * @param playerState Party member's new state.
+     */
+    public void set(UUID uuid, PlayerState playerState) {
+        append(SET, uuid, (byte) playerState.ordinal());
+    }
+
+    /**
+     * Record that a player was removed from the party.
+     * @param uuid Player's UUID.
+     */
+    public void remove(UUID uuid) {
+        append(REMOVE, uuid, NO_STATE);
+    }
+
+    /**
+     * Record that the party was cleared.
+     */
+    public void clear() {
+        append(CLEAR, new UUID(0L, 0L), NO_STATE);
+    }
+
+    /**
+     * Check if the journal is long enough that it should be compacted.
+     * @return true if the journal should be compacted.
+     */
+    public boolean needsCompaction() {
+        return records >= AppConstants.PARTY_JOURNAL_COMPACT_RECORDS;
+    }
+
+    /**
+     * Compact the journal.
+     * The snapshot (the dungeon file with the current party) must be saved to disk before this returns,
+     * the journal is only emptied if it was. Nothing can be appended while the journal is being compacted.
+     * @param saveSnapshot Saves the dungeon file, returns true if it is on disk.
+     * @return true if the journal was emptied, false if the snapshot could not be saved and the journal was kept.
+     */
+    public boolean compact(BooleanSupplier saveSnapshot) {
+        try {
+            lock.lock();
+            if (!saveSnapshot.getAsBoolean()) {
+                // THE JOURNAL IS STILL THE ONLY COPY OF THE PARTY, TRY AGAIN ON THE NEXT COMPACTION
+                AppUtils.consoleLog(Level.WARNING, String.format("Could not save a snapshot for %s, %s",
+                    file.getPath(), "keeping the journal."));
+                return false;
+            }
+            Files.deleteIfExists(file.toPath());
+            records = 0;
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Apply every record in the journal to a party.
+     * A record that was only partly written (the server stopped while appending) is ignored, and cut off the end of
+     * the journal so records appended after it are read correctly.
+     * @param party Party from the dungeon file, modified in place.
+     * @return true if the journal has anything in it (even only a partly written record), false if it is empty or
+     *     doesn't exist.
+     */
+    public boolean replay(Map<UUID, PlayerState> party) {
+        try {
+            lock.lock();
+            if (!file.exists()) {
+                records = 0;
+                return false;
+            }
+
+            byte[] data = Files.readAllBytes(file.toPath());
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            int applied = 0;
+            int validLength = 0;
+            while (buffer.remaining() >= RECORD_SIZE) {
+                byte type = buffer.get();
+                UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+                byte state = buffer.get();
+                if (type == SET && state >= 0 && state < STATES.length) {
+                    party.put(uuid, STATES[state]);
+                } else if (type == REMOVE) {
+                    party.remove(uuid);
+                } else if (type == CLEAR) {
+                    party.clear();
+                } else {
+                    // CORRUPT RECORD, NOTHING AFTER THIS CAN BE TRUSTED
+                    AppUtils.consoleLog(Level.WARNING, String.format("%s has a corrupt record, %s",
+                        file.getPath(), "ignoring the rest of the journal."));
+                    break;
+                }
+                applied++;
+                validLength = buffer.position();
+            }
+            if (validLength < data.length) {
+                // CUT OFF THE PARTLY WRITTEN OR CORRUPT RECORDS, NEW RECORDS WOULD BE APPENDED AFTER THEM OTHERWISE
+                AppUtils.consoleLog(Level.WARNING, String.format("Removing %d unreadable byte(s) from the end of %s.",
+                    data.length - validLength, file.getPath()));
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                    channel.truncate(validLength);
+                }
+            }
+            records = applied;
+            return data.length > 0;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the amount of records in the journal.
+     * @return Amount of records appended or replayed since the journal was last compacted.
+     */
+    public int getRecordCount() {
+        return records;
+    }
+
+    private void append(byte type, UUID uuid, byte state) {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        buffer.put(type);
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+        buffer.put(state);
+
+        buffer.flip();
+
+        try {
+            lock.lock();
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (fsync) {
+                    channel.force(false);
+                }
+            }
+            records++;
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
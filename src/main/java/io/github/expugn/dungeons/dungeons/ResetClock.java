@@ -0,0 +1,139 @@
+package io.github.expugn.dungeons.dungeons;
+
+import io.github.expugn.dungeons.AppUtils;
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.logging.Level;
+import org.bukkit.configuration.Configuration;
+
+/**
+ * Decides which "day" a point in time belongs to for daily clear limits.
+ * A day starts at the reset hour in the configured time zone instead of midnight in the server's time zone.
+ * The current day's start and end are cached, so checking a time within the current day doesn't allocate anything.
+ * @author S'pugn
+ * @version 0.1
+ */
+public final class ResetClock {
+    private static final String RESET_HOUR_KEY = "daily-clear.reset-hour";
+    private static final String TIMEZONE_KEY = "daily-clear.timezone";
+    private static final int HOURS_PER_DAY = 24;
+    private final Clock clock;
+    private final ZoneId zone;
+    private final int resetHour;
+    private volatile Window window;
+
+    /**
+     * Construct a new reset clock.
+     * @param clock Clock used to get the current time, a fixed clock can be given to test with a different time.
+     * @param zone Time zone the reset hour is in.
+     * @param resetHour Hour of the day (0-23) when a new day starts.
+     */
+    public ResetClock(Clock clock, ZoneId zone, int resetHour) {
+        if (resetHour < 0 || resetHour >= HOURS_PER_DAY) {
+            throw new IllegalArgumentException(String.format("Reset hour must be between 0 and 23: %d", resetHour));
+        }
+        this.clock = clock;
+        this.zone = zone;
+        this.resetHour = resetHour;
+    }
+
+    /**
+     * Create a reset clock from the plugin's config.yml.
+     * Invalid values are logged and replaced with their defaults (midnight, server time zone).
+     * @param config Plugin configuration.
+     * @return A new reset clock.
+     */
+    public static ResetClock fromConfig(Configuration config) {
+        int resetHour = config.getInt(RESET_HOUR_KEY, 0);
+        if (resetHour < 0 || resetHour >= HOURS_PER_DAY) {
+            AppUtils.consoleLog(Level.WARNING, String.format("%s must be between 0 and 23, using 0.", RESET_HOUR_KEY));
+            resetHour = 0;
+        }
+
+        ZoneId zone = ZoneId.systemDefault();
+        String timezone = config.getString(TIMEZONE_KEY, "");
+        if (timezone != null && !timezone.isEmpty()) {
+            try {
+                zone = ZoneId.of(timezone);
+            } catch (DateTimeException e) {
+                AppUtils.consoleLog(Level.WARNING, String.format("Invalid %s value \"%s\", using %s.",
+                    TIMEZONE_KEY, timezone, zone));
+            }
+        }
+        return new ResetClock(Clock.system(zone), zone, resetHour);
+    }
+
+    /**
+     * Get today's day.
+     * @return Epoch day of the current time.
+     */
+    public long today() {
+        return toDay(clock.millis());
+    }
+
+    /**
+     * Get the day of a point in time.
+     * @param millis Time in millis.
+     * @return Epoch day of the time, shifted by the reset hour.
+     */
+    public long toDay(long millis) {
+        return getWindow(millis).day;
+    }
+
+    /**
+     * Get the time left until the next reset.
+     * @return Duration until the current day ends.
+     */
+    public Duration untilReset() {
+        long now = clock.millis();
+        return Duration.ofMillis(getWindow(now).end - now);
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    public int getResetHour() {
+        return resetHour;
+    }
+
+    private Window getWindow(long millis) {
+        Window w = window;
+        if (w != null && millis >= w.start && millis < w.end) {
+            // SAME DAY AS LAST TIME
+            return w;
+        }
+
+        LocalDate day = Instant.ofEpochMilli(millis).atZone(zone).toLocalDateTime().minusHours(resetHour)
+            .toLocalDate();
+        LocalTime reset = LocalTime.of(resetHour, 0);
+        Window computed = new Window(day.toEpochDay(),
+            day.atTime(reset).atZone(zone).toInstant().toEpochMilli(),
+            day.plusDays(1).atTime(reset).atZone(zone).toInstant().toEpochMilli());
+        if (w == null || computed.day >= w.day) {
+            // ONLY CACHE THE LATEST DAY, OLD TIMES (FROM FILES) SHOULDN'T REPLACE TODAY
+            window = computed;
+        }
+        return computed;
+    }
+
+    /**
+     * A day and the time it starts (inclusive) and ends (exclusive).
+     */
+    private static final class Window {
+        private final long day;
+        private final long start;
+        private final long end;
+
+        Window(long day, long start, long end) {
+            this.day = day;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
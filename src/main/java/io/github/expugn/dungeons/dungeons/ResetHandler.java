@@ -1,13 +1,9 @@
 package io.github.expugn.dungeons.dungeons;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import io.github.expugn.dungeons.AppStatus;
 import io.github.expugn.dungeons.AppUtils;
+import io.github.expugn.dungeons.storage.SnapshotFormat;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.Reader;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,17 +32,12 @@ public class ResetHandler {
      * If the reset file does not exist a new one will be created.
      */
     public static ResetHandler getResetHandler() {
-        if (!RESET_FILE.exists()) {
-            // FILE DOES NOT EXIST
-            return new ResetHandler();
-        }
-
-        Gson gson = new Gson();
-        try (Reader reader = new FileReader(RESET_FILE)) {
-            return gson.fromJson(reader, ResetHandler.class);
-        } catch (IOException e) {
-            e.printStackTrace();
+        // FILE MAY BE JSON OR BINARY, WHICHEVER WAS SAVED LAST
+        ResetHandler resetHandler = AppStatus.getSnapshotFormat().read(RESET_FILE, ResetHandler.class);
+        if (resetHandler != null) {
+            return resetHandler;
         }
+        // FILE DOES NOT EXIST, COULD NOT BE READ OR IS CORRUPT
         return new ResetHandler();
     }
 
@@ -97,23 +88,11 @@ public class ResetHandler {
     /**
      * Save the reset handler file.
      * This will also create a file if it doesn't exist yet.
+     * The file is written right away (not write-behind), offline players must not be forgotten after a crash.
+     * It is saved in the configured {@link SnapshotFormat}, so reset.json may be saved as reset.bin instead.
      */
     public void save() {
-        if (!RESET_FILE.exists()) {
-            // CREATE FILE IF IT DOESN'T EXIST
-            try {
-                RESET_FILE.createNewFile();
-            } catch (IOException e) {
-                e.printStackTrace();
-                return;
-            }
-        }
-
-        Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        try (FileWriter writer = new FileWriter(RESET_FILE)) {
-            gson.toJson(this, writer);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        SnapshotFormat format = AppStatus.getSnapshotFormat();
+        AppStatus.getWriteBehind().writeNow(format.getFile(RESET_FILE), () -> format.serialize(this));
     }
 }
@@ -0,0 +1,150 @@
+package io.github.expugn.dungeons.regions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An immutable set of chunks that have something in them, used to quickly skip events where nothing can happen.
+ * Chunks are kept in an open addressing table of primitive longs, so checking a block doesn't allocate anything and
+ * only takes a few array reads. Regions that cover too many chunks are kept as chunk ranges that are always checked.
+ * @author S'pugn
+ * @version 0.1
+ */
+public final class ChunkFilter {
+    private static final int CHUNK_SHIFT = 4;
+    private static final int CHUNK_Z_BITS = 32;
+    private static final long CHUNK_Z_MASK = 0xFFFFFFFFL;
+    private static final int MAX_EXPANDED_CHUNKS = 256;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final int HASH_SHIFT = 32;
+    private static final int RANGE_FIELDS = 4; // MIN CHUNK X, MAX CHUNK X, MIN CHUNK Z, MAX CHUNK Z
+    private static final int RANGE_MAX_X = 1;
+    private static final int RANGE_MIN_Z = 2;
+    private static final int RANGE_MAX_Z = 3;
+    // NO CHUNK INSIDE A WORLD'S BORDER HAS THIS KEY
+    private static final long FREE = Long.MIN_VALUE;
+    private static final ChunkFilter EMPTY = new ChunkFilter(Collections.emptySet(), Collections.emptyList());
+    private final long[] table;
+    private final int mask;
+    private final int[] ranges;
+    private final boolean empty;
+
+    /**
+     * Construct a new chunk filter.
+     * @param chunkKeys Chunks that should pass the filter, see {@link #getChunkKey(int, int)}.
+     * @param regions Regions whose chunks should pass the filter.
+     */
+    public ChunkFilter(Collection<Long> chunkKeys, Collection<Region> regions) {
+        Set<Long> chunks = new HashSet<>(chunkKeys);
+        List<Region> largeRegions = new ArrayList<>();
+        for (Region r : regions) {
+            int minChunkX = r.getMinX() >> CHUNK_SHIFT;
+            int maxChunkX = r.getMaxX() >> CHUNK_SHIFT;
+            int minChunkZ = r.getMinZ() >> CHUNK_SHIFT;
+            int maxChunkZ = r.getMaxZ() >> CHUNK_SHIFT;
+            long chunkCount = (long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1);
+            if (chunkCount > MAX_EXPANDED_CHUNKS) {
+                // REGION IS TOO BIG TO EXPAND, ALWAYS CHECK ITS RANGE INSTEAD
+                largeRegions.add(r);
+                continue;
+            }
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                    chunks.add(chunkKey(chunkX, chunkZ));
+                }
+            }
+        }
+
+        // KEEP THE TABLE AT MOST HALF FULL SO LOOKUPS FOR MISSING CHUNKS STOP QUICKLY
+        int capacity = 2;
+        while (capacity < chunks.size() * 2) {
+            capacity <<= 1;
+        }
+        this.table = new long[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(table, FREE);
+        for (long key : chunks) {
+            int i = index(key);
+            while (table[i] != FREE && table[i] != key) {
+                i = (i + 1) & mask;
+            }
+            table[i] = key;
+        }
+
+        this.ranges = new int[largeRegions.size() * RANGE_FIELDS];
+        for (int i = 0; i < largeRegions.size(); i++) {
+            Region r = largeRegions.get(i);
+            ranges[i * RANGE_FIELDS] = r.getMinX() >> CHUNK_SHIFT;
+            ranges[i * RANGE_FIELDS + RANGE_MAX_X] = r.getMaxX() >> CHUNK_SHIFT;
+            ranges[i * RANGE_FIELDS + RANGE_MIN_Z] = r.getMinZ() >> CHUNK_SHIFT;
+            ranges[i * RANGE_FIELDS + RANGE_MAX_Z] = r.getMaxZ() >> CHUNK_SHIFT;
+        }
+        this.empty = chunks.isEmpty() && largeRegions.isEmpty();
+    }
+
+    /**
+     * Get a chunk filter that nothing passes.
+     * @return An empty chunk filter.
+     */
+    public static ChunkFilter empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Get the key of the chunk a block is in.
+     * @param x Block X coordinate.
+     * @param z Block Z coordinate.
+     * @return Chunk key.
+     */
+    public static long getChunkKey(int x, int z) {
+        return chunkKey(x >> CHUNK_SHIFT, z >> CHUNK_SHIFT);
+    }
+
+    /**
+     * Check if a block is in a chunk that passes the filter.
+     * @param x Block X coordinate.
+     * @param z Block Z coordinate.
+     * @return true if the block's chunk has something in it, false if nothing can happen in that chunk.
+     */
+    public boolean contains(int x, int z) {
+        int chunkX = x >> CHUNK_SHIFT;
+        int chunkZ = z >> CHUNK_SHIFT;
+        long key = chunkKey(chunkX, chunkZ);
+        for (int i = index(key); table[i] != FREE; i = (i + 1) & mask) {
+            if (table[i] == key) {
+                return true;
+            }
+        }
+        for (int i = 0; i < ranges.length; i += RANGE_FIELDS) {
+            if (chunkX >= ranges[i] && chunkX <= ranges[i + RANGE_MAX_X]
+                && chunkZ >= ranges[i + RANGE_MIN_Z] && chunkZ <= ranges[i + RANGE_MAX_Z]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Get the size of the chunk table. Used by tests.
+     */
+    int getCapacity() {
+        return table.length;
+    }
+
+    private int index(long key) {
+        return (int) ((key * HASH_MULTIPLIER) >>> HASH_SHIFT) & mask;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << CHUNK_Z_BITS) | (chunkZ & CHUNK_Z_MASK);
+    }
+}
@@ -0,0 +1,126 @@
+package io.github.expugn.dungeons.regions;
+
+import org.bukkit.Location;
+
+/**
+ * An immutable, block aligned, bounding box.
+ * Both corners are inclusive, so a region from (0, 0, 0) to (0, 0, 0) contains a single block.
+ * @author S'pugn
+ * @version 0.1
+ */
+public final class Region {
+    private static final int COORDINATES = 3;
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int maxX;
+    private final int maxY;
+    private final int maxZ;
+
+    /**
+     * Construct a region from two corners.
+     * The corners can be given in any order.
+     */
+    public Region(int x1, int y1, int z1, int x2, int y2, int z2) {
+        this.minX = Math.min(x1, x2);
+        this.minY = Math.min(y1, y2);
+        this.minZ = Math.min(z1, z2);
+        this.maxX = Math.max(x1, x2);
+        this.maxY = Math.max(y1, y2);
+        this.maxZ = Math.max(z1, z2);
+    }
+
+    /**
+     * Parse an area string (x1_y1_z1~x2_y2_z2) into a region.
+     * @param areaString Area string (x1_y1_z1~x2_y2_z2).
+     * @return Region of the area string.
+     * @throws IllegalArgumentException If the area string is malformed.
+     */
+    public static Region parse(String areaString) {
+        String[] area = areaString.split("~");
+        if (area.length != 2) {
+            throw new IllegalArgumentException(String.format("Malformed area string: %s", areaString));
+        }
+        String[] blockA = area[0].split("_");
+        String[] blockB = area[1].split("_");
+        if (blockA.length != COORDINATES || blockB.length != COORDINATES) {
+            throw new IllegalArgumentException(String.format("Malformed area string: %s", areaString));
+        }
+        return new Region(Integer.parseInt(blockA[0]), Integer.parseInt(blockA[1]), Integer.parseInt(blockA[2]),
+            Integer.parseInt(blockB[0]), Integer.parseInt(blockB[1]), Integer.parseInt(blockB[2]));
+    }
+
+    /**
+     * Check if a block is inside the region.
+     * @return true if the block is inside the region, false otherwise.
+     */
+    public boolean contains(int x, int y, int z) {
+        return x >= minX && x <= maxX
+            && y >= minY && y <= maxY
+            && z >= minZ && z <= maxZ;
+    }
+
+    /**
+     * Check if a location's block is inside the region.
+     * The location's world is not checked.
+     * @param location Location to check.
+     * @return true if the location is inside the region, false otherwise.
+     */
+    public boolean contains(Location location) {
+        return contains(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getMinZ() {
+        return minZ;
+    }
+
+    public int getMaxX() {
+        return maxX;
+    }
+
+    public int getMaxY() {
+        return maxY;
+    }
+
+    public int getMaxZ() {
+        return maxZ;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Region)) {
+            return false;
+        }
+        Region region = (Region) o;
+        return minX == region.minX && minY == region.minY && minZ == region.minZ
+            && maxX == region.maxX && maxY == region.maxY && maxZ == region.maxZ;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = minX;
+        result = prime * result + minY;
+        result = prime * result + minZ;
+        result = prime * result + maxX;
+        result = prime * result + maxY;
+        result = prime * result + maxZ;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("(%d, %d, %d) ~ (%d, %d, %d)", minX, minY, minZ, maxX, maxY, maxZ);
+    }
+}
@@ -0,0 +1,148 @@
+package io.github.expugn.dungeons.regions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * An immutable spatial index of regions, bucketed by the chunks they cover.
+ * Looking up the regions near a block only has to look at a single chunk's bucket, instead of every region.
+ * Regions that cover too many chunks are kept in a separate list that is always checked.
+ * @param <T> Value attached to every region.
+ * @author S'pugn
+ * @version 0.1
+ */
+public final class RegionGrid<T> {
+    private static final int CHUNK_SHIFT = 4;
+    private static final int CHUNK_Z_BITS = 32;
+    private static final long CHUNK_Z_MASK = 0xFFFFFFFFL;
+    private static final int MAX_BUCKETED_CHUNKS = 256;
+    private static final RegionGrid<?> EMPTY = new RegionGrid<>(Collections.emptyMap());
+    private final Map<Long, List<Entry<T>>> chunks;
+    private final List<Entry<T>> large;
+    private final int size;
+
+    /**
+     * Construct a new region grid.
+     * @param regions Values and the region they cover.
+     */
+    public RegionGrid(Map<T, Region> regions) {
+        Map<Long, List<Entry<T>>> buckets = new HashMap<>();
+        List<Entry<T>> largeRegions = new ArrayList<>();
+        for (Map.Entry<T, Region> region : regions.entrySet()) {
+            Entry<T> entry = new Entry<>(region.getValue(), region.getKey());
+            Region r = entry.region;
+            int minChunkX = r.getMinX() >> CHUNK_SHIFT;
+            int maxChunkX = r.getMaxX() >> CHUNK_SHIFT;
+            int minChunkZ = r.getMinZ() >> CHUNK_SHIFT;
+            int maxChunkZ = r.getMaxZ() >> CHUNK_SHIFT;
+            long chunkCount = (long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1);
+            if (chunkCount > MAX_BUCKETED_CHUNKS) {
+                // REGION IS TOO BIG TO BUCKET, ALWAYS CHECK IT INSTEAD
+                largeRegions.add(entry);
+                continue;
+            }
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                    buckets.computeIfAbsent(chunkKey(chunkX, chunkZ), k -> new ArrayList<>()).add(entry);
+                }
+            }
+        }
+        this.chunks = buckets;
+        this.large = largeRegions;
+        this.size = regions.size();
+    }
+
+    /**
+     * Get a region grid with no regions.
+     * @param <T> Value attached to every region.
+     * @return An empty region grid.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> RegionGrid<T> empty() {
+        return (RegionGrid<T>) EMPTY;
+    }
+
+    /**
+     * Go through every region that may contain a block.
+     * Regions still need to be checked with {@link Region#contains}, they are only in the same chunk as the block.
+     * @param x Block X coordinate.
+     * @param z Block Z coordinate.
+     * @param action Action to run for every candidate region.
+     */
+    public void forEachCandidate(int x, int z, Consumer<Entry<T>> action) {
+        List<Entry<T>> bucket = chunks.get(chunkKey(x >> CHUNK_SHIFT, z >> CHUNK_SHIFT));
+        if (bucket != null) {
+            for (Entry<T> entry : bucket) {
+                action.accept(entry);
+            }
+        }
+        for (Entry<T> entry : large) {
+            action.accept(entry);
+        }
+    }
+
+    /**
+     * Find the first region that contains a block and whose value passes a filter.
+     * Unlike {@link #forEachCandidate}, this doesn't allocate anything, so it can be used for very frequent events.
+     * @param x Block X coordinate.
+     * @param y Block Y coordinate.
+     * @param z Block Z coordinate.
+     * @param filter Filter the region's value must pass.
+     * @return Value of the region, or null if no region contains the block.
+     */
+    public T find(int x, int y, int z, Predicate<T> filter) {
+        List<Entry<T>> bucket = chunks.get(chunkKey(x >> CHUNK_SHIFT, z >> CHUNK_SHIFT));
+        if (bucket != null) {
+            for (Entry<T> entry : bucket) {
+                if (entry.region.contains(x, y, z) && filter.test(entry.value)) {
+                    return entry.value;
+                }
+            }
+        }
+        for (Entry<T> entry : large) {
+            if (entry.region.contains(x, y, z) && filter.test(entry.value)) {
+                return entry.value;
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << CHUNK_Z_BITS) | (chunkZ & CHUNK_Z_MASK);
+    }
+
+    /**
+     * A region and the value attached to it.
+     * @param <T> Value attached to the region.
+     */
+    public static final class Entry<T> {
+        private final Region region;
+        private final T value;
+
+        Entry(Region region, T value) {
+            this.region = region;
+            this.value = value;
+        }
+
+        public Region getRegion() {
+            return region;
+        }
+
+        public T getValue() {
+            return value;
+        }
+    }
+}
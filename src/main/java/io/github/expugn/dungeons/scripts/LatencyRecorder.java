@@ -0,0 +1,67 @@
+package io.github.expugn.dungeons.scripts;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the most recent latency samples in a ring buffer so percentiles can be calculated.
+ * Recording a sample does not allocate or lock, so it can be done from any thread.
+ * @author S'pugn
+ * @version 0.1
+ */
+public class LatencyRecorder {
+    private static final double PERCENT = 100.0;
+    private final AtomicLongArray samples;
+    private final AtomicLong count;
+
+    /**
+     * Construct a new latency recorder.
+     * @param capacity Amount of recent samples to keep.
+     */
+    public LatencyRecorder(int capacity) {
+        this.samples = new AtomicLongArray(capacity);
+        this.count = new AtomicLong();
+    }
+
+    /**
+     * Record a latency sample.
+     * @param nanos Latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        long index = count.getAndIncrement();
+        samples.set((int) (index % samples.length()), nanos);
+    }
+
+    /**
+     * Get the total amount of samples that have been recorded, including ones that are no longer kept.
+     * @return Amount of recorded samples.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Calculate percentiles from the recent samples.
+     * @param percentiles Percentiles to calculate (50, 95, 99, etc).
+     * @return Latency in nanoseconds of each percentile, 0 if there are no samples.
+     */
+    public long[] getPercentiles(double... percentiles) {
+        int size = (int) Math.min(count.get(), samples.length());
+        long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+
+        long[] result = new long[percentiles.length];
+        if (size == 0) {
+            return result;
+        }
+        for (int i = 0; i < percentiles.length; i++) {
+            int index = (int) Math.ceil(percentiles[i] / PERCENT * size) - 1;
+            result[i] = sorted[Math.max(0, Math.min(size - 1, index))];
+        }
+        return result;
+    }
+}
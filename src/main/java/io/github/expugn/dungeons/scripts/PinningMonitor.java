@@ -0,0 +1,89 @@
+package io.github.expugn.dungeons.scripts;
+
+import io.github.expugn.dungeons.AppUtils;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Reports virtual threads that were pinned to their carrier thread while running scripts.
+ * A virtual thread is pinned when it blocks inside a synchronized block or native code, which stops other virtual
+ * threads from using the carrier thread. Pinned threads are found with the JDK Flight Recorder's
+ * "jdk.VirtualThreadPinned" event, each place a script was pinned at is only logged once.
+ * @author S'pugn
+ * @version 0.1
+ */
+public class PinningMonitor {
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String PLUGIN_PACKAGE = "io.github.expugn.dungeons";
+    private static final int MAX_REPORTED_LOCATIONS = 64;
+    private final RecordingStream recordingStream;
+    private final Set<String> reportedLocations;
+    private final LongAdder pinnedCount;
+
+    /**
+     * Start monitoring for pinned virtual threads.
+     * @param threshold Pins shorter than this are ignored.
+     */
+    public PinningMonitor(Duration threshold) {
+        this.reportedLocations = ConcurrentHashMap.newKeySet();
+        this.pinnedCount = new LongAdder();
+        this.recordingStream = new RecordingStream();
+        this.recordingStream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        this.recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        this.recordingStream.startAsync();
+    }
+
+    /**
+     * Stop monitoring.
+     */
+    public void close() {
+        recordingStream.close();
+    }
+
+    /**
+     * Get how many times a virtual thread has been pinned for longer than the threshold.
+     * @return Amount of pinned events.
+     */
+    public long getPinnedCount() {
+        return pinnedCount.sum();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedCount.increment();
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return;
+        }
+
+        // TOP FRAME IS WHERE THE THREAD BLOCKED, PLUGIN FRAME IS THE CODE THAT LED THERE
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        String blockedAt = describe(frames.get(0));
+        String calledFrom = frames.stream()
+            .filter(f -> f.isJavaFrame() && f.getMethod().getType().getName().startsWith(PLUGIN_PACKAGE))
+            .findFirst()
+            .map(PinningMonitor::describe)
+            .orElse("unknown");
+        String location = String.format("%s <- %s", blockedAt, calledFrom);
+        if (reportedLocations.size() >= MAX_REPORTED_LOCATIONS || !reportedLocations.add(location)) {
+            // ALREADY REPORTED, DON'T SPAM THE CONSOLE
+            return;
+        }
+        AppUtils.consoleLog(Level.WARNING, String.format(
+            "Virtual thread was pinned for %d ms at %s (called from %s). %s",
+            event.getDuration().toMillis(), blockedAt, calledFrom,
+            "Avoid blocking inside synchronized blocks in scripts."));
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return String.format("%s.%s:%d", frame.getMethod().getType().getName(), frame.getMethod().getName(),
+            frame.getLineNumber());
+    }
+}
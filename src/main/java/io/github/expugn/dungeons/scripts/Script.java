@@ -5,6 +5,7 @@ import io.github.expugn.dungeons.App;
 import io.github.expugn.dungeons.dungeons.LoadedDungeon;
 import io.github.expugn.dungeons.dungeons.PlayerState;
 import io.github.expugn.dungeons.itemdrop.ItemDrop;
+import io.github.expugn.dungeons.storage.MappedStore;
 import java.util.Map;
 import java.util.UUID;
 import org.bukkit.Location;
@@ -93,6 +94,27 @@ public interface Script {
      */
     World getDungeonWorld(LoadedDungeon dungeon);
 
+    /**
+     * Get a dungeon's variable store.
+     * Better than dungeon file variables for variables with many entries (leaderboards, counters, etc),
+     * changing a variable only saves that variable instead of the whole dungeon file.
+     * Example:
+     *   const store = sm.getVariableStore(dungeon);
+     *   store.add("total_clears", 1);
+     *   store.set(player.getUniqueId().toString(), { "best_time": 42 });
+     * @param dungeon LoadedDungeon object.
+     * @return {@link io.github.expugn.dungeons.storage.MappedStore} of the dungeon, null if it could not be opened.
+     */
+    MappedStore getVariableStore(LoadedDungeon dungeon);
+
+    /**
+     * Get a world's variable store.
+     * Like {@link #getVariableStore(LoadedDungeon)}, but for world scripts.
+     * @param world World object.
+     * @return {@link io.github.expugn.dungeons.storage.MappedStore} of the world, null if it could not be opened.
+     */
+    MappedStore getVariableStore(World world);
+
     /**
      * Gets a Player object from a UUID.
      * @param uuid UUID of a player.
@@ -150,7 +172,7 @@ public interface Script {
 
     /**
      * Clear specific PotionEffectTypes from the player if they have it.
-     * Implementation REQUIRES using the Scheduler to runTaskLater
+     * Implementation REQUIRES running on the main thread, see {@link io.github.expugn.dungeons.MainThreadQueue}
      * Example:
      *   const PotionEffectType = Java.type("org.bukkit.potion.PotionEffectType");
      *   sm.clearPotionEffect(player, PotionEffectType.SPEED);
@@ -162,7 +184,7 @@ public interface Script {
 
     /**
      * Clear ALL PotionEffectTypes from the player.
-     * Implementation REQUIRES using the Scheduler to runTaskLater
+     * Implementation REQUIRES running on the main thread, see {@link io.github.expugn.dungeons.MainThreadQueue}
      * Example:
      *   sm.clearPotionEffect(player);
      * @param player             {@link org.bukkit.entity.Player} script binding
@@ -171,7 +193,7 @@ public interface Script {
 
     /**
      * Clear ALL PotionEffectTypes from the player.
-     * Implementation REQUIRES using the Scheduler to runTaskLater
+     * Implementation REQUIRES running on the main thread, see {@link io.github.expugn.dungeons.MainThreadQueue}
      * Example:
      *   const Integer = Java.type("java.lang.Integer");
      *   const PotionEffectType = Java.type("org.bukkit.potion.PotionEffectType");
@@ -182,4 +204,18 @@ public interface Script {
      * @param potionEffectTypes  {@link org.bukkit.potion.PotionEffectType}
      */
     void addPotionEffect(Player player, int duration, int amplifier, PotionEffectType... potionEffectTypes);
+
+    /**
+     * Run a function on the server's main thread, for Bukkit methods that can't be called from scripts directly.
+     * When many scripts need the main thread at once, higher priority functions run first.
+     * Example:
+     *   const Particle = Java.type("org.bukkit.Particle");
+     *   sm.runOnMainThread("LOW", function() {
+     *       player.getWorld().spawnParticle(Particle.CLOUD, player.getLocation(), 30);
+     *   });
+     * @param priority           HIGH (dungeon state, teleports), NORMAL (potion effects), or LOW (particles, sounds),
+     *                           anything else is logged and runs as NORMAL
+     * @param task               Function to run
+     */
+    void runOnMainThread(String priority, Runnable task);
 }
@@ -0,0 +1,317 @@
+package io.github.expugn.dungeons.scripts;
+
+import io.github.expugn.dungeons.AppConstants;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import org.bukkit.configuration.Configuration;
+
+/**
+ * A bounded, least recently used cache of compiled scripts.
+ * Scripts are keyed by their file path and are only read and compiled again when the file's
+ * last modified time or size changes.
+ * Every invalidation bumps the script's generation, a compile that started before the script was invalidated (or
+ * that read an older version of the file than the one already cached) doesn't replace the cached entry.
+ * Locks are used instead of synchronized blocks so scripts running on virtual threads don't pin their carrier thread.
+ * @author S'pugn
+ * @version 0.1
+ */
+public class ScriptCache {
+    private static final Lock FILE_READ_LOCK = new ReentrantLock();
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final String SIZE_KEY = "script-cache.size";
+    private final ScriptEngine scriptEngine;
+    private final int maxSize;
+    private final Map<Path, CacheEntry> entries;
+    private final Map<Path, Long> generations;
+    private final Lock lock;
+    private long flushGeneration;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private volatile boolean watched;
+
+    /**
+     * Construct a new script cache.
+     * @param scriptEngine Script engine used to compile scripts, must be {@link Compilable}.
+     * @param maxSize Max amount of compiled scripts to hold before the least recently used one is evicted.
+     */
+    public ScriptCache(ScriptEngine scriptEngine, int maxSize) {
+        this.scriptEngine = scriptEngine;
+        this.maxSize = maxSize;
+        this.lock = new ReentrantLock();
+        this.generations = new HashMap<>();
+        this.entries = new LinkedHashMap<>(maxSize, LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, CacheEntry> eldest) {
+                if (size() > ScriptCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Create a script cache from the plugin's config.yml.
+     * @param scriptEngine Script engine used to compile scripts, must be {@link Compilable}.
+     * @param config Plugin configuration.
+     * @return A new script cache.
+     */
+    public static ScriptCache fromConfig(ScriptEngine scriptEngine, Configuration config) {
+        return new ScriptCache(scriptEngine, Math.max(1, config.getInt(SIZE_KEY, AppConstants.SCRIPT_CACHE_SIZE)));
+    }
+
+    /**
+     * Get the compiled version of a script.
+     * The script will be read and compiled if it isn't cached or if the file has changed since it was compiled.
+     * If the script directories are being watched by {@link ScriptWatcher}, cached scripts are trusted to be
+     * up to date and the file is not checked.
+     * @param script Script information.
+     * @return CompiledScript, or null if the script file does not exist.
+     * @throws IOException If the script could not be read.
+     * @throws ScriptException If the script could not be compiled.
+     */
+    public CompiledScript get(ScriptInfo script) throws IOException, ScriptException {
+        Path path = toKey(script.getDirectory());
+        if (watched) {
+            // FILE CHANGES ARE PUSHED BY ScriptWatcher, NO NEED TO CHECK THE FILE
+            try {
+                lock.lock();
+                CacheEntry entry = entries.get(path);
+                if (entry != null) {
+                    hits++;
+                    return entry.compiledScript;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        File file = path.toFile();
+        long lastModified = file.lastModified();
+        if (lastModified == 0L) {
+            // SCRIPT DOES NOT EXIST (ANYMORE), FORGET ABOUT IT
+            invalidate(path);
+            return null;
+        }
+        long size = file.length();
+
+        try {
+            lock.lock();
+            CacheEntry entry = entries.get(path);
+            if (entry != null && entry.lastModified == lastModified && entry.size == size) {
+                hits++;
+                return entry.compiledScript;
+            }
+            misses++;
+        } finally {
+            lock.unlock();
+        }
+
+        // NOT CACHED OR OUT OF DATE, READ AND COMPILE OUTSIDE OF THE CACHE LOCK
+        return compile(path, lastModified, size);
+    }
+
+    /**
+     * Invalidate a script and compile it again right away if it still exists.
+     * @param path Path to the script file.
+     * @return true if the script was compiled, false if it no longer exists.
+     * @throws IOException If the script could not be read.
+     * @throws ScriptException If the script could not be compiled.
+     */
+    public boolean reload(Path path) throws IOException, ScriptException {
+        Path key = path.toAbsolutePath().normalize();
+        invalidate(key);
+        File file = key.toFile();
+        long lastModified = file.lastModified();
+        if (lastModified == 0L) {
+            // SCRIPT WAS DELETED
+            return false;
+        }
+        compile(key, lastModified, file.length());
+        return true;
+    }
+
+    /**
+     * Compile a script ahead of time, if it isn't cached yet.
+     * @param path Path to the script file.
+     * @return true if the script was compiled, false if it was already cached or no longer exists.
+     * @throws IOException If the script could not be read.
+     * @throws ScriptException If the script could not be compiled.
+     */
+    public boolean preload(Path path) throws IOException, ScriptException {
+        Path key = path.toAbsolutePath().normalize();
+        try {
+            lock.lock();
+            if (entries.containsKey(key)) {
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+        File file = key.toFile();
+        long lastModified = file.lastModified();
+        if (lastModified == 0L) {
+            // SCRIPT WAS DELETED
+            return false;
+        }
+        compile(key, lastModified, file.length());
+        return true;
+    }
+
+    private CompiledScript compile(Path path, long lastModified, long size) throws IOException, ScriptException {
+        long generation;
+        long startFlushGeneration;
+        try {
+            lock.lock();
+            generation = generations.getOrDefault(path, 0L);
+            startFlushGeneration = flushGeneration;
+        } finally {
+            lock.unlock();
+        }
+
+        String content;
+        try {
+            FILE_READ_LOCK.lock();
+            content = new String(Files.readAllBytes(path), Charset.defaultCharset());
+        } finally {
+            FILE_READ_LOCK.unlock();
+        }
+        CompiledScript compiledScript = ((Compilable) scriptEngine).compile(content);
+
+        try {
+            lock.lock();
+            CacheEntry entry = entries.get(path);
+            if (generations.getOrDefault(path, 0L) != generation || flushGeneration != startFlushGeneration
+                || (entry != null && entry.lastModified > lastModified)) {
+                // SCRIPT WAS INVALIDATED OR A NEWER VERSION WAS CACHED WHILE THIS ONE WAS COMPILING, KEEP THE NEWER ONE
+                // THE CALLER STILL RUNS WHAT IT COMPILED, IT WAS UP TO DATE WHEN IT WAS ASKED FOR
+                return compiledScript;
+            }
+            entries.put(path, new CacheEntry(compiledScript, lastModified, size));
+        } finally {
+            lock.unlock();
+        }
+        return compiledScript;
+    }
+
+    /**
+     * Remove a script from the cache.
+     * Compiles of the script that are still running when it is invalidated are not cached.
+     * @param path Path to the script file.
+     */
+    public void invalidate(Path path) {
+        try {
+            lock.lock();
+            Path key = path.toAbsolutePath().normalize();
+            entries.remove(key);
+            generations.merge(key, 1L, Long::sum);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove every compiled script from the cache.
+     * @return Amount of compiled scripts that were removed.
+     */
+    public int flush() {
+        try {
+            lock.lock();
+            int size = entries.size();
+            entries.clear();
+            generations.clear();
+            flushGeneration++;
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Mark whether script files are being watched for changes.
+     * While watched, cached scripts are returned without checking the file's last modified time and size.
+     * @param watched true if a {@link ScriptWatcher} is pushing file changes to this cache.
+     */
+    public void setWatched(boolean watched) {
+        this.watched = watched;
+    }
+
+    public boolean isWatched() {
+        return watched;
+    }
+
+    public int getSize() {
+        try {
+            lock.lock();
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHits() {
+        try {
+            lock.lock();
+            return hits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMisses() {
+        try {
+            lock.lock();
+            return misses;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getEvictions() {
+        try {
+            lock.lock();
+            return evictions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Path toKey(String path) {
+        // ABSOLUTE + NORMALIZED INSTEAD OF getCanonicalPath() SO BUILDING A KEY DOESN'T TOUCH THE DISK
+        return Paths.get(path).toAbsolutePath().normalize();
+    }
+
+    /**
+     * A compiled script and the file attributes it was compiled from.
+     */
+    private static final class CacheEntry {
+        private final CompiledScript compiledScript;
+        private final long lastModified;
+        private final long size;
+
+        CacheEntry(CompiledScript compiledScript, long lastModified, long size) {
+            this.compiledScript = compiledScript;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+    }
+}
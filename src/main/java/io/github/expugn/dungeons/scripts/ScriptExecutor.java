@@ -0,0 +1,493 @@
+package io.github.expugn.dungeons.scripts;
+
+import io.github.expugn.dungeons.AppConstants;
+import io.github.expugn.dungeons.AppUtils;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import org.bukkit.configuration.Configuration;
+
+/**
+ * Runs scripts (and other work that shouldn't be done on the main thread) in a thread pool.
+ * The pool can either be unbounded ("cached"), have a fixed amount of threads and a queue limit ("bounded"), or
+ * run every script on its own virtual thread ("virtual", Java 21+).
+ * When a bounded pool's queue is full, each {@link ScriptType} decides if the script is dropped, waits in a limited
+ * retry queue, or is run by the thread that tried to start it.
+ * The retry queue is not polled, whenever a thread takes a script from the pool's queue the retry queue is moved
+ * into the free room, oldest script first.
+ * Scripts for a loaded dungeon go through that dungeon's {@link ScriptLane} so they run one at a time and in order.
+ * Queue depth, active workers, rejections and task latency are recorded and can be viewed in-game.
+ * @author S'pugn
+ * @version 0.1
+ */
+public class ScriptExecutor {
+    private static final String MODE_KEY = "script-executor.mode";
+    private static final String THREADS_KEY = "script-executor.threads";
+    private static final String QUEUE_SIZE_KEY = "script-executor.queue-size";
+    private static final String RETRY_QUEUE_SIZE_KEY = "script-executor.retry-queue-size";
+    private static final String REJECTION_POLICY_KEY = "script-executor.rejection-policy.%s";
+    private static final String PINNING_DIAGNOSTICS_KEY = "script-executor.pinning-diagnostics";
+    private static final String PINNING_THRESHOLD_KEY = "script-executor.pinning-threshold-ms";
+    private static final String DUNGEON_LANES_KEY = "script-executor.dungeon-lanes";
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+    private final Mode mode;
+    private final ExecutorService executor;
+    private final ThreadPoolExecutor pool;
+    private final int retryQueueSize;
+    private final Queue<Runnable> retryQueue;
+    private final AtomicInteger retryQueueDepth;
+    private final Lock retryLock;
+    private final PinningMonitor pinningMonitor;
+    private final boolean dungeonLanes;
+    private final Map<ScriptType, RejectionPolicy> rejectionPolicies;
+    private final Map<ScriptType, LongAdder> rejections;
+    private final AtomicInteger activeWorkers;
+    private final AtomicInteger largestActiveWorkers;
+    private final LongAdder completedTasks;
+    private final LatencyRecorder waitTimes;
+    private final LatencyRecorder runTimes;
+
+    /**
+     * How the executor's threads are managed.
+     */
+    public enum Mode {
+        /**
+         * A new thread is created whenever no thread is free. There is no limit.
+         */
+        CACHED,
+
+        /**
+         * A fixed amount of threads with a limited queue.
+         */
+        BOUNDED,
+
+        /**
+         * Every script runs on its own virtual thread. Requires Java 21 or newer, {@link #CACHED} is used otherwise.
+         * Scripts that are waiting (timers, main thread tasks, file I/O) don't hold on to an OS thread.
+         */
+        VIRTUAL
+    }
+
+    /**
+     * What to do with a script when a bounded executor's queue is full.
+     */
+    public enum RejectionPolicy {
+        /**
+         * The script is not run.
+         */
+        DROP,
+
+        /**
+         * The script waits in the retry queue and runs, in order, as soon as the executor's queue has room.
+         * It never runs on the thread that tried to start it. If the retry queue is full too, the script is dropped.
+         */
+        RETRY,
+
+        /**
+         * The script is run right away by the thread that tried to start it (usually the server's main thread).
+         * Only use this if a script must never wait, a saturated pool will run these scripts on the main thread.
+         */
+        CALLER_RUNS
+    }
+
+    /**
+     * Construct a new script executor.
+     * @param mode How the executor's threads are managed.
+     * @param threads Amount of threads, only used in {@link Mode#BOUNDED}.
+     * @param queueSize Max amount of waiting tasks, only used in {@link Mode#BOUNDED}.
+     * @param retryQueueSize Max amount of {@link RejectionPolicy#RETRY} scripts waiting for room in the queue, only
+     *                       used in {@link Mode#BOUNDED}.
+     * @param rejectionPolicies What to do with each script type when the queue is full.
+     * @param pinningThreshold Report virtual threads pinned for longer than this, only used in {@link Mode#VIRTUAL}.
+     *                         null to disable pinning diagnostics.
+     * @param dungeonLanes true to run each dungeon's scripts in order in a {@link ScriptLane}.
+     */
+    public ScriptExecutor(Mode mode, int threads, int queueSize, int retryQueueSize,
+        Map<ScriptType, RejectionPolicy> rejectionPolicies, Duration pinningThreshold, boolean dungeonLanes) {
+
+        this.dungeonLanes = dungeonLanes;
+        this.retryQueueSize = retryQueueSize;
+        this.retryQueue = new ConcurrentLinkedQueue<>();
+        this.retryQueueDepth = new AtomicInteger();
+        this.retryLock = new ReentrantLock();
+        this.rejectionPolicies = new EnumMap<>(rejectionPolicies);
+        this.rejections = new EnumMap<>(ScriptType.class);
+        for (ScriptType scriptType : ScriptType.values()) {
+            this.rejections.put(scriptType, new LongAdder());
+        }
+        this.activeWorkers = new AtomicInteger();
+        this.largestActiveWorkers = new AtomicInteger();
+        this.completedTasks = new LongAdder();
+        this.waitTimes = new LatencyRecorder(AppConstants.SCRIPT_EXECUTOR_LATENCY_SAMPLES);
+        this.runTimes = new LatencyRecorder(AppConstants.SCRIPT_EXECUTOR_LATENCY_SAMPLES);
+
+        ExecutorService virtualExecutor = mode == Mode.VIRTUAL ? newVirtualThreadExecutor() : null;
+        if (mode == Mode.VIRTUAL && virtualExecutor == null) {
+            AppUtils.consoleLog(Level.WARNING, String.format("Virtual threads need Java 21 or newer (running %s). %s",
+                System.getProperty("java.version"), "Using a cached thread pool instead."));
+        }
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, String.format("PartyDungeons-Script-%d", threadCount.incrementAndGet()));
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+
+        if (virtualExecutor != null) {
+            this.mode = Mode.VIRTUAL;
+            this.executor = virtualExecutor;
+            this.pool = null;
+        } else if (mode == Mode.BOUNDED) {
+            this.mode = Mode.BOUNDED;
+            this.pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), threadFactory, new ThreadPoolExecutor.AbortPolicy()) {
+                @Override
+                protected void beforeExecute(Thread thread, Runnable task) {
+                    // THIS THREAD JUST TOOK A TASK FROM THE QUEUE, MOVE WAITING RETRIES INTO THE FREE ROOM
+                    drainRetryQueue();
+                }
+            };
+            this.pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+        } else {
+            // SAME AS Executors.newCachedThreadPool()
+            this.mode = Mode.CACHED;
+            this.pool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+            this.executor = pool;
+        }
+
+        this.pinningMonitor = this.mode == Mode.VIRTUAL && pinningThreshold != null
+            ? startPinningMonitor(pinningThreshold)
+            : null;
+    }
+
+    /**
+     * Create a script executor from the plugin's config.yml.
+     * Invalid values are logged and replaced with their defaults.
+     * @param config Plugin configuration.
+     * @return A new script executor.
+     */
+    public static ScriptExecutor fromConfig(Configuration config) {
+        Mode mode = parseEnum(Mode.class, config.getString(MODE_KEY), Mode.BOUNDED, MODE_KEY);
+        int threads = config.getInt(THREADS_KEY, AppConstants.SCRIPT_EXECUTOR_THREADS);
+        if (threads <= 0) {
+            AppUtils.consoleLog(Level.WARNING, String.format("%s must be above 0, using %d.",
+                THREADS_KEY, AppConstants.SCRIPT_EXECUTOR_THREADS));
+            threads = AppConstants.SCRIPT_EXECUTOR_THREADS;
+        }
+        int queueSize = config.getInt(QUEUE_SIZE_KEY, AppConstants.SCRIPT_EXECUTOR_QUEUE_SIZE);
+        if (queueSize <= 0) {
+            AppUtils.consoleLog(Level.WARNING, String.format("%s must be above 0, using %d.",
+                QUEUE_SIZE_KEY, AppConstants.SCRIPT_EXECUTOR_QUEUE_SIZE));
+            queueSize = AppConstants.SCRIPT_EXECUTOR_QUEUE_SIZE;
+        }
+        int retryQueueSize = config.getInt(RETRY_QUEUE_SIZE_KEY, AppConstants.SCRIPT_EXECUTOR_RETRY_QUEUE_SIZE);
+        if (retryQueueSize < 0) {
+            AppUtils.consoleLog(Level.WARNING, String.format("%s can't be below 0, using %d.",
+                RETRY_QUEUE_SIZE_KEY, AppConstants.SCRIPT_EXECUTOR_RETRY_QUEUE_SIZE));
+            retryQueueSize = AppConstants.SCRIPT_EXECUTOR_RETRY_QUEUE_SIZE;
+        }
+
+        Map<ScriptType, RejectionPolicy> rejectionPolicies = new EnumMap<>(ScriptType.class);
+        for (ScriptType scriptType : ScriptType.values()) {
+            // DUNGEON SCRIPTS KEEP THE DUNGEON'S STATE IN CHECK, SO THEY SHOULDN'T BE DROPPED BY DEFAULT
+            // THEY WAIT FOR ROOM INSTEAD OF RUNNING ON THE MAIN THREAD
+            RejectionPolicy defaultPolicy = scriptType == ScriptType.Dungeon
+                ? RejectionPolicy.RETRY
+                : RejectionPolicy.DROP;
+            String key = String.format(REJECTION_POLICY_KEY, scriptType);
+            rejectionPolicies.put(scriptType, parseEnum(RejectionPolicy.class, config.getString(key),
+                defaultPolicy, key));
+        }
+
+        Duration pinningThreshold = config.getBoolean(PINNING_DIAGNOSTICS_KEY, true)
+            ? Duration.ofMillis(config.getLong(PINNING_THRESHOLD_KEY, AppConstants.SCRIPT_EXECUTOR_PINNING_THRESHOLD))
+            : null;
+
+        ScriptExecutor scriptExecutor = new ScriptExecutor(mode, threads, queueSize, retryQueueSize,
+            rejectionPolicies, pinningThreshold, config.getBoolean(DUNGEON_LANES_KEY, true));
+        AppUtils.consoleLog(Level.INFO, scriptExecutor.getMode() == Mode.BOUNDED
+            ? String.format("Script executor: %s, %d thread(s), queue size %d, retry queue size %d.", Mode.BOUNDED,
+                threads, queueSize, retryQueueSize)
+            : String.format("Script executor: %s.", scriptExecutor.getMode()));
+        return scriptExecutor;
+    }
+
+    /**
+     * Run a task in the script executor.
+     * @param scriptType Type of script the task is for, decides what happens if the queue is full.
+     * @param task Task to run.
+     * @return true if the task was queued (or run), false if it was dropped.
+     */
+    public boolean execute(ScriptType scriptType, Runnable task) {
+        Runnable timedTask = timed(task);
+        RejectionPolicy rejectionPolicy = rejectionPolicies.get(scriptType);
+        if (rejectionPolicy == RejectionPolicy.RETRY && !retryQueue.isEmpty()) {
+            // OLDER RETRIES ARE STILL WAITING, DON'T JUMP AHEAD OF THEM
+            return retry(scriptType, timedTask);
+        }
+        try {
+            executor.execute(timedTask);
+            return true;
+        } catch (RejectedExecutionException e) {
+            if (executor.isShutdown()) {
+                // PLUGIN IS SHUTTING DOWN
+                return false;
+            }
+            if (rejectionPolicy == RejectionPolicy.RETRY) {
+                return retry(scriptType, timedTask);
+            }
+            rejections.get(scriptType).increment();
+            if (rejectionPolicy == RejectionPolicy.CALLER_RUNS) {
+                timedTask.run();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Run a task that must not be dropped, whatever the script type's rejection policy is.
+     * If the queue is full, the task waits at the end of the retry queue even if the retry queue is full. It never
+     * runs on the calling thread, so it is safe to call from a task that is running in this executor.
+     * Only used by {@link ScriptLane}s, which have at most one task waiting each, so this can't grow without limit.
+     * Tasks are only dropped when the plugin is shutting down.
+     * @param task Task to run.
+     */
+    public void resubmit(Runnable task) {
+        Runnable timedTask = timed(task);
+        if (retryQueue.isEmpty()) {
+            try {
+                executor.execute(timedTask);
+                return;
+            } catch (RejectedExecutionException e) {
+                if (executor.isShutdown()) {
+                    // PLUGIN IS SHUTTING DOWN
+                    return;
+                }
+            }
+        }
+        addRetry(timedTask);
+    }
+
+    /**
+     * Add a rejected task to the retry queue, or drop it if the retry queue is full.
+     * @param scriptType Type of script the task is for.
+     * @param timedTask Task to run.
+     * @return true if the task was added, false if it was dropped.
+     */
+    private boolean retry(ScriptType scriptType, Runnable timedTask) {
+        if (retryQueueDepth.get() >= retryQueueSize) {
+            // RETRY QUEUE IS FULL TOO, DROP THE SCRIPT
+            rejections.get(scriptType).increment();
+            return false;
+        }
+        addRetry(timedTask);
+        return true;
+    }
+
+    private void addRetry(Runnable timedTask) {
+        retryQueueDepth.incrementAndGet();
+        retryQueue.add(timedTask);
+        // THE QUEUE MAY HAVE HAD ROOM AGAIN BEFORE THE TASK WAS ADDED, NO THREAD WOULD MOVE IT IN THAT CASE
+        drainRetryQueue();
+    }
+
+    /**
+     * Move waiting retries into the executor's queue, oldest first, until the queue is full.
+     * Called after a retry is added and whenever a thread takes a task from the queue, so a retry never waits while
+     * there's room.
+     */
+    private void drainRetryQueue() {
+        if (retryQueue.isEmpty()) {
+            return;
+        }
+        try {
+            retryLock.lock();
+            Runnable next;
+            while ((next = retryQueue.peek()) != null) {
+                try {
+                    executor.execute(next);
+                } catch (RejectedExecutionException e) {
+                    // QUEUE IS FULL (OR THE PLUGIN IS SHUTTING DOWN), THE NEXT THREAD TO TAKE A TASK TRIES AGAIN
+                    return;
+                }
+                retryQueue.poll();
+                retryQueueDepth.decrementAndGet();
+            }
+        } finally {
+            retryLock.unlock();
+        }
+    }
+
+    private Runnable timed(Runnable task) {
+        long submitted = System.nanoTime();
+        return () -> {
+            long started = System.nanoTime();
+            largestActiveWorkers.accumulateAndGet(activeWorkers.incrementAndGet(), Math::max);
+            try {
+                task.run();
+            } finally {
+                activeWorkers.decrementAndGet();
+                completedTasks.increment();
+                waitTimes.record(started - submitted);
+                runTimes.record(System.nanoTime() - started);
+            }
+        };
+    }
+
+    /**
+     * Create a new lane that runs its tasks one at a time on this executor.
+     * If dungeon lanes are disabled in config.yml, the lane submits tasks straight to this executor instead.
+     * @param name Name of the lane, usually the dungeon's name.
+     * @return A new script lane.
+     */
+    public ScriptLane newLane(String name) {
+        return new ScriptLane(this, name, dungeonLanes);
+    }
+
+    /**
+     * Stop every running script and discard waiting ones.
+     */
+    public void shutdownNow() {
+        executor.shutdownNow();
+        retryQueue.clear();
+        retryQueueDepth.set(0);
+        if (pinningMonitor != null) {
+            pinningMonitor.close();
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public RejectionPolicy getRejectionPolicy(ScriptType scriptType) {
+        return rejectionPolicies.get(scriptType);
+    }
+
+    /**
+     * Get the amount of scripts waiting for a thread.
+     * Always 0 in {@link Mode#VIRTUAL}, every script gets a thread right away.
+     */
+    public int getQueueDepth() {
+        return pool != null ? pool.getQueue().size() : 0;
+    }
+
+    public int getQueueCapacity() {
+        return pool != null ? pool.getQueue().size() + pool.getQueue().remainingCapacity() : 0;
+    }
+
+    /**
+     * Get the amount of scripts waiting in the retry queue for room in the executor's queue.
+     */
+    public int getRetryQueueDepth() {
+        return retryQueueDepth.get();
+    }
+
+    public int getRetryQueueCapacity() {
+        return retryQueueSize;
+    }
+
+    public int getActiveWorkers() {
+        return activeWorkers.get();
+    }
+
+    public int getLargestActiveWorkers() {
+        return largestActiveWorkers.get();
+    }
+
+    /**
+     * Get the amount of threads in the pool.
+     * In {@link Mode#VIRTUAL} this is the amount of virtual threads running a script.
+     */
+    public int getPoolSize() {
+        return pool != null ? pool.getPoolSize() : activeWorkers.get();
+    }
+
+    public long getCompletedTasks() {
+        return completedTasks.sum();
+    }
+
+    public long getRejections(ScriptType scriptType) {
+        return rejections.get(scriptType).sum();
+    }
+
+    /**
+     * Get how long tasks waited in the queue before they started.
+     */
+    public LatencyRecorder getWaitTimes() {
+        return waitTimes;
+    }
+
+    /**
+     * Get how long tasks took to run.
+     */
+    public LatencyRecorder getRunTimes() {
+        return runTimes;
+    }
+
+    /**
+     * Get the pinning monitor.
+     * @return PinningMonitor, or null if not in {@link Mode#VIRTUAL} or pinning diagnostics are disabled.
+     */
+    public PinningMonitor getPinningMonitor() {
+        return pinningMonitor;
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            // Executors.newVirtualThreadPerTaskExecutor() ONLY EXISTS IN JAVA 21+, THE PLUGIN IS BUILT FOR JAVA 17
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static PinningMonitor startPinningMonitor(Duration threshold) {
+        try {
+            return new PinningMonitor(threshold);
+        } catch (RuntimeException | LinkageError e) {
+            // JDK FLIGHT RECORDER ISN'T AVAILABLE IN THIS JVM
+            AppUtils.consoleLog(Level.WARNING, String.format("Could not start virtual thread pinning diagnostics: %s",
+                e.getMessage()));
+            return null;
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> enumClass, String value, E defaultValue, String key) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(enumClass, value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            AppUtils.consoleLog(Level.WARNING, String.format("Invalid %s value \"%s\", using %s.",
+                key, value, defaultValue));
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,459 @@
+package io.github.expugn.dungeons.scripts;
+
+import io.github.expugn.dungeons.AppConstants;
+import io.github.expugn.dungeons.AppUtils;
+import io.github.expugn.dungeons.regions.ChunkFilter;
+import io.github.expugn.dungeons.regions.Region;
+import io.github.expugn.dungeons.regions.RegionGrid;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * An in-memory index of which script files exist in the plugin directory.
+ * Interact and Walk scripts are also indexed by their packed block coordinates (see {@link AppUtils#packBlock})
+ * for every dungeon and world, so event listeners can check if a block has a script without touching the disk.
+ * AreaWalk scripts are parsed into a {@link RegionGrid} so only the areas near a player have to be checked.
+ * The chunks that have any world script are kept in a {@link ChunkFilter}, so events far away from every world
+ * script can be skipped right away.
+ * The index is built when the plugin loads and is kept up to date by commands and {@link ScriptWatcher}.
+ * @author S'pugn
+ * @version 0.1
+ */
+public class ScriptIndex {
+    private static final int OWNER_TYPE_INDEX = 0;
+    private static final int OWNER_NAME_INDEX = 1;
+    private static final int SCRIPT_DIRECTORY_INDEX = 2;
+    private static final int SCRIPT_TYPE_INDEX = 3;
+    private static final int SCRIPT_FILE_NAME_COUNT = 5;
+    private static final int BLOCK_COORDINATES = 3;
+    private final Path root;
+    private final Set<Path> scripts;
+    private final Map<String, Owner> dungeons;
+    private final Map<String, Owner> worlds;
+
+    /**
+     * Construct a new, empty, script index.
+     * Use {@link #build()} to fill it.
+     */
+    public ScriptIndex() {
+        this.root = AppUtils.getPluginDirectory().toPath().toAbsolutePath().normalize();
+        this.scripts = ConcurrentHashMap.newKeySet();
+        this.dungeons = new ConcurrentHashMap<>();
+        this.worlds = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Forget everything and index every script in the plugin directory again.
+     * @return Amount of scripts indexed.
+     */
+    public int build() {
+        scripts.clear();
+        dungeons.clear();
+        worlds.clear();
+        update(root);
+        return scripts.size();
+    }
+
+    /**
+     * Update the index after a file or directory was created, modified or deleted.
+     * Directories are indexed recursively.
+     * @param path Path of the file or directory that changed.
+     */
+    public void update(Path path) {
+        Path absolutePath = path.toAbsolutePath().normalize();
+        if (!Files.exists(absolutePath)) {
+            // FILE OR DIRECTORY WAS DELETED
+            remove(absolutePath);
+            return;
+        }
+        if (!Files.isDirectory(absolutePath)) {
+            add(absolutePath);
+            return;
+        }
+
+        try (Stream<Path> paths = Files.walk(absolutePath)) {
+            paths.forEach(p -> {
+                if (Files.isDirectory(p)) {
+                    getOwner(p);
+                } else {
+                    add(p);
+                }
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Check if a script file exists.
+     * @param path Path to the script file.
+     * @return true if the script is indexed, false otherwise.
+     */
+    public boolean exists(String path) {
+        return scripts.contains(Paths.get(path).toAbsolutePath().normalize());
+    }
+
+    /**
+     * Check if a dungeon has a block script.
+     * @param dungeonName Name of the dungeon.
+     * @param scriptType {@link ScriptType#Interact} or {@link ScriptType#Walk}.
+     * @param blockKey Packed block coordinates of the script name, see {@link AppUtils#getBlockKey}.
+     * @return true if the script exists, false otherwise.
+     */
+    public boolean hasDungeonScript(String dungeonName, ScriptType scriptType, long blockKey) {
+        Owner owner = dungeons.get(dungeonName);
+        return owner != null && owner.contains(scriptType, blockKey);
+    }
+
+    /**
+     * Check if a world has a block script.
+     * @param worldName Name of the world.
+     * @param scriptType {@link ScriptType#Interact} or {@link ScriptType#Walk}.
+     * @param blockKey Packed block coordinates of the script name, see {@link AppUtils#getBlockKey}.
+     * @return true if the script exists, false otherwise.
+     */
+    public boolean hasWorldScript(String worldName, ScriptType scriptType, long blockKey) {
+        Owner owner = worlds.get(worldName);
+        return owner != null && owner.contains(scriptType, blockKey);
+    }
+
+    /**
+     * Get a dungeon's AreaWalk script regions.
+     * @param dungeonName Name of the dungeon.
+     * @return Regions of every AreaWalk script, with the script's name attached.
+     */
+    public RegionGrid<String> getDungeonAreaWalkScripts(String dungeonName) {
+        Owner owner = dungeons.get(dungeonName);
+        return owner != null ? owner.getAreaWalk() : RegionGrid.empty();
+    }
+
+    /**
+     * Get a world's AreaWalk script regions.
+     * @param worldName Name of the world.
+     * @return Regions of every AreaWalk script, with the script's name attached.
+     */
+    public RegionGrid<String> getWorldAreaWalkScripts(String worldName) {
+        Owner owner = worlds.get(worldName);
+        return owner != null ? owner.getAreaWalk() : RegionGrid.empty();
+    }
+
+    /**
+     * Check if a block is in a chunk with any of a world's Interact, Walk or AreaWalk scripts.
+     * This is much cheaper than looking up the scripts, events that fail this check can't trigger a world script.
+     * @param worldName Name of the world.
+     * @param x Block X coordinate.
+     * @param z Block Z coordinate.
+     * @return true if the block's chunk has a world script, false otherwise.
+     */
+    public boolean isNearWorldScript(String worldName, int x, int z) {
+        Owner owner = worlds.get(worldName);
+        return owner != null && owner.getChunks().contains(x, z);
+    }
+
+    /**
+     * Check if a world has a script directory.
+     * @param worldName Name of the world.
+     * @return true if plugins/<plugin_name>/worlds/<world_name>/scripts exists, false otherwise.
+     */
+    public boolean hasWorldScripts(String worldName) {
+        return worlds.containsKey(worldName);
+    }
+
+    public int getSize() {
+        return scripts.size();
+    }
+
+    /**
+     * Get every indexed world script and the scripts of the given dungeons.
+     * @param dungeonNames Names of the dungeons to include, usually the loaded dungeons.
+     * @return Paths of the scripts.
+     */
+    public List<Path> getScripts(Set<String> dungeonNames) {
+        List<Path> found = new ArrayList<>();
+        for (Path path : scripts) {
+            Path relativePath = root.relativize(path);
+            Map<String, Owner> owners = getOwners(relativePath);
+            if (owners == worlds
+                || (owners == dungeons && dungeonNames.contains(relativePath.getName(OWNER_NAME_INDEX).toString()))) {
+                found.add(path);
+            }
+        }
+        return found;
+    }
+
+    private void add(Path path) {
+        if (!path.getFileName().toString().endsWith(AppConstants.SCRIPT_ENGINE_EXTENSION)) {
+            // NOT A SCRIPT
+            return;
+        }
+        scripts.add(path);
+
+        Owner owner = getOwner(path);
+        if (owner != null) {
+            owner.add(path);
+        }
+    }
+
+    private void remove(Path path) {
+        scripts.removeIf(p -> p.startsWith(path));
+        if (!path.startsWith(root)) {
+            return;
+        }
+        if (path.equals(root)) {
+            // WHOLE PLUGIN DIRECTORY WAS DELETED
+            dungeons.clear();
+            worlds.clear();
+            return;
+        }
+
+        Path relativePath = root.relativize(path);
+        Map<String, Owner> owners = getOwners(relativePath);
+        if (owners == null) {
+            return;
+        }
+        if (relativePath.getNameCount() == 1) {
+            // WHOLE dungeon OR worlds DIRECTORY WAS DELETED
+            owners.clear();
+            return;
+        }
+        String ownerName = relativePath.getName(OWNER_NAME_INDEX).toString();
+        if (relativePath.getNameCount() == SCRIPT_DIRECTORY_INDEX) {
+            // DUNGEON OR WORLD DIRECTORY WAS DELETED
+            owners.remove(ownerName);
+            return;
+        }
+        if (!relativePath.getName(SCRIPT_DIRECTORY_INDEX).toString().equals(AppConstants.DUNGEON_SCRIPT_DIRECTORY)) {
+            // NOT A SCRIPT (config.json, variables.json, ETC)
+            return;
+        }
+        if (relativePath.getNameCount() == SCRIPT_DIRECTORY_INDEX + 1) {
+            // SCRIPT DIRECTORY WAS DELETED
+            owners.remove(ownerName);
+            return;
+        }
+        Owner owner = owners.get(ownerName);
+        if (owner != null) {
+            owner.remove(relativePath);
+        }
+    }
+
+    /**
+     * Get (or create) the dungeon or world that a path belongs to.
+     * @param path Absolute path inside plugins/<plugin_name>/dungeon/<name>/scripts or
+     *             plugins/<plugin_name>/worlds/<name>/scripts.
+     * @return Owner of the path, or null if the path doesn't belong to a dungeon or world's scripts.
+     */
+    private Owner getOwner(Path path) {
+        if (!path.startsWith(root)) {
+            return null;
+        }
+        Path relativePath = root.relativize(path);
+        if (relativePath.getNameCount() <= SCRIPT_DIRECTORY_INDEX
+            || !relativePath.getName(SCRIPT_DIRECTORY_INDEX).toString()
+                .equals(AppConstants.DUNGEON_SCRIPT_DIRECTORY)) {
+            return null;
+        }
+        Map<String, Owner> owners = getOwners(relativePath);
+        if (owners == null) {
+            return null;
+        }
+        return owners.computeIfAbsent(relativePath.getName(OWNER_NAME_INDEX).toString(), k -> new Owner());
+    }
+
+    private Map<String, Owner> getOwners(Path relativePath) {
+        String ownerType = relativePath.getName(OWNER_TYPE_INDEX).toString();
+        if (ownerType.equals(AppUtils.getDungeonDirectory().getName())) {
+            return dungeons;
+        }
+        if (ownerType.equals(AppUtils.getWorldDirectory().getName())) {
+            return worlds;
+        }
+        return null;
+    }
+
+    /**
+     * Block scripts that belong to a single dungeon or world.
+     */
+    private final class Owner {
+        private final Set<Long> interact = ConcurrentHashMap.newKeySet();
+        private final Set<Long> walk = ConcurrentHashMap.newKeySet();
+        private final Map<String, Region> areas = new ConcurrentHashMap<>();
+        private volatile RegionGrid<String> areaWalk = RegionGrid.empty();
+        private volatile boolean areaWalkChanged;
+        private final Lock rebuildLock = new ReentrantLock();
+        private volatile ChunkFilter chunks = ChunkFilter.empty();
+        private volatile boolean chunksChanged;
+
+        boolean contains(ScriptType scriptType, long blockKey) {
+            Set<Long> blocks = getBlocks(scriptType);
+            return blocks != null && blocks.contains(blockKey);
+        }
+
+        /**
+         * Get the AreaWalk script regions, the grid is only built again after an AreaWalk script changes.
+         */
+        RegionGrid<String> getAreaWalk() {
+            if (areaWalkChanged) {
+                try {
+                    // LOCK INSTEAD OF synchronized SO VIRTUAL THREADS DON'T PIN THEIR CARRIER THREAD
+                    rebuildLock.lock();
+                    if (areaWalkChanged) {
+                        areaWalkChanged = false;
+                        areaWalk = new RegionGrid<>(areas);
+                    }
+                } finally {
+                    rebuildLock.unlock();
+                }
+            }
+            return areaWalk;
+        }
+
+        /**
+         * Get the chunks that have any block or AreaWalk script, the filter is only built again after a script
+         * changes.
+         */
+        ChunkFilter getChunks() {
+            if (chunksChanged) {
+                try {
+                    rebuildLock.lock();
+                    if (chunksChanged) {
+                        chunksChanged = false;
+                        Set<Long> chunkKeys = new HashSet<>();
+                        for (Set<Long> blocks : List.of(interact, walk)) {
+                            for (long blockKey : blocks) {
+                                chunkKeys.add(ChunkFilter.getChunkKey(AppUtils.unpackBlockX(blockKey),
+                                    AppUtils.unpackBlockZ(blockKey)));
+                            }
+                        }
+                        chunks = new ChunkFilter(chunkKeys, areas.values());
+                    }
+                } finally {
+                    rebuildLock.unlock();
+                }
+            }
+            return chunks;
+        }
+
+        void add(Path path) {
+            Path relativePath = root.relativize(path);
+            if (isAreaWalk(relativePath)) {
+                String areaString = getScriptName(relativePath);
+                try {
+                    areas.put(areaString, Region.parse(areaString));
+                    areaWalkChanged = true;
+                    chunksChanged = true;
+                } catch (IllegalArgumentException e) {
+                    // NOT NAMED AFTER AN AREA (NumberFormatException IS AN IllegalArgumentException TOO), IGNORE
+                }
+                return;
+            }
+            Set<Long> blocks = getBlocks(relativePath);
+            Long blockKey = getBlockKey(relativePath);
+            if (blocks != null && blockKey != null) {
+                blocks.add(blockKey);
+                chunksChanged = true;
+            }
+        }
+
+        void remove(Path relativePath) {
+            if (relativePath.getNameCount() == SCRIPT_TYPE_INDEX + 1
+                && relativePath.getFileName().toString().equals(ScriptType.AreaWalk.getDirectory())) {
+                // WHOLE area_walk DIRECTORY WAS DELETED
+                areas.clear();
+                areaWalkChanged = true;
+                chunksChanged = true;
+                return;
+            }
+            if (isAreaWalk(relativePath)) {
+                areas.remove(getScriptName(relativePath));
+                areaWalkChanged = true;
+                chunksChanged = true;
+                return;
+            }
+            Set<Long> blocks = getBlocks(relativePath);
+            if (blocks == null) {
+                return;
+            }
+            if (relativePath.getNameCount() == SCRIPT_TYPE_INDEX + 1) {
+                // WHOLE interact/walk DIRECTORY WAS DELETED
+                blocks.clear();
+                chunksChanged = true;
+                return;
+            }
+            Long blockKey = getBlockKey(relativePath);
+            if (blockKey != null) {
+                blocks.remove(blockKey);
+                chunksChanged = true;
+            }
+        }
+
+        private Set<Long> getBlocks(ScriptType scriptType) {
+            switch (scriptType) {
+                case Interact:
+                    return interact;
+                case Walk:
+                    return walk;
+                default:
+                    return null;
+            }
+        }
+
+        private Set<Long> getBlocks(Path relativePath) {
+            if (relativePath.getNameCount() <= SCRIPT_TYPE_INDEX) {
+                return null;
+            }
+            String directory = relativePath.getName(SCRIPT_TYPE_INDEX).toString();
+            if (directory.equals(ScriptType.Interact.getDirectory())) {
+                return interact;
+            }
+            if (directory.equals(ScriptType.Walk.getDirectory())) {
+                return walk;
+            }
+            return null;
+        }
+
+        /**
+         * Parse a block script's name (x_y_z.js) into packed block coordinates.
+         * @return Packed block coordinates, or null if the script isn't named after a block.
+         */
+        private Long getBlockKey(Path relativePath) {
+            if (relativePath.getNameCount() != SCRIPT_FILE_NAME_COUNT) {
+                // SCRIPT IS IN A SUB DIRECTORY, IT CAN'T BE TRIGGERED BY A BLOCK
+                return null;
+            }
+            String[] coordinates = getScriptName(relativePath).split("_");
+            if (coordinates.length != BLOCK_COORDINATES) {
+                return null;
+            }
+            try {
+                return AppUtils.packBlock(Integer.parseInt(coordinates[0]), Integer.parseInt(coordinates[1]),
+                    Integer.parseInt(coordinates[2]));
+            } catch (NumberFormatException e) {
+                // NOT A BLOCK SCRIPT, IGNORE
+                return null;
+            }
+        }
+
+        private boolean isAreaWalk(Path relativePath) {
+            // SCRIPTS IN SUB DIRECTORIES CAN'T BE TRIGGERED BY AN AREA
+            return relativePath.getNameCount() == SCRIPT_FILE_NAME_COUNT
+                && relativePath.getName(SCRIPT_TYPE_INDEX).toString().equals(ScriptType.AreaWalk.getDirectory());
+        }
+
+        private String getScriptName(Path relativePath) {
+            String fileName = relativePath.getFileName().toString();
+            return fileName.substring(0, fileName.length() - AppConstants.SCRIPT_ENGINE_EXTENSION.length());
+        }
+    }
+}
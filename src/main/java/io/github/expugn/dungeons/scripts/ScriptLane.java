@@ -0,0 +1,117 @@
+package io.github.expugn.dungeons.scripts;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs tasks one at a time, in the order they were added, on a {@link ScriptExecutor}.
+ * Each loaded dungeon has its own lane, so scripts for the same dungeon never run at the same time while scripts for
+ * different dungeons still run in parallel.
+ * A lane does not own a thread. When a task is added to an idle lane, the lane is submitted to the executor and
+ * runs every waiting task before giving the thread back.
+ * Only adding a task to an idle lane follows the script type's rejection policy. Once a task has been accepted, the
+ * lane is always put back in the executor's queue (waiting for room if it's full) until every accepted task has run.
+ * @author S'pugn
+ * @version 0.1
+ */
+public class ScriptLane {
+    private static final int MAX_BATCH = 64;
+    private final ScriptExecutor executor;
+    private final String name;
+    private final boolean enabled;
+    private final Queue<Runnable> mailbox;
+    private final AtomicBoolean scheduled;
+
+    /**
+     * Construct a new script lane.
+     * @param executor Executor the lane's tasks run on.
+     * @param name Name of the lane, usually the dungeon's name.
+     * @param enabled false to submit tasks straight to the executor instead of running them in order.
+     */
+    public ScriptLane(ScriptExecutor executor, String name, boolean enabled) {
+        this.executor = executor;
+        this.name = name;
+        this.enabled = enabled;
+        this.mailbox = new ConcurrentLinkedQueue<>();
+        this.scheduled = new AtomicBoolean();
+    }
+
+    /**
+     * Run a task after every task that was added to the lane before it.
+     * @param scriptType Type of script the task is for, decides what happens if the executor's queue is full.
+     * @param task Task to run.
+     * @return true if the task was (or will be) run, false if it was dropped.
+     */
+    public boolean execute(ScriptType scriptType, Runnable task) {
+        if (!enabled) {
+            return executor.execute(scriptType, task);
+        }
+
+        mailbox.add(task);
+        if (!scheduled.compareAndSet(false, true)) {
+            // LANE IS ALREADY WAITING FOR OR RUNNING ON A THREAD, IT WILL PICK UP THIS TASK
+            return true;
+        }
+        if (executor.execute(scriptType, this::drain)) {
+            return true;
+        }
+
+        // EXECUTOR REJECTED THE LANE, DROP THIS TASK BUT KEEP ANY TASKS THAT WERE ADDED IN THE MEANTIME
+        // (THEIR CALLERS WERE TOLD THEY WILL RUN)
+        mailbox.remove(task);
+        scheduled.set(false);
+        if (!mailbox.isEmpty()) {
+            schedule();
+        }
+        return false;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get the amount of tasks waiting in the lane.
+     */
+    public int getQueueDepth() {
+        return mailbox.size();
+    }
+
+    /**
+     * Put the lane back in the executor's queue to run tasks that were already accepted.
+     * The lane is never dropped or run on the calling thread, it waits for room in the queue instead.
+     */
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.resubmit(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            // ONLY RUN A LIMITED AMOUNT OF TASKS SO A BUSY DUNGEON DOESN'T HOLD ON TO A THREAD FOREVER
+            for (int i = 0; i < MAX_BATCH; i++) {
+                Runnable task = mailbox.poll();
+                if (task == null) {
+                    break;
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            if (!mailbox.isEmpty()) {
+                // MORE TASKS WERE ADDED (OR THE BATCH LIMIT WAS HIT), GO BACK IN THE EXECUTOR'S QUEUE
+                schedule();
+            }
+        }
+    }
+}
@@ -16,25 +16,21 @@ import io.github.expugn.dungeons.App;
 import io.github.expugn.dungeons.AppConstants;
 import io.github.expugn.dungeons.AppStatus;
 import io.github.expugn.dungeons.AppUtils;
+import io.github.expugn.dungeons.MainThreadQueue;
+import io.github.expugn.dungeons.MainThreadQueue.Priority;
 import io.github.expugn.dungeons.dungeons.LoadedDungeon;
 import io.github.expugn.dungeons.dungeons.PlayerState;
 import io.github.expugn.dungeons.itemdrop.ItemDrop;
-import io.github.expugn.dungeons.worlds.WorldVariables;
+import io.github.expugn.dungeons.storage.MappedStore;
 import java.io.File;
 import java.io.IOException;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import javax.script.Bindings;
-import javax.script.Compilable;
 import javax.script.CompiledScript;
-import javax.script.Invocable;
-import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
-import javax.script.SimpleScriptContext;
 import net.milkbowl.vault.economy.Economy;
 import net.milkbowl.vault.economy.EconomyResponse.ResponseType;
 import org.bukkit.Location;
@@ -43,17 +39,22 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
-import org.bukkit.scheduler.BukkitRunnable;
+import org.openjdk.nashorn.api.scripting.NashornException;
 import org.openjdk.nashorn.api.scripting.NashornScriptEngineFactory;
+import org.openjdk.nashorn.api.scripting.ScriptObjectMirror;
 
 /**
  * Manages the execution of scripts and gives functions useful for scripts to call.
+ * Every script run gets its own bindings (a separate global object), so one engine can run scripts on many threads
+ * at once without sharing state.
  * @author S'pugn
  * @version 0.3
  */
 public class ScriptManager implements Script {
+    private static final ThreadLocal<String> RUNNING_SCRIPT = new ThreadLocal<>();
     private static ScriptEngine scriptEngine;
-    private static final Lock FILE_READ_LOCK = new ReentrantLock();
+    private static ScriptCache scriptCache;
+    private static ScriptIndex scriptIndex;
 
     /**
      * Initializes the script engine.
@@ -65,6 +66,26 @@ public class ScriptManager implements Script {
         Thread.currentThread().setContextClassLoader(AppStatus.getPlugin().getClass().getClassLoader());
         scriptEngine = new NashornScriptEngineFactory().getScriptEngine("--language=es6");
         Thread.currentThread().setContextClassLoader(previous);
+        scriptCache = ScriptCache.fromConfig(scriptEngine, AppStatus.getPlugin().getConfig());
+        scriptIndex = new ScriptIndex();
+        scriptIndex.build();
+    }
+
+    public ScriptCache getScriptCache() {
+        return scriptCache;
+    }
+
+    public ScriptIndex getScriptIndex() {
+        return scriptIndex;
+    }
+
+    /**
+     * Get the script the current thread is running.
+     * Used to tell which dungeon and script added work to the {@link MainThreadQueue}.
+     * @return Owner, type and name of the running script, or null if the thread isn't running a script.
+     */
+    public static String getRunningScript() {
+        return RUNNING_SCRIPT.get();
     }
 
     private ScriptInfo newScriptInfo(String scriptName, ScriptType scriptType, Player player) {
@@ -129,7 +150,7 @@ public class ScriptManager implements Script {
      */
     public boolean startScript(String scriptName, ScriptType scriptType, Player player, String functionName) {
         ScriptInfo scriptInfo = newScriptInfo(scriptName, scriptType, player);
-        if (!scriptInfo.isScriptExists()) {
+        if (!scriptIndex.exists(scriptInfo.getDirectory())) {
             // SCRIPT DOES NOT EXIST, EXIT
             return false;
         }
@@ -138,27 +159,27 @@ public class ScriptManager implements Script {
         // CREATE BINDINGS
         Bindings bindings = scriptEngine.createBindings();
         bindings.put("sm", this);
+        LoadedDungeon dungeon = null;
         if (player != null) {
             bindings.put("player", player);
             String dungeonName = AppUtils.getPlayerDungeon(player);
             Map<String, LoadedDungeon> activeDungeons = AppStatus.getActiveDungeons();
             if (activeDungeons.containsKey(dungeonName)) {
-                bindings.put("dungeon", activeDungeons.get(dungeonName));
+                dungeon = activeDungeons.get(dungeonName);
+                bindings.put("dungeon", dungeon);
             } else {
                 // PLAYER IS NOT IN DUNGEON, USE WORLD SCRIPT BINDINGS
                 bindings.put("world", player.getWorld());
-                bindings.put("variables", new WorldVariables(player.getWorld()));
+                bindings.put("variables", AppStatus.getWorldVariables(player.getWorld()));
             }
         }
         scriptInfo.setBindings(bindings);
 
         // RUN SCRIPT ASYNC
         if (functionName.isEmpty()) {
-            AppStatus.getExecutorService().execute(() -> startScript(scriptInfo));
-        } else {
-            AppStatus.getExecutorService().execute(() -> startScript(scriptInfo, functionName));
+            return execute(scriptType, dungeon, () -> startScript(scriptInfo));
         }
-        return true;
+        return execute(scriptType, dungeon, () -> startScript(scriptInfo, functionName));
     }
 
     public boolean startScript(String scriptName, ScriptType scriptType, Bindings bindings) {
@@ -178,21 +199,22 @@ public class ScriptManager implements Script {
         Object... parameters) {
 
         ScriptInfo scriptInfo = newScriptInfo(scriptName, scriptType, (Player) null);
-        if (!scriptInfo.isScriptExists()) {
+        if (!scriptIndex.exists(scriptInfo.getDirectory())) {
             // SCRIPT DOES NOT EXIST, EXIT
             return false;
         }
 
         // SET BINDINGS
-        scriptInfo.setBindings(bindings);
+        scriptInfo.setBindings(toEngineBindings(bindings));
 
         // RUN SCRIPT ASYNC
+        LoadedDungeon dungeon = bindings.get("dungeon") instanceof LoadedDungeon
+            ? (LoadedDungeon) bindings.get("dungeon")
+            : null;
         if (functionName.isEmpty()) {
-            AppStatus.getExecutorService().execute(() -> startScript(scriptInfo));
-        } else {
-            AppStatus.getExecutorService().execute(() -> startScript(scriptInfo, functionName, parameters));
+            return execute(scriptType, dungeon, () -> startScript(scriptInfo));
         }
-        return true;
+        return execute(scriptType, dungeon, () -> startScript(scriptInfo, functionName, parameters));
     }
 
     public boolean startScript(String scriptName, ScriptType scriptType, LoadedDungeon dungeon) {
@@ -209,7 +231,7 @@ public class ScriptManager implements Script {
      */
     public boolean startScript(String scriptName, ScriptType scriptType, LoadedDungeon dungeon, Bindings bindings) {
         ScriptInfo scriptInfo = newScriptInfo(scriptName, scriptType, dungeon);
-        if (!scriptInfo.isScriptExists()) {
+        if (!scriptIndex.exists(scriptInfo.getDirectory())) {
             // SCRIPT DOES NOT EXIST, EXIT
             return false;
         }
@@ -217,11 +239,24 @@ public class ScriptManager implements Script {
         // CREATE BINDINGS
         bindings.put("sm", this);
         bindings.put("dungeon", dungeon);
-        scriptInfo.setBindings(bindings);
+        scriptInfo.setBindings(toEngineBindings(bindings));
 
         // RUN SCRIPT ASYNC
-        AppStatus.getExecutorService().execute(() -> startScript(scriptInfo));
-        return true;
+        return execute(scriptType, dungeon, () -> startScript(scriptInfo));
+    }
+
+    /**
+     * Run a script task in the dungeon's script lane, or in the script executor if it isn't for a dungeon.
+     * @param scriptType Type of script.
+     * @param dungeon Dungeon the script is for, or null.
+     * @param task Task that runs the script.
+     * @return true if the script will be run, false if it was dropped.
+     */
+    private boolean execute(ScriptType scriptType, LoadedDungeon dungeon, Runnable task) {
+        if (dungeon != null) {
+            return dungeon.getScriptLane().execute(scriptType, task);
+        }
+        return AppStatus.getScriptExecutor().execute(scriptType, task);
     }
 
     /**
@@ -229,31 +264,22 @@ public class ScriptManager implements Script {
      * @param script Script information.
      */
     private void startScript(ScriptInfo script) {
-        if (!script.isScriptExists()) {
-            // SCRIPT DOES NOT EXIST
+        CompiledScript compiledScript = getCompiledScript(script);
+        if (compiledScript == null) {
+            // SCRIPT DOES NOT EXIST OR COULD NOT BE COMPILED
             // Bukkit.getLogger().warning("CANNOT FIND " + script.getDirectory());
             return;
         }
 
-        StringBuilder content = new StringBuilder();
-        CompiledScript compiledScript;
-
-        // TRY COMPILING SCRIPT
-        try {
-            FILE_READ_LOCK.lock();
-            content.append(script.readScript());
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            FILE_READ_LOCK.unlock();
-        }
-
         // TRY EVALUATING COMPILED SCRIPT
+        String previous = RUNNING_SCRIPT.get();
+        RUNNING_SCRIPT.set(describe(script));
         try {
-            compiledScript = ((Compilable) scriptEngine).compile(content.toString());
             compiledScript.eval(script.getBindings());
         } catch (ScriptException e) {
             e.printStackTrace();
+        } finally {
+            RUNNING_SCRIPT.set(previous);
         }
     }
 
@@ -265,43 +291,81 @@ public class ScriptManager implements Script {
      * @param parameters Parameters to pass to function.
      */
     private void startScript(ScriptInfo script, String functionName, Object... parameters) {
-        if (!script.isScriptExists()) {
-            // SCRIPT DOES NOT EXIST
+        CompiledScript compiledScript = getCompiledScript(script);
+        if (compiledScript == null) {
+            // SCRIPT DOES NOT EXIST OR COULD NOT BE COMPILED
             // Bukkit.getLogger().warning("CANNOT FIND " + script.getDirectory());
             return;
         }
 
-        StringBuilder content = new StringBuilder();
-        CompiledScript compiledScript;
-
-        // TRY COMPILING SCRIPT
+        // TRY EVALUATING COMPILED SCRIPT
+        String previous = RUNNING_SCRIPT.get();
+        RUNNING_SCRIPT.set(describe(script));
         try {
-            FILE_READ_LOCK.lock();
-            content.append(script.readScript());
-        } catch (IOException e) {
+            // THE SCRIPT'S FUNCTIONS ARE DEFINED IN ITS OWN BINDINGS (GLOBAL), SO THEY'RE CALLED FROM THERE INSTEAD OF
+            // SETTING THE SHARED ENGINE'S CONTEXT. SCRIPTS ON OTHER THREADS CAN'T SWAP THE CONTEXT FROM UNDER US.
+            Bindings bindings = script.getBindings();
+            compiledScript.eval(bindings);
+
+            Object function = bindings.get(functionName);
+            if (!(function instanceof ScriptObjectMirror) || !((ScriptObjectMirror) function).isFunction()) {
+                // IGNORED IN CASE THE USER DELETED SPECIAL METHODS
+                return;
+            }
+            ((ScriptObjectMirror) function).call(bindings, parameters);
+        } catch (ScriptException | NashornException e) {
             e.printStackTrace();
         } finally {
-            FILE_READ_LOCK.unlock();
+            RUNNING_SCRIPT.set(previous);
         }
+    }
 
-        // TRY EVALUATING COMPILED SCRIPT
-        try {
-            // CONTEXT IS NEEDED TO INVOKE FUNCTIONS
-            ScriptContext scriptContext = new SimpleScriptContext();
-            scriptContext.setBindings(script.getBindings(), ScriptContext.ENGINE_SCOPE);
+    /**
+     * Describe a script for log messages, for example "MyDungeon: Dungeon script onPlayerReset".
+     * @param script Script information.
+     * @return Name of the dungeon or world the script belongs to, and the script's type and name.
+     */
+    private static String describe(ScriptInfo script) {
+        Object dungeon = script.getBindings().get("dungeon");
+        Object world = script.getBindings().get("world");
+        String owner = "PartyDungeons";
+        if (dungeon instanceof LoadedDungeon) {
+            owner = ((LoadedDungeon) dungeon).getDungeon().getName();
+        } else if (world instanceof World) {
+            owner = ((World) world).getName();
+        }
+        return String.format("%s: %s script %s", owner, script.getScriptType(), script.getScriptName());
+    }
 
-            compiledScript = ((Compilable) scriptEngine).compile(content.toString());
-            compiledScript.eval(scriptContext);
+    /**
+     * Make sure bindings were created by the script engine.
+     * Functions a script defines are only put in the bindings if the bindings are the script's global object,
+     * other bindings (like SimpleBindings) are copied into new engine bindings.
+     * @param bindings Script bindings.
+     * @return Engine bindings with the same values.
+     */
+    private Bindings toEngineBindings(Bindings bindings) {
+        if (bindings instanceof ScriptObjectMirror) {
+            return bindings;
+        }
+        Bindings engineBindings = scriptEngine.createBindings();
+        engineBindings.putAll(bindings);
+        return engineBindings;
+    }
 
-            scriptEngine.setContext(scriptContext);
-            Invocable invocable = (Invocable) scriptEngine;
-            invocable.invokeFunction(functionName, parameters);
-        } catch (ScriptException e) {
+    /**
+     * Get a compiled script from the script cache.
+     * The script will only be read and compiled if it isn't cached or the file has changed.
+     * @param script Script information.
+     * @return CompiledScript, or null if the script does not exist or could not be compiled.
+     */
+    private CompiledScript getCompiledScript(ScriptInfo script) {
+        try {
+            return scriptCache.get(script);
+        } catch (IOException | ScriptException e) {
             e.printStackTrace();
-        } catch (NoSuchMethodException e) {
-            // IGNORED IN CASE THE USER DELETED SPECIAL METHODS
-            // e.printStackTrace();
         }
+        return null;
     }
 
     @Override
@@ -326,7 +390,7 @@ public class ScriptManager implements Script {
 
     @Override
     public LoadedDungeon getDungeon(Player player) {
-        return AppStatus.getActiveDungeons().get(AppStatus.getActivePlayers().get(player.getUniqueId()));
+        return AppStatus.getLoadedDungeon(AppStatus.getActivePlayers().get(player.getUniqueId()));
     }
 
     @Override
@@ -359,6 +423,16 @@ public class ScriptManager implements Script {
         return dungeon.getDungeon().getDungeonFile().getWorld();
     }
 
+    @Override
+    public MappedStore getVariableStore(LoadedDungeon dungeon) {
+        return AppStatus.getVariableStore(AppUtils.getDungeonStoreFile(dungeon.getDungeon().getName()));
+    }
+
+    @Override
+    public MappedStore getVariableStore(World world) {
+        return AppStatus.getVariableStore(AppUtils.getWorldStoreFile(world));
+    }
+
     @Override
     public Player getPlayerFromUUID(UUID uuid) {
         return AppUtils.uuidToPlayer(uuid);
@@ -453,41 +527,37 @@ public class ScriptManager implements Script {
         edit.close();
     }
 
+    @Override
+    public void runOnMainThread(String priority, Runnable task) {
+        AppStatus.getMainThreadQueue().execute(Priority.parse(priority), task);
+    }
+
     @Override
     public void clearPotionEffect(Player player, PotionEffectType... potionEffectTypes) {
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                for (PotionEffectType pet : potionEffectTypes) {
-                    if (player.hasPotionEffect(pet)) {
-                        player.removePotionEffect(pet);
-                    }
+        AppStatus.getMainThreadQueue().execute(Priority.NORMAL, () -> {
+            for (PotionEffectType pet : potionEffectTypes) {
+                if (player.hasPotionEffect(pet)) {
+                    player.removePotionEffect(pet);
                 }
             }
-        }.runTaskLater(AppStatus.getPlugin(), 0L);
+        });
     }
 
     @Override
     public void clearPotionEffect(Player player) {
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                for (PotionEffect potionEffect : player.getActivePotionEffects()) {
-                    player.removePotionEffect(potionEffect.getType());
-                }
+        AppStatus.getMainThreadQueue().execute(Priority.NORMAL, () -> {
+            for (PotionEffect potionEffect : player.getActivePotionEffects()) {
+                player.removePotionEffect(potionEffect.getType());
             }
-        }.runTaskLater(AppStatus.getPlugin(), 0L);
+        });
     }
 
     @Override
     public void addPotionEffect(Player player, int duration, int amplifier, PotionEffectType... potionEffectTypes) {
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                for (PotionEffectType pet : potionEffectTypes) {
-                    player.addPotionEffect(new PotionEffect(pet, duration, amplifier));
-                }
+        AppStatus.getMainThreadQueue().execute(Priority.NORMAL, () -> {
+            for (PotionEffectType pet : potionEffectTypes) {
+                player.addPotionEffect(new PotionEffect(pet, duration, amplifier));
             }
-        }.runTaskLater(AppStatus.getPlugin(), 0L);
+        });
     }
 }
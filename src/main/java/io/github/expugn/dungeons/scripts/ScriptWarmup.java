@@ -0,0 +1,178 @@
+package io.github.expugn.dungeons.scripts;
+
+import io.github.expugn.dungeons.AppUtils;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import javax.script.ScriptException;
+import org.bukkit.configuration.Configuration;
+
+/**
+ * Compiles scripts in the background when the plugin is enabled, so the first trigger of a script doesn't have to.
+ * Scripts are compiled in parallel into the {@link ScriptCache}. Progress is logged every quarter, scripts that took
+ * longer than the slow threshold are logged as they finish, and the slowest scripts are listed at the end.
+ * Scripts are only compiled, not run, so scripts with side effects are safe to warm up.
+ * @author S'pugn
+ * @version 0.1
+ */
+public class ScriptWarmup {
+    private static final String ENABLED_KEY = "script-warmup.enabled";
+    private static final String THREADS_KEY = "script-warmup.threads";
+    private static final String SLOW_KEY = "script-warmup.slow-ms";
+    private static final long DEFAULT_SLOW = 100L;
+    private static final int PROGRESS_STEPS = 4;
+    private static final int SLOWEST_SCRIPTS = 5;
+    private final ScriptCache scriptCache;
+    private final int threads;
+    private final long slowThreshold;
+    private final Map<Path, Long> compileTimes;
+    private final AtomicInteger finished;
+    private final AtomicInteger failed;
+    private volatile ExecutorService executor;
+    private volatile int total;
+
+    /**
+     * Construct a new script warmup.
+     * @param scriptCache Cache to compile scripts into.
+     * @param threads Amount of threads to compile scripts on.
+     * @param slowThreshold Scripts that take longer than this many milliseconds to compile are logged.
+     */
+    public ScriptWarmup(ScriptCache scriptCache, int threads, long slowThreshold) {
+        this.scriptCache = scriptCache;
+        this.threads = Math.max(1, threads);
+        this.slowThreshold = TimeUnit.MILLISECONDS.toNanos(slowThreshold);
+        this.compileTimes = new ConcurrentHashMap<>();
+        this.finished = new AtomicInteger();
+        this.failed = new AtomicInteger();
+    }
+
+    /**
+     * Create a script warmup from the plugin's config.yml.
+     * @param config Plugin configuration.
+     * @param scriptCache Cache to compile scripts into.
+     * @return A new script warmup, or null if warmup is disabled.
+     */
+    public static ScriptWarmup fromConfig(Configuration config, ScriptCache scriptCache) {
+        if (!config.getBoolean(ENABLED_KEY, true)) {
+            return null;
+        }
+        int threads = config.getInt(THREADS_KEY, Runtime.getRuntime().availableProcessors());
+        return new ScriptWarmup(scriptCache, threads, config.getLong(SLOW_KEY, DEFAULT_SLOW));
+    }
+
+    /**
+     * Start compiling scripts in the background.
+     * If there are more scripts than the cache can hold, only as many as the cache can hold are compiled.
+     * @param scripts Paths of the scripts to compile.
+     */
+    public void start(List<Path> scripts) {
+        List<Path> toCompile = scripts;
+        if (scripts.size() > scriptCache.getMaxSize()) {
+            AppUtils.consoleLog(Level.WARNING, String.format("%d scripts but the script cache only holds %d, %s",
+                scripts.size(), scriptCache.getMaxSize(), "only warming up that many. Raise script-cache.size."));
+            toCompile = scripts.subList(0, scriptCache.getMaxSize());
+        }
+        total = toCompile.size();
+        if (total == 0) {
+            return;
+        }
+
+        AppUtils.consoleLog(Level.INFO, String.format("Warming up %d script(s) on %d thread(s)...", total,
+            Math.min(threads, total)));
+        long started = System.nanoTime();
+        executor = Executors.newFixedThreadPool(Math.min(threads, total), r -> {
+            Thread thread = new Thread(r, "PartyDungeons-Warmup");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        for (Path path : toCompile) {
+            executor.execute(() -> {
+                compile(path);
+                int done = finished.incrementAndGet();
+                if (done == total) {
+                    finish(System.nanoTime() - started);
+                } else if (done % Math.max(1, total / PROGRESS_STEPS) == 0) {
+                    AppUtils.consoleLog(Level.INFO, String.format("Warming up scripts... %d/%d", done, total));
+                }
+            });
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Stop compiling scripts, scripts that are being compiled right now are still finished.
+     */
+    public void stop() {
+        ExecutorService e = executor;
+        if (e != null) {
+            e.shutdownNow();
+        }
+    }
+
+    public int getFinished() {
+        return finished.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Get how long each script took to compile.
+     * Scripts that were already cached or failed to compile are not included.
+     * @return Compile time in nanoseconds of every compiled script.
+     */
+    public Map<Path, Long> getCompileTimes() {
+        return compileTimes;
+    }
+
+    private void compile(Path path) {
+        long started = System.nanoTime();
+        try {
+            if (!scriptCache.preload(path)) {
+                // ALREADY COMPILED (TRIGGERED WHILE WARMING UP) OR DELETED
+                return;
+            }
+        } catch (IOException | ScriptException e) {
+            // BROKEN SCRIPTS ARE REPORTED WHEN THEY ARE TRIGGERED, ONLY MENTION THEM HERE
+            failed.incrementAndGet();
+            AppUtils.consoleLog(Level.WARNING, String.format("Could not compile %s: %s", path, e.getMessage()));
+            return;
+        }
+        long time = System.nanoTime() - started;
+        compileTimes.put(path, time);
+        if (time >= slowThreshold) {
+            AppUtils.consoleLog(Level.WARNING, String.format("Slow script: %s took %.1f ms to compile.",
+                path, toMillis(time)));
+        }
+    }
+
+    private void finish(long time) {
+        List<Map.Entry<Path, Long>> slowest = new ArrayList<>(compileTimes.entrySet());
+        slowest.sort(Map.Entry.<Path, Long>comparingByValue().reversed());
+        AppUtils.consoleLog(Level.INFO, String.format("Warmed up %d script(s) in %.1f ms (%d failed).",
+            compileTimes.size(), toMillis(time), failed.get()));
+        for (Map.Entry<Path, Long> entry : slowest.subList(0, Math.min(SLOWEST_SCRIPTS, slowest.size()))) {
+            AppUtils.consoleLog(Level.INFO, String.format("  %.1f ms - %s", toMillis(entry.getValue()),
+                entry.getKey()));
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        final double nanosPerMilli = 1_000_000.0;
+        return nanos / nanosPerMilli;
+    }
+}
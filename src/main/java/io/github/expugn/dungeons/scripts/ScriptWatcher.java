@@ -0,0 +1,292 @@
+package io.github.expugn.dungeons.scripts;
+
+import io.github.expugn.dungeons.AppConstants;
+import io.github.expugn.dungeons.AppUtils;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import javax.script.ScriptException;
+
+/**
+ * Watches the plugin's script directories for changes and pushes them into the {@link ScriptCache}.
+ * Only script directories are watched, so saving dungeon files, journals and variables doesn't wake the watcher.
+ * The dungeon and world directories are watched (without their contents) to find new dungeons and worlds.
+ * Changed scripts are invalidated and compiled again right away, so the next time they run they don't have to be
+ * compiled and the cache no longer has to check the script file every time a script is started.
+ * Created and deleted scripts are also pushed into the {@link ScriptIndex}.
+ * Editors tend to save files in a few steps, so events for a script are coalesced until the script has been quiet
+ * for {@link AppConstants#SCRIPT_WATCH_QUIET_PERIOD} milliseconds.
+ * If the watcher stops for any reason, the cache goes back to checking script files every time a script runs.
+ * @author S'pugn
+ * @version 0.1
+ */
+public class ScriptWatcher implements Runnable {
+    private final ScriptCache scriptCache;
+    private final ScriptIndex scriptIndex;
+    private final Path root;
+    private final List<Path> ownerDirectories;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchKeys;
+    private final Map<Path, PendingChange> pendingChanges;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Construct a new script watcher.
+     * Dungeon scripts, world scripts and scripts that aren't tied to a dungeon or world are watched.
+     * @param scriptCache Cache that changes will be pushed into.
+     * @param scriptIndex Index that created and deleted scripts will be pushed into.
+     * @throws IOException If a WatchService could not be created.
+     */
+    public ScriptWatcher(ScriptCache scriptCache, ScriptIndex scriptIndex) throws IOException {
+        this.scriptCache = scriptCache;
+        this.scriptIndex = scriptIndex;
+        this.root = AppUtils.getPluginDirectory().toPath().toAbsolutePath().normalize();
+        this.ownerDirectories = List.of(
+            AppUtils.getDungeonDirectory().toPath().toAbsolutePath().normalize(),
+            AppUtils.getWorldDirectory().toPath().toAbsolutePath().normalize());
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.watchKeys = new HashMap<>();
+        this.pendingChanges = new HashMap<>();
+    }
+
+    /**
+     * Start watching for script changes in a background thread.
+     * The {@link ScriptCache} will trust its cached scripts while the watcher is running.
+     * @throws IOException If the script directories could not be registered.
+     */
+    public void start() throws IOException {
+        if (running) {
+            return;
+        }
+        registerScriptDirectory(root.resolve(AppConstants.DUNGEON_SCRIPT_DIRECTORY));
+        for (Path ownerDirectory : ownerDirectories) {
+            Files.createDirectories(ownerDirectory);
+            register(ownerDirectory);
+            try (DirectoryStream<Path> owners = Files.newDirectoryStream(ownerDirectory, Files::isDirectory)) {
+                for (Path owner : owners) {
+                    registerScriptDirectory(owner.resolve(AppConstants.DUNGEON_SCRIPT_DIRECTORY));
+                }
+            }
+        }
+
+        running = true;
+        scriptCache.setWatched(true);
+        thread = new Thread(this, "PartyDungeons-ScriptWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop watching for script changes.
+     * The {@link ScriptCache} will go back to checking script files every time a script is started.
+     */
+    public void stop() {
+        running = false;
+        scriptCache.setWatched(false);
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                // WAIT FOR EVENTS, BUT WAKE UP IN TIME TO RELOAD SCRIPTS THAT HAVE GONE QUIET
+                WatchKey key = pendingChanges.isEmpty()
+                    ? watchService.take()
+                    : watchService.poll(AppConstants.SCRIPT_WATCH_QUIET_PERIOD, TimeUnit.MILLISECONDS);
+                while (key != null) {
+                    handleKey(key);
+                    key = watchService.poll();
+                }
+                reloadQuietScripts();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // WATCHER WAS STOPPED
+            Thread.currentThread().interrupt();
+        } finally {
+            // NOTHING IS PUSHING CHANGES ANYMORE, THE CACHE HAS TO CHECK SCRIPT FILES AGAIN
+            running = false;
+            scriptCache.setWatched(false);
+        }
+    }
+
+    private void handleKey(WatchKey key) {
+        Path directory = watchKeys.get(key);
+        if (directory == null) {
+            key.cancel();
+            return;
+        }
+
+        long now = System.nanoTime();
+        try {
+            for (WatchEvent<?> event : key.pollEvents()) {
+                try {
+                    handleEvent(directory, event, now);
+                } catch (RuntimeException e) {
+                    // ONE BAD EVENT SHOULDN'T STOP THE WATCHER, OTHER SCRIPTS STILL NEED TO BE RELOADED
+                    AppUtils.consoleLog(Level.WARNING, String.format("Script watcher could not handle %s in %s.",
+                        event.context(), directory));
+                    e.printStackTrace();
+                }
+            }
+        } finally {
+            if (!key.reset()) {
+                // DIRECTORY IS NO LONGER ACCESSIBLE (DELETED)
+                watchKeys.remove(key);
+            }
+        }
+    }
+
+    private void handleEvent(Path directory, WatchEvent<?> event, long now) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            // EVENTS WERE LOST, WE CAN'T TELL WHICH SCRIPTS CHANGED SO FORGET ABOUT ALL OF THEM
+            int flushed = scriptCache.flush();
+            scriptIndex.build();
+            AppUtils.consoleLog(Level.WARNING, String.format(
+                "Script watcher overflowed, flushed %d compiled script(s).", flushed));
+            return;
+        }
+
+        Path path = directory.resolve((Path) event.context());
+        if (ownerDirectories.contains(directory)) {
+            // A DUNGEON OR WORLD DIRECTORY WAS CREATED OR DELETED, ONLY ITS SCRIPT DIRECTORY IS WATCHED
+            // SCRIPTS ADDED BEFORE IT WAS WATCHED ARE PICKED UP BY THE INDEX UPDATE
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                try {
+                    registerScriptDirectory(path.resolve(AppConstants.DUNGEON_SCRIPT_DIRECTORY));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            scriptIndex.update(path);
+            return;
+        }
+
+        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+            // NEW SCRIPT DIRECTORY
+            try {
+                registerAll(path);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            scriptIndex.update(path);
+            return;
+        }
+        if (!path.getFileName().toString().endsWith(AppConstants.SCRIPT_ENGINE_EXTENSION)) {
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                // A DIRECTORY MAY HAVE BEEN DELETED
+                scriptIndex.update(path);
+            }
+            return;
+        }
+
+        PendingChange change = pendingChanges.get(path);
+        if (change == null) {
+            pendingChanges.put(path, new PendingChange(now));
+        } else {
+            change.lastEvent = now;
+            change.events++;
+        }
+    }
+
+    private void reloadQuietScripts() {
+        long now = System.nanoTime();
+        long quietPeriod = TimeUnit.MILLISECONDS.toNanos(AppConstants.SCRIPT_WATCH_QUIET_PERIOD);
+        Iterator<Map.Entry<Path, PendingChange>> iterator = pendingChanges.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, PendingChange> entry = iterator.next();
+            PendingChange change = entry.getValue();
+            if (now - change.lastEvent < quietPeriod) {
+                // STILL BEING WRITTEN TO
+                continue;
+            }
+            iterator.remove();
+            reload(entry.getKey(), change);
+        }
+    }
+
+    private void reload(Path path, PendingChange change) {
+        String scriptName = root.relativize(path).toString();
+        try {
+            scriptIndex.update(path);
+            boolean compiled = scriptCache.reload(path);
+            long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - change.firstEvent);
+            AppUtils.consoleLog(Level.INFO, String.format("%s %s in %d ms (%d event(s) coalesced).",
+                compiled ? "Reloaded" : "Removed", scriptName, latency, change.events));
+        } catch (IOException | ScriptException | RuntimeException e) {
+            // LEAVE IT OUT OF THE CACHE, IT WILL BE COMPILED AGAIN THE NEXT TIME IT RUNS
+            scriptCache.invalidate(path);
+            AppUtils.consoleLog(Level.WARNING, String.format("Failed to reload %s: %s", scriptName, e.getMessage()));
+        }
+    }
+
+    /**
+     * Watch a dungeon's, world's or the plugin's script directory and everything in it, creating it if needed.
+     * Created up front so scripts added to a new dungeon or world are seen without watching the rest of its files.
+     * @param scriptDirectory Script directory to watch.
+     * @throws IOException If the directory could not be created or watched.
+     */
+    private void registerScriptDirectory(Path scriptDirectory) throws IOException {
+        Files.createDirectories(scriptDirectory);
+        registerAll(scriptDirectory);
+    }
+
+    private void register(Path directory) throws IOException {
+        WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        watchKeys.put(key, directory);
+    }
+
+    private void registerAll(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                register(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Burst of events for a single script that hasn't been reloaded yet.
+     */
+    private static final class PendingChange {
+        private final long firstEvent;
+        private long lastEvent;
+        private int events;
+
+        PendingChange(long firstEvent) {
+            this.firstEvent = firstEvent;
+            this.lastEvent = firstEvent;
+            this.events = 1;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.expugn.dungeons.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes files so they are never left half written.
+ * The new contents are written to a temporary file next to the target, synced to disk, and then renamed over the
+ * target. If the server crashes during a write, the target still has its old contents.
+ * Writing many files at once only syncs each directory a single time after every file has been renamed.
+ * @author S'pugn
+ * @version 0.1
+ */
+public class AtomicFileWriter {
+    private static final String TEMP_SUFFIX = ".tmp";
+    private final boolean fsync;
+    private final LongAdder syncs;
+
+    /**
+     * Construct a new atomic file writer.
+     * @param fsync true to sync files and directories to disk, false to only rely on the rename.
+     */
+    public AtomicFileWriter(boolean fsync) {
+        this.fsync = fsync;
+        this.syncs = new LongAdder();
+    }
+
+    /**
+     * Write a single file.
+     * @param target File to write.
+     * @param data File contents.
+     * @throws IOException If the file could not be written, the target is left unchanged.
+     */
+    public void write(Path target, byte[] data) throws IOException {
+        Map<Path, IOException> errors = writeAll(Map.of(target, data));
+        if (!errors.isEmpty()) {
+            throw errors.get(target);
+        }
+    }
+
+    /**
+     * Write many files as a group.
+     * Every file is written and renamed before the directories they are in are synced.
+     * A file that fails to write does not stop the other files from being written.
+     * @param files Files to write and their contents.
+     * @return Files that could not be written and why, empty if every file was written.
+     */
+    public Map<Path, IOException> writeAll(Map<Path, byte[]> files) {
+        Map<Path, IOException> errors = new LinkedHashMap<>();
+        Set<Path> directories = new LinkedHashSet<>();
+        for (Map.Entry<Path, byte[]> file : files.entrySet()) {
+            Path target = file.getKey().toAbsolutePath();
+            try {
+                replace(target, file.getValue());
+                directories.add(target.getParent());
+            } catch (IOException e) {
+                errors.put(file.getKey(), e);
+            }
+        }
+
+        if (fsync) {
+            // ONE SYNC PER DIRECTORY MAKES EVERY RENAME IN IT DURABLE
+            for (Path directory : directories) {
+                syncDirectory(directory);
+            }
+        }
+        return errors;
+    }
+
+    public boolean isFsync() {
+        return fsync;
+    }
+
+    /**
+     * Get the amount of times a file or directory was synced to disk.
+     */
+    public long getSyncCount() {
+        return syncs.sum();
+    }
+
+    private void replace(Path target, byte[] data) throws IOException {
+        Path directory = target.getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, String.format("%s.", target.getFileName()), TEMP_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (fsync) {
+                    channel.force(true);
+                    syncs.increment();
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                // FILE SYSTEM CAN'T RENAME ATOMICALLY, A PLAIN REPLACE IS STILL BETTER THAN TRUNCATING THE TARGET
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            // ONLY EXISTS IF SOMETHING WENT WRONG
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+            syncs.increment();
+        } catch (IOException e) {
+            // SOME OPERATING SYSTEMS (WINDOWS) CAN'T OPEN OR SYNC DIRECTORIES, THE RENAME IS STILL ATOMIC
+        }
+    }
+}
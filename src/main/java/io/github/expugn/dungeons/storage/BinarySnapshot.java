@@ -0,0 +1,194 @@
+package io.github.expugn.dungeons.storage;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * A compact binary encoding of a JSON tree.
+ * Files start with a header (magic number and version), followed by the root value. Every value is a one byte tag
+ * followed by its data: strings are length-prefixed UTF-8, arrays and objects are prefixed with their size.
+ * Objects are turned into a tree with Gson first, so type adapters (like
+ * {@link io.github.expugn.dungeons.dungeons.ClearRecord}) work the same way they do for JSON files.
+ * @author S'pugn
+ * @version 0.1
+ */
+public final class BinarySnapshot {
+    private static final int MAGIC = 0x50445342; // "PDSB"
+    private static final short VERSION = 1;
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte NUMBER_TEXT = 5;
+    private static final byte STRING = 6;
+    private static final byte ARRAY = 7;
+    private static final byte OBJECT = 8;
+
+    private BinarySnapshot() {
+        // NOT USED, BinarySnapshot IS A UTILITY CLASS THAT REQUIRES THIS PRIVATE CONSTRUCTOR
+    }
+
+    /**
+     * Encode a JSON tree.
+     * @param root Root of the tree.
+     * @return Encoded bytes, including the header.
+     */
+    public static byte[] write(JsonElement root) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            writeElement(out, root);
+        } catch (IOException e) {
+            // ByteArrayOutputStream NEVER THROWS
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a JSON tree.
+     * @param data Encoded bytes, including the header.
+     * @return Root of the tree.
+     * @throws IOException If the data is not a snapshot, is from a newer version, or is cut short.
+     */
+    public static JsonElement read(byte[] data) throws IOException {
+        // READ STRAIGHT FROM THE ARRAY, A DataInputStream WOULD GO THROUGH A SYNCHRONIZED CALL FOR EVERY BYTE
+        ByteBuffer in = ByteBuffer.wrap(data);
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a binary snapshot.");
+            }
+            short version = in.getShort();
+            if (version > VERSION) {
+                throw new IOException(String.format("Unsupported binary snapshot version: %d", version));
+            }
+            return readElement(in);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Binary snapshot is cut short.", e);
+        }
+    }
+
+    private static void writeElement(DataOutputStream out, JsonElement element) throws IOException {
+        if (element == null || element.isJsonNull()) {
+            out.writeByte(NULL);
+        } else if (element.isJsonObject()) {
+            JsonObject object = element.getAsJsonObject();
+            out.writeByte(OBJECT);
+            out.writeInt(object.size());
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                writeString(out, entry.getKey());
+                writeElement(out, entry.getValue());
+            }
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            out.writeByte(ARRAY);
+            out.writeInt(array.size());
+            for (JsonElement value : array) {
+                writeElement(out, value);
+            }
+        } else {
+            writePrimitive(out, element.getAsJsonPrimitive());
+        }
+    }
+
+    private static void writePrimitive(DataOutputStream out, JsonPrimitive primitive) throws IOException {
+        if (primitive.isBoolean()) {
+            out.writeByte(primitive.getAsBoolean() ? TRUE : FALSE);
+        } else if (primitive.isString()) {
+            out.writeByte(STRING);
+            writeString(out, primitive.getAsString());
+        } else {
+            Number number = primitive.getAsNumber();
+            if (number instanceof Integer || number instanceof Long || number instanceof Short
+                || number instanceof Byte) {
+                out.writeByte(LONG);
+                out.writeLong(number.longValue());
+            } else if (number instanceof Double || number instanceof Float) {
+                out.writeByte(DOUBLE);
+                out.writeDouble(number.doubleValue());
+            } else {
+                // BigDecimal, BigInteger, ETC. KEEP EVERY DIGIT
+                out.writeByte(NUMBER_TEXT);
+                writeString(out, number.toString());
+            }
+        }
+    }
+
+    private static JsonElement readElement(ByteBuffer in) throws IOException {
+        byte tag = in.get();
+        switch (tag) {
+            case NULL:
+                return JsonNull.INSTANCE;
+            case TRUE:
+                return new JsonPrimitive(true);
+            case FALSE:
+                return new JsonPrimitive(false);
+            case LONG:
+                return new JsonPrimitive(in.getLong());
+            case DOUBLE:
+                return new JsonPrimitive(in.getDouble());
+            case NUMBER_TEXT:
+                String number = readString(in);
+                try {
+                    return new JsonPrimitive(new BigDecimal(number));
+                } catch (NumberFormatException e) {
+                    throw new IOException(String.format("Invalid binary snapshot number: %s", number), e);
+                }
+            case STRING:
+                return new JsonPrimitive(readString(in));
+            case ARRAY:
+                int length = readSize(in);
+                JsonArray array = new JsonArray();
+                for (int i = 0; i < length; i++) {
+                    array.add(readElement(in));
+                }
+                return array;
+            case OBJECT:
+                int size = readSize(in);
+                JsonObject object = new JsonObject();
+                for (int i = 0; i < size; i++) {
+                    String name = readString(in);
+                    object.add(name, readElement(in));
+                }
+                return object;
+            default:
+                throw new IOException(String.format("Unknown binary snapshot tag: %d", tag));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        int length = readSize(in);
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static int readSize(ByteBuffer in) throws IOException {
+        int size = in.getInt();
+        if (size < 0 || size > in.remaining()) {
+            // EVERY ENTRY IS AT LEAST ONE BYTE, A BIGGER SIZE MEANS THE FILE IS CORRUPT
+            throw new IOException(String.format("Invalid binary snapshot size: %d", size));
+        }
+        return size;
+    }
+}
@@ -0,0 +1,359 @@
+package io.github.expugn.dungeons.storage;
+
+import io.github.expugn.dungeons.AppConstants;
+import io.github.expugn.dungeons.AppUtils;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * A key-value store for script variables, kept in a memory-mapped file.
+ * Every change appends one record to the end of the file, nothing else in the file is rewritten. An index of where
+ * each key's latest record is kept in memory, so reading or writing a single variable doesn't depend on how many
+ * variables there are.
+ * Every record is checked with a CRC32 when the store is opened. A record that was only partly written (the server
+ * crashed while writing it) is dropped along with anything after it, the rest of the store is kept as it is.
+ * Old records of changed and removed keys are only removed when the store is opened and they take up more space
+ * than the live records.
+ * Values are saved as {@link BinarySnapshot} encoded JSON trees, so they read back the same way JSON files do
+ * (numbers become doubles, objects become maps).
+ * @author S'pugn
+ * @version 0.1
+ */
+public final class MappedStore {
+    private static final int MAGIC = 0x50444b56; // "PDKV"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER = 8;      // MAGIC (4), VERSION (4)
+    private static final int RECORD_HEADER = 13;   // LENGTH (4), CRC (4), TYPE (1), KEY LENGTH (4)
+    private static final int CRC_OFFSET = 4;
+    private static final int TYPE_OFFSET = 8;
+    private static final int KEY_LENGTH_OFFSET = 9;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private final Path path;
+    private final boolean fsync;
+    private final Map<String, Integer> index;
+    private final Lock lock;
+    private FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    private int end;
+    private long garbage;
+    private boolean closed;
+
+    private MappedStore(Path path, boolean fsync) {
+        this.path = path;
+        this.fsync = fsync;
+        this.index = new ConcurrentHashMap<>();
+        this.lock = new ReentrantLock();
+    }
+
+    /**
+     * Open a store, creating the file if it doesn't exist.
+     * @param file File the store is kept in.
+     * @param fsync true to sync the store to disk when it is closed.
+     * @return The opened store.
+     * @throws IOException If the file could not be read, mapped, or is not a store.
+     */
+    public static MappedStore open(File file, boolean fsync) throws IOException {
+        MappedStore store = new MappedStore(file.toPath(), fsync);
+        store.load();
+        return store;
+    }
+
+    /**
+     * Get a variable.
+     * Every call reads the value from the store, so changing the returned object does not change the variable.
+     * @param key Variable name.
+     * @return The variable's value, or null if it doesn't exist.
+     */
+    public Object get(String key) {
+        Integer offset = index.get(key);
+        if (offset == null) {
+            return null;
+        }
+        MappedByteBuffer b = buffer;
+        int length = b.getInt(offset);
+        int keyLength = b.getInt(offset + KEY_LENGTH_OFFSET);
+        byte[] value = new byte[length - RECORD_HEADER - keyLength];
+        b.get(offset + RECORD_HEADER + keyLength, value);
+        try {
+            return AppUtils.getGson().fromJson(BinarySnapshot.read(value), Object.class);
+        } catch (IOException e) {
+            // CRC WAS CHECKED WHEN THE RECORD WAS WRITTEN OR LOADED, THIS SHOULD NEVER HAPPEN
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Check if a variable exists.
+     * @param key Variable name.
+     * @return true if the variable exists, false otherwise.
+     */
+    public boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * Set a variable.
+     * @param key Variable name.
+     * @param value Variable's new value, null removes the variable.
+     */
+    public void set(String key, Object value) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        byte[] encoded = BinarySnapshot.write(AppUtils.getGson().toJsonTree(value));
+        try {
+            lock.lock();
+            append(PUT, key, encoded);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add to a number variable in one step, so scripts running at the same time don't lose each other's changes.
+     * A variable that does not exist or is not a number starts at 0.
+     * @param key Variable name.
+     * @param amount Amount to add, can be negative.
+     * @return The variable's new value.
+     */
+    public double add(String key, double amount) {
+        try {
+            lock.lock();
+            Object old = get(key);
+            double value = (old instanceof Number ? ((Number) old).doubleValue() : 0) + amount;
+            append(PUT, key, BinarySnapshot.write(AppUtils.getGson().toJsonTree(value)));
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove a variable.
+     * @param key Variable name.
+     */
+    public void remove(String key) {
+        try {
+            lock.lock();
+            if (index.containsKey(key)) {
+                append(REMOVE, key, new byte[0]);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get every variable name.
+     * @return Read-only view of the variable names.
+     */
+    public Set<String> keys() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    /**
+     * Get the amount of variables.
+     * @return Amount of variables.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Get the amount of bytes used by old records of changed or removed variables.
+     * @return Bytes that will be removed the next time the store is compacted.
+     */
+    public long getGarbage() {
+        return garbage;
+    }
+
+    /**
+     * Close the store, syncing it to disk if fsync is enabled.
+     * Variables can still be read after the store is closed, but not changed.
+     */
+    public void close() {
+        try {
+            lock.lock();
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (fsync) {
+                buffer.force();
+            }
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void load() throws IOException {
+        byte[] data = Files.exists(path) ? Files.readAllBytes(path) : new byte[0];
+        boolean created = data.length == 0;
+        boolean torn = false;
+        if (created) {
+            end = FILE_HEADER;
+        } else {
+            ByteBuffer in = ByteBuffer.wrap(data);
+            if (data.length < FILE_HEADER || in.getInt(0) != MAGIC) {
+                throw new IOException(String.format("%s is not a variable store.", path));
+            }
+            torn = !scan(in);
+            if (torn) {
+                AppUtils.consoleLog(Level.WARNING, String.format("%s has a corrupt or partly written record, %s",
+                    path, "ignoring the rest of the store."));
+            }
+            if (garbage > end - garbage && garbage > AppConstants.MAPPED_STORE_COMPACT_BYTES) {
+                data = compact(data);
+                torn = false;
+            }
+        }
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        map(Math.max(AppConstants.MAPPED_STORE_INITIAL_SIZE, Math.min(Integer.MAX_VALUE, (long) end * 2)));
+        if (created) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(Integer.BYTES, VERSION);
+        }
+        if (torn) {
+            // CLEAR WHAT'S LEFT OF THE PARTLY WRITTEN RECORD, NEW RECORDS WILL BE APPENDED HERE
+            for (int i = end; i < Math.min(data.length, buffer.capacity()); i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Build the index from every record in the file.
+     * @param in File contents.
+     * @return true if every record was read, false if the file ends with a corrupt record.
+     */
+    private boolean scan(ByteBuffer in) {
+        int position = FILE_HEADER;
+        CRC32 crc = new CRC32();
+        // A RECORD CUT OFF INSIDE ITS HEADER IS TORN TOO, ITS LENGTH IS BIGGER THAN WHAT IS LEFT OF THE FILE
+        while (position + Integer.BYTES <= in.limit()) {
+            int length = in.getInt(position);
+            if (length == 0) {
+                // END OF THE STORE, THE REST OF THE FILE IS EMPTY SPACE
+                break;
+            }
+            if (length < RECORD_HEADER || length > in.limit() - position) {
+                end = position;
+                return false;
+            }
+            crc.reset();
+            crc.update(in.array(), position + TYPE_OFFSET, length - TYPE_OFFSET);
+            int keyLength = in.getInt(position + KEY_LENGTH_OFFSET);
+            if ((int) crc.getValue() != in.getInt(position + CRC_OFFSET) || keyLength < 0
+                || keyLength > length - RECORD_HEADER) {
+                end = position;
+                return false;
+            }
+
+            String key = new String(in.array(), position + RECORD_HEADER, keyLength, StandardCharsets.UTF_8);
+            Integer old = in.get(position + TYPE_OFFSET) == PUT ? index.put(key, position) : index.remove(key);
+            if (old != null) {
+                garbage += in.getInt(old);
+            }
+            if (in.get(position + TYPE_OFFSET) == REMOVE) {
+                garbage += length;
+            }
+            position += length;
+        }
+        end = position;
+        return true;
+    }
+
+    /**
+     * Rewrite the file with only the latest record of every variable.
+     * The new file is written with an {@link AtomicFileWriter} before the store is mapped.
+     * @param data Old file contents.
+     * @return New file contents.
+     * @throws IOException If the new file could not be written.
+     */
+    private byte[] compact(byte[] data) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        ByteBuffer out = ByteBuffer.allocate((int) (end - garbage));
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        for (Map.Entry<String, Integer> entry : index.entrySet()) {
+            int offset = entry.getValue();
+            int length = in.getInt(offset);
+            entry.setValue(out.position());
+            out.put(data, offset, length);
+        }
+        AppUtils.consoleLog(Level.INFO, String.format("Compacted %s (%d bytes removed).", path, garbage));
+        new AtomicFileWriter(fsync).write(path, out.array());
+        end = out.position();
+        garbage = 0;
+        return out.array();
+    }
+
+    private void append(byte type, String key, byte[] value) {
+        if (closed) {
+            throw new IllegalStateException(String.format("%s is closed.", path));
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int length = RECORD_HEADER + keyBytes.length + value.length;
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(length);
+        record.putInt(0);
+        record.put(type);
+        record.putInt(keyBytes.length);
+        record.put(keyBytes);
+        record.put(value);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), TYPE_OFFSET, length - TYPE_OFFSET);
+        record.putInt(CRC_OFFSET, (int) crc.getValue());
+
+        try {
+            long needed = (long) end + length;
+            if (needed > buffer.capacity()) {
+                map(needed > Integer.MAX_VALUE ? needed : Math.min(Integer.MAX_VALUE, needed * 2));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("%s could not grow.", path), e);
+        }
+        buffer.put(end, record.array());
+
+        // PUBLISH THE NEW RECORD ONLY AFTER IT IS WRITTEN, READERS DON'T TAKE THE LOCK
+        Integer old = type == PUT ? index.put(key, end) : index.remove(key);
+        if (old != null) {
+            garbage += buffer.getInt(old);
+        }
+        if (type == REMOVE) {
+            garbage += length;
+        }
+        end += length;
+    }
+
+    private void map(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException(String.format("%s is too big to map.", path));
+        }
+        // MAPPING PAST THE END OF THE FILE GROWS IT, OLD MAPPINGS STAY VALID FOR READERS THAT STILL HAVE THEM
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+}
@@ -0,0 +1,16 @@
+package io.github.expugn.dungeons.storage;
+
+/**
+ * Something that can be saved to a file by {@link WriteBehind}.
+ * @author S'pugn
+ * @version 0.1
+ */
+@FunctionalInterface
+public interface Persistable {
+    /**
+     * Serialize the current state so it can be written to a file.
+     * This is called on the thread that marks the file as dirty, so it can read the state it just changed.
+     * @return File contents.
+     */
+    byte[] serialize();
+}
@@ -0,0 +1,248 @@
+package io.github.expugn.dungeons.storage;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import io.github.expugn.dungeons.AppStatus;
+import io.github.expugn.dungeons.AppUtils;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.logging.Level;
+import org.bukkit.configuration.Configuration;
+
+/**
+ * File format used to save dungeon files and the reset file.
+ * JSON files can be edited by hand, binary files are about 10% smaller. Binary files are not faster to load, they
+ * are turned into a JSON tree before Gson reads them (see SnapshotFormatBenchmark).
+ * Both formats are always readable. Whichever of the two files was saved last is loaded, and it is converted to the
+ * configured format if it is in the other one. To edit a binary file by hand, switch back to JSON (the file is
+ * exported the next time it is loaded) or edit the old JSON file (it is newer, so it is imported).
+ * @author S'pugn
+ * @version 0.1
+ */
+public enum SnapshotFormat {
+    /**
+     * Pretty printed JSON.
+     */
+    JSON(".json"),
+
+    /**
+     * {@link BinarySnapshot} encoded JSON tree.
+     */
+    BINARY(".bin");
+
+    private static final String FORMAT_KEY = "storage.format";
+    private final String extension;
+
+    SnapshotFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Get the snapshot format from the plugin's config.yml.
+     * @param config Plugin configuration.
+     * @return Configured snapshot format, JSON if the value is invalid.
+     */
+    public static SnapshotFormat fromConfig(Configuration config) {
+        String format = config.getString(FORMAT_KEY, "json");
+        try {
+            return SnapshotFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            AppUtils.consoleLog(Level.WARNING, String.format("Invalid %s value \"%s\", using json.",
+                FORMAT_KEY, format));
+            return JSON;
+        }
+    }
+
+    /**
+     * Get the file a snapshot is saved to in this format.
+     * @param file The snapshot's file, in any format (for example config.json).
+     * @return Same file with this format's extension (for example config.bin).
+     */
+    public File getFile(File file) {
+        String name = file.getName();
+        for (SnapshotFormat format : values()) {
+            if (name.endsWith(format.extension)) {
+                name = name.substring(0, name.length() - format.extension.length());
+                break;
+            }
+        }
+        return new File(file.getParentFile(), name + extension);
+    }
+
+    /**
+     * Serialize an object in this format.
+     * @param src Object to serialize.
+     * @return File contents.
+     */
+    public byte[] serialize(Object src) {
+        if (this == BINARY) {
+            return BinarySnapshot.write(AppUtils.getGson().toJsonTree(src));
+        }
+        return AppUtils.getGson().toJson(src).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read a snapshot, converting it to this format if the latest save is in a different format.
+     * @param file The snapshot's file, in any format.
+     * @param type Type of the snapshot.
+     * @param <T> Type of the snapshot.
+     * @return The snapshot, or null if it does not exist or could not be read.
+     */
+    public <T> T read(File file, Class<T> type) {
+        SnapshotFormat latest = getLatest(file);
+        if (latest == null) {
+            // FILE DOES NOT EXIST IN ANY FORMAT
+            return null;
+        }
+
+        T snapshot;
+        try {
+            snapshot = latest.deserialize(latest.getFile(file), type);
+        } catch (IOException | JsonParseException e) {
+            // FILE COULD NOT BE READ OR IS CORRUPT
+            e.printStackTrace();
+            return null;
+        }
+
+        if (snapshot != null && latest != this) {
+            // CONVERT TO THE CONFIGURED FORMAT, THE OLD FILE IS LEFT AS IT IS
+            AppUtils.consoleLog(Level.INFO, String.format("Converting %s to %s.",
+                latest.getFile(file).getPath(), getFile(file).getName()));
+            AppStatus.getWriteBehind().writeNow(getFile(file), () -> serialize(snapshot));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Check if the latest save of a snapshot is in this format, so it can be read without converting it.
+     * @param file The snapshot's file, in any format.
+     * @return true if the latest save is in this format, false if it is in another format or does not exist.
+     */
+    public boolean isLatest(File file) {
+        return getLatest(file) == this;
+    }
+
+    /**
+     * Read a snapshot in this format without some of its top level fields, they can be read later with
+     * {@link #readField(File, String, Type)}. JSON files skip over the fields without parsing them, binary files are
+     * still decoded completely. Unlike {@link #read(File, Class)}, the snapshot is never converted.
+     * @param file The snapshot's file, in any format.
+     * @param type Type of the snapshot.
+     * @param skippedFields Names of the top level fields to leave out.
+     * @param <T> Type of the snapshot.
+     * @return The snapshot without the skipped fields, or null if it does not exist or could not be read.
+     */
+    public <T> T readWithout(File file, Class<T> type, Set<String> skippedFields) {
+        File own = getFile(file);
+        if (!own.exists()) {
+            return null;
+        }
+        try {
+            JsonObject json;
+            if (this == BINARY) {
+                json = BinarySnapshot.read(Files.readAllBytes(own.toPath())).getAsJsonObject();
+                skippedFields.forEach(json::remove);
+            } else {
+                json = new JsonObject();
+                try (JsonReader reader = newJsonReader(own)) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String name = reader.nextName();
+                        if (skippedFields.contains(name)) {
+                            reader.skipValue();
+                        } else {
+                            json.add(name, JsonParser.parseReader(reader));
+                        }
+                    }
+                    reader.endObject();
+                }
+            }
+            return AppUtils.getGson().fromJson(json, type);
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            // FILE COULD NOT BE READ OR IS CORRUPT (IllegalStateException IF IT ISN'T A JSON OBJECT)
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Read a single top level field of a snapshot saved in this format.
+     * @param file The snapshot's file, in any format.
+     * @param name Name of the field.
+     * @param type Type of the field.
+     * @param <T> Type of the field.
+     * @return The field's value, or null if the snapshot doesn't have it.
+     * @throws IOException If the file could not be read.
+     * @throws JsonParseException If the file or the field is corrupt.
+     */
+    public <T> T readField(File file, String name, Type type) throws IOException {
+        File own = getFile(file);
+        try {
+            if (this == BINARY) {
+                JsonElement field = BinarySnapshot.read(Files.readAllBytes(own.toPath())).getAsJsonObject().get(name);
+                return AppUtils.getGson().fromJson(field, type);
+            }
+            try (JsonReader reader = newJsonReader(own)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals(name)) {
+                        return AppUtils.getGson().fromJson(reader, type);
+                    }
+                    reader.skipValue();
+                }
+            }
+            return null;
+        } catch (IllegalStateException e) {
+            // NOT A JSON OBJECT
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static JsonReader newJsonReader(File file) throws IOException {
+        JsonReader reader = new JsonReader(Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8));
+        // AS LENIENT AS Gson.fromJson
+        reader.setLenient(true);
+        return reader;
+    }
+
+    private <T> T deserialize(File file, Class<T> type) throws IOException {
+        if (this == BINARY) {
+            return AppUtils.getGson().fromJson(BinarySnapshot.read(Files.readAllBytes(file.toPath())), type);
+        }
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return AppUtils.getGson().fromJson(reader, type);
+        }
+    }
+
+    /**
+     * Get the format of the snapshot that was saved last.
+     * If both files were saved at the same time, this format is preferred.
+     * @param file The snapshot's file, in any format.
+     * @return Format of the latest save, or null if the snapshot does not exist in any format.
+     */
+    private SnapshotFormat getLatest(File file) {
+        File own = getFile(file);
+        SnapshotFormat latest = own.exists() ? this : null;
+        long latestModified = own.exists() ? own.lastModified() : 0;
+        for (SnapshotFormat format : values()) {
+            File formatFile = format.getFile(file);
+            if (format == this || !formatFile.exists()) {
+                continue;
+            }
+            if (latest == null || formatFile.lastModified() > latestModified) {
+                latest = format;
+                latestModified = formatFile.lastModified();
+            }
+        }
+        return latest;
+    }
+}
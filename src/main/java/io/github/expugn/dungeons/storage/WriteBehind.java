@@ -0,0 +1,286 @@
+package io.github.expugn.dungeons.storage;
+
+import io.github.expugn.dungeons.AppConstants;
+import io.github.expugn.dungeons.AppUtils;
+import io.github.expugn.dungeons.scripts.LatencyRecorder;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import org.bukkit.configuration.Configuration;
+
+/**
+ * Saves files in the background instead of every time they change.
+ * Changed files are marked as dirty and written on a fixed interval, so many changes to the same file between
+ * flushes only cause a single write. Every dirty file is also written when the plugin is disabled.
+ * Files are written with an {@link AtomicFileWriter}, every file in a flush is written as one group.
+ * A file's contents are serialized when it is marked as dirty, on the thread that changed it, so the writer's thread
+ * never reads state that other threads are still changing. Files that fail to write are kept for the next flush.
+ * @author S'pugn
+ * @version 0.1
+ */
+public class WriteBehind {
+    private static final String INTERVAL_KEY = "storage.write-behind-interval-ms";
+    private static final String FSYNC_KEY = "storage.fsync";
+    private final long interval;
+    private final AtomicFileWriter fileWriter;
+    private final Map<File, byte[]> dirty;
+    private final ScheduledExecutorService scheduler;
+    private final Lock flushLock;
+    private final LongAdder marked;
+    private final LongAdder writes;
+    private final LongAdder bytesWritten;
+    private final LatencyRecorder flushTimes;
+
+    /**
+     * Construct a new write-behind writer.
+     * @param interval Time in milliseconds between flushes, 0 or less to write files right away.
+     * @param fileWriter Writer used to write files.
+     */
+    public WriteBehind(long interval, AtomicFileWriter fileWriter) {
+        this.interval = interval;
+        this.fileWriter = fileWriter;
+        this.dirty = new ConcurrentHashMap<>();
+        this.flushLock = new ReentrantLock();
+        this.marked = new LongAdder();
+        this.writes = new LongAdder();
+        this.bytesWritten = new LongAdder();
+        this.flushTimes = new LatencyRecorder(AppConstants.SCRIPT_EXECUTOR_LATENCY_SAMPLES);
+        if (interval > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "PartyDungeons-WriteBehind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.scheduler.scheduleWithFixedDelay(this::scheduledFlush, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Create a write-behind writer from the plugin's config.yml.
+     * @param config Plugin configuration.
+     * @return A new write-behind writer.
+     */
+    public static WriteBehind fromConfig(Configuration config) {
+        long interval = config.getLong(INTERVAL_KEY, AppConstants.STORAGE_WRITE_BEHIND_INTERVAL);
+        boolean fsync = config.getBoolean(FSYNC_KEY, true);
+        AppUtils.consoleLog(Level.INFO, String.format("%s (fsync: %s).", interval > 0
+            ? String.format("Saving files every %d ms", interval)
+            : "Saving files right away", fsync));
+        return new WriteBehind(interval, new AtomicFileWriter(fsync));
+    }
+
+    /**
+     * Mark a file as changed, it will be written on the next flush.
+     * The file's contents are serialized right away, if the file is already waiting to be written it is only written
+     * once, with the newest contents.
+     * @param file File to write.
+     * @param persistable What to write to the file.
+     */
+    public void markDirty(File file, Persistable persistable) {
+        marked.increment();
+        if (scheduler == null || scheduler.isShutdown()) {
+            // WRITE-BEHIND IS DISABLED OR THE PLUGIN IS SHUTTING DOWN, WRITE RIGHT AWAY
+            writeNow(file, persistable);
+            return;
+        }
+        byte[] data = serialize(file, persistable);
+        if (data != null) {
+            dirty.put(file, data);
+        }
+    }
+
+    /**
+     * Write a file right away, skipping the write-behind interval.
+     * Used for files that must be on disk before anything else happens.
+     * Older contents still waiting to be written are replaced, so a later flush can't write them over this file.
+     * If the write fails the contents are kept for the next flush.
+     * @param file File to write.
+     * @param persistable What to write to the file.
+     * @return true if the file was written, false if it could not be serialized or written.
+     */
+    public boolean writeNow(File file, Persistable persistable) {
+        try {
+            flushLock.lock();
+            // SERIALIZE AFTER DROPPING THE OLD CONTENTS, SO WHAT IS WRITTEN IS AT LEAST AS NEW AS WHAT WAS DROPPED
+            dirty.remove(file);
+            byte[] data = serialize(file, persistable);
+            if (data == null) {
+                return false;
+            }
+            Map<File, byte[]> batch = new HashMap<>();
+            batch.put(file, data);
+            long started = System.nanoTime();
+            boolean written = write(batch);
+            flushTimes.record(System.nanoTime() - started);
+            return written;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Write every dirty file now.
+     * Called on the writer's interval, before dungeons are loaded from disk, and when the plugin is disabled.
+     */
+    public void flush() {
+        try {
+            flushLock.lock();
+            if (dirty.isEmpty()) {
+                return;
+            }
+            long started = System.nanoTime();
+            Map<File, byte[]> batch = new HashMap<>();
+            for (File file : dirty.keySet()) {
+                byte[] data = dirty.remove(file);
+                if (data != null) {
+                    batch.put(file, data);
+                }
+            }
+            write(batch);
+            flushTimes.record(System.nanoTime() - started);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Forget a dirty file without writing it.
+     * Used when the file on disk was replaced and should be kept as it is. Waits for a flush that is already running,
+     * so the old contents are never written after this returns.
+     * @param file File to forget.
+     * @return true if the file was waiting to be written.
+     */
+    public boolean discard(File file) {
+        try {
+            flushLock.lock();
+            return dirty.remove(file) != null;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Stop the writer's interval and write every dirty file.
+     * Files marked as dirty after this are written right away.
+     */
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(AppConstants.STORAGE_SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Flush on the writer's interval.
+     * An exception thrown out of a scheduled task silently cancels it, so nothing is allowed to leave this method.
+     */
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            AppUtils.consoleLog(Level.SEVERE, "Write-behind flush failed, dirty files will be written next flush.");
+            e.printStackTrace();
+        }
+    }
+
+    private byte[] serialize(File file, Persistable persistable) {
+        try {
+            return persistable.serialize();
+        } catch (RuntimeException e) {
+            // NOTHING TO WRITE, THE FILE IS WRITTEN THE NEXT TIME IT IS MARKED AS DIRTY
+            AppUtils.consoleLog(Level.SEVERE, String.format("Could not serialize %s.", file.getName()));
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Write a batch of files, files that fail to write are kept for the next flush.
+     * @param batch Files to write and their contents.
+     * @return true if every file was written.
+     */
+    private boolean write(Map<File, byte[]> batch) {
+        Map<Path, byte[]> files = new HashMap<>();
+        for (Map.Entry<File, byte[]> entry : batch.entrySet()) {
+            files.put(entry.getKey().toPath(), entry.getValue());
+        }
+
+        Map<Path, IOException> errors;
+        try {
+            errors = fileWriter.writeAll(files);
+        } catch (RuntimeException e) {
+            // KEEP THE WHOLE BATCH FOR THE NEXT FLUSH, NEWER CONTENTS MARKED SINCE THEN ARE KEPT INSTEAD
+            AppUtils.consoleLog(Level.SEVERE, String.format("Could not write %d file(s).", batch.size()));
+            e.printStackTrace();
+            for (Map.Entry<File, byte[]> entry : batch.entrySet()) {
+                dirty.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+            return false;
+        }
+        boolean written = true;
+        for (Map.Entry<File, byte[]> entry : batch.entrySet()) {
+            IOException error = errors.get(entry.getKey().toPath());
+            if (error != null) {
+                // TRY AGAIN NEXT FLUSH, UNLESS THE FILE WAS MARKED AS DIRTY AGAIN WITH NEWER CONTENTS
+                error.printStackTrace();
+                dirty.putIfAbsent(entry.getKey(), entry.getValue());
+                written = false;
+                continue;
+            }
+            writes.increment();
+            bytesWritten.add(entry.getValue().length);
+        }
+        return written;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    public AtomicFileWriter getFileWriter() {
+        return fileWriter;
+    }
+
+    public int getDirtyCount() {
+        return dirty.size();
+    }
+
+    /**
+     * Get the amount of times a file was marked as dirty.
+     */
+    public long getMarkedCount() {
+        return marked.sum();
+    }
+
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * Get how long flushes took.
+     */
+    public LatencyRecorder getFlushTimes() {
+        return flushTimes;
+    }
+}
@@ -1,17 +1,24 @@
 package io.github.expugn.dungeons.worlds;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import io.github.expugn.dungeons.AppStatus;
 import io.github.expugn.dungeons.AppUtils;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.bukkit.World;
 
 /**
  * Manages the variables.json file for world directories.
+ * There is one instance per world (see {@link AppStatus#getWorldVariables(World)}), loaded from the file the first
+ * time a world script needs it. Variables can be used from any script thread at the same time, changes are saved
+ * in the background by {@link io.github.expugn.dungeons.storage.WriteBehind}.
+ * Changes made to the file while it is loaded are only seen after {@link AppStatus#reloadWorldVariables()}.
+ * Variables can't be null, setting a variable to null removes it.
  * @author S'pugn
  * @version 0.1
  */
@@ -22,11 +29,37 @@ public class WorldVariables {
 
     public WorldVariables(World world) {
         this.world = world;
-        variables = new HashMap<>();
+        variables = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Load a world's variables from its variables.json file.
+     * @param world World to load the variables of.
+     * @return The world's variables, empty if the file does not exist or could not be read.
+     */
+    public static WorldVariables load(World world) {
+        WorldVariables worldVariables = new WorldVariables(world);
+        File file = AppUtils.getWorldVariableFile(world);
+        if (!file.exists()) {
+            // FILE DOES NOT EXIST
+            return worldVariables;
+        }
+
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            WorldVariables saved = AppUtils.getGson().fromJson(reader, WorldVariables.class);
+            if (saved != null && saved.variables != null) {
+                saved.variables.forEach(worldVariables::putValue);
+            }
+        } catch (IOException | JsonParseException e) {
+            // FILE COULD NOT BE READ OR IS CORRUPT
+            e.printStackTrace();
+        }
+        return worldVariables;
     }
 
     /**
      * Get a Map of persisting world variables.
+     * Changes made directly to this map are not saved until {@link #saveJSON()} is called.
      * @return Map of world variables.
      */
     public Map<String, Object> get() {
@@ -42,14 +75,82 @@ public class WorldVariables {
         return this.variables.get(variableName);
     }
 
+    /**
+     * Check if a world variable exists.
+     * @param variableName Key to check.
+     * @return true if the variable exists, false otherwise.
+     */
+    public boolean contains(String variableName) {
+        return this.variables.containsKey(variableName);
+    }
+
+    /**
+     * Get a world variable as a String.
+     * @param variableName Key the object was stored in.
+     * @param defaultValue Value to return if the variable does not exist.
+     * @return Variable's value as a String, or defaultValue.
+     */
+    public String getString(String variableName, String defaultValue) {
+        Object value = this.variables.get(variableName);
+        return value != null ? value.toString() : defaultValue;
+    }
+
+    /**
+     * Get a world variable as a double.
+     * Numbers read from variables.json are always doubles, this works for any number.
+     * @param variableName Key the object was stored in.
+     * @param defaultValue Value to return if the variable does not exist or is not a number.
+     * @return Variable's value as a double, or defaultValue.
+     */
+    public double getDouble(String variableName, double defaultValue) {
+        Object value = this.variables.get(variableName);
+        return value instanceof Number ? ((Number) value).doubleValue() : defaultValue;
+    }
+
+    /**
+     * Get a world variable as an int.
+     * @param variableName Key the object was stored in.
+     * @param defaultValue Value to return if the variable does not exist or is not a number.
+     * @return Variable's value as an int (decimals are dropped), or defaultValue.
+     */
+    public int getInt(String variableName, int defaultValue) {
+        Object value = this.variables.get(variableName);
+        return value instanceof Number ? ((Number) value).intValue() : defaultValue;
+    }
+
+    /**
+     * Get a world variable as a boolean.
+     * @param variableName Key the object was stored in.
+     * @param defaultValue Value to return if the variable does not exist or is not a boolean.
+     * @return Variable's value as a boolean, or defaultValue.
+     */
+    public boolean getBoolean(String variableName, boolean defaultValue) {
+        Object value = this.variables.get(variableName);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+
     /**
      * Set a world variable to an object.
      * @param variableName Map Key to save to.
-     * @param value Object value to save.
+     * @param value Object value to save, null removes the variable.
      */
     public void set(String variableName, Object value) {
-        this.variables.put(variableName, value);
+        putValue(variableName, value);
+        saveJSON();
+    }
+
+    /**
+     * Add to a number world variable in one step, so scripts running at the same time don't lose each other's changes.
+     * A variable that does not exist or is not a number starts at 0.
+     * @param variableName Map Key to add to.
+     * @param amount Amount to add, can be negative.
+     * @return The variable's new value.
+     */
+    public double add(String variableName, double amount) {
+        Object value = this.variables.compute(variableName, (key, old) ->
+            (old instanceof Number ? ((Number) old).doubleValue() : 0) + amount);
         saveJSON();
+        return (Double) value;
     }
 
     /**
@@ -62,25 +163,29 @@ public class WorldVariables {
     }
 
     /**
-     * Save the world variable file, given a file location.
+     * Get the world's variables.json file.
+     * @return File the variables are saved to.
+     */
+    public File getFile() {
+        return AppUtils.getWorldVariableFile(world);
+    }
+
+    /**
+     * Save the world variable file.
+     * The file is marked as dirty and written on the next write-behind flush, so many changes in a short time
+     * only write the file once.
      */
     public void saveJSON() {
-        File file = AppUtils.getWorldVariableFile(world);
-        if (!file.exists()) {
-            // CREATE FILE IF IT DOESN'T EXIST
-            try {
-                file.createNewFile();
-            } catch (IOException e) {
-                e.printStackTrace();
-                return;
-            }
-        }
+        AppStatus.getWriteBehind().markDirty(getFile(),
+            () -> AppUtils.getGson().toJson(this).getBytes(StandardCharsets.UTF_8));
+    }
 
-        Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        try (FileWriter writer = new FileWriter(file)) {
-            gson.toJson(this, writer);
-        } catch (IOException e) {
-            e.printStackTrace();
+    private void putValue(String variableName, Object value) {
+        if (value == null) {
+            // ConcurrentHashMap CAN'T HOLD NULL VALUES
+            this.variables.remove(variableName);
+            return;
         }
+        this.variables.put(variableName, value);
     }
 }
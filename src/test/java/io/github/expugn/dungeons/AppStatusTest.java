@@ -0,0 +1,195 @@
+package io.github.expugn.dungeons;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.expugn.dungeons.dungeons.PlayerState;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the active player and dungeon registries in {@link AppStatus}, used by many threads at once.
+ * @author S'pugn
+ * @version 0.1
+ */
+class AppStatusTest {
+    private static final int THREADS = 8;
+    private static final int PLAYERS = 2_000;
+    private static final int PLAYERS_PER_THREAD = 64;
+    private static final int ROUNDS = 20_000;
+    private static final long TIMEOUT_SECONDS = 60L;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        AppStatus.initRegistries();
+        executor = Executors.newFixedThreadPool(THREADS + 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void contestedJoinsHaveOneWinner() throws Exception {
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            players.add(newPlayer(UUID.randomUUID()));
+        }
+        AtomicReferenceArray<String> winners = new AtomicReferenceArray<>(PLAYERS);
+
+        runAll(thread -> () -> {
+            String dungeonName = String.format("dungeon-%d", thread);
+            for (int i = 0; i < PLAYERS; i++) {
+                if (AppUtils.playerJoinDungeon(players.get(i), dungeonName)) {
+                    // ONLY ONE THREAD CAN WIN EACH PLAYER
+                    assertTrue(winners.compareAndSet(i, null, dungeonName),
+                        String.format("player %d joined twice", i));
+                }
+            }
+            return null;
+        });
+
+        Map<UUID, String> activePlayers = AppStatus.getActivePlayers();
+        assertEquals(PLAYERS, activePlayers.size());
+        for (int i = 0; i < PLAYERS; i++) {
+            assertEquals(winners.get(i), activePlayers.get(players.get(i).getUniqueId()));
+        }
+    }
+
+    @Test
+    void joinsAndLeavesLoseNoUpdates() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Player> allPlayers = new ArrayList<>();
+        List<List<Player>> playersByThread = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            List<Player> players = new ArrayList<>();
+            for (int i = 0; i < PLAYERS_PER_THREAD; i++) {
+                players.add(newPlayer(UUID.randomUUID()));
+            }
+            playersByThread.add(players);
+            allPlayers.addAll(players);
+        }
+
+        // READ WHILE THE MAPS ARE CHANGING, PLAYERS ARE NEVER IN A LOADED DUNGEON SO THEIR STATE IS ALWAYS None
+        Future<?> reader = executor.submit(() -> {
+            while (running.get()) {
+                Player player = allPlayers.get(ThreadLocalRandom.current().nextInt(allPlayers.size()));
+                assertEquals(PlayerState.None, AppUtils.getPlayerState(player));
+                assertNull(AppStatus.getLoadedDungeon(AppStatus.getActivePlayers().get(player.getUniqueId())));
+            }
+            return null;
+        });
+
+        // EVERY THREAD KEEPS TRACK OF WHICH OF ITS OWN PLAYERS SHOULD BE ACTIVE
+        List<boolean[]> expected = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            expected.add(new boolean[PLAYERS_PER_THREAD]);
+        }
+        try {
+            runAll(thread -> () -> {
+                List<Player> players = playersByThread.get(thread);
+                boolean[] active = expected.get(thread);
+                String dungeonName = String.format("dungeon-%d", thread);
+                for (int round = 0; round < ROUNDS; round++) {
+                    int i = ThreadLocalRandom.current().nextInt(PLAYERS_PER_THREAD);
+                    if (active[i]) {
+                        assertTrue(AppUtils.playerLeaveDungeon(players.get(i)));
+                    } else {
+                        assertTrue(AppUtils.playerJoinDungeon(players.get(i), dungeonName));
+                    }
+                    active[i] = !active[i];
+                }
+                return null;
+            });
+        } finally {
+            running.set(false);
+        }
+        reader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        Map<UUID, String> activePlayers = AppStatus.getActivePlayers();
+        int expectedSize = 0;
+        for (int thread = 0; thread < THREADS; thread++) {
+            boolean[] active = expected.get(thread);
+            for (int i = 0; i < PLAYERS_PER_THREAD; i++) {
+                UUID uuid = playersByThread.get(thread).get(i).getUniqueId();
+                if (active[i]) {
+                    expectedSize++;
+                    assertEquals(String.format("dungeon-%d", thread), activePlayers.get(uuid));
+                } else {
+                    assertNull(activePlayers.get(uuid));
+                }
+            }
+        }
+        assertEquals(expectedSize, activePlayers.size());
+    }
+
+    @Test
+    void getLoadedDungeonAllowsMissingNames() {
+        assertNull(AppStatus.getLoadedDungeon(null));
+        assertNull(AppStatus.getLoadedDungeon("missing"));
+    }
+
+    /**
+     * Start the same task on every thread at once and wait for all of them, rethrowing the first failure.
+     * @param task Creates the task for a thread number.
+     */
+    private void runAll(ThreadTask task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            Callable<Void> callable = task.create(thread);
+            futures.add(executor.submit(() -> {
+                start.await();
+                return callable.call();
+            }));
+        }
+        start.countDown();
+        for (Future<Void> future : futures) {
+            future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private static Player newPlayer(UUID uuid) {
+        // ONLY getUniqueId() IS USED BY THE REGISTRIES
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[] {Player.class},
+            (proxy, method, args) -> {
+                if ("getUniqueId".equals(method.getName())) {
+                    return uuid;
+                }
+                if ("hashCode".equals(method.getName())) {
+                    return uuid.hashCode();
+                }
+                if ("equals".equals(method.getName())) {
+                    return proxy == args[0];
+                }
+                return null;
+            });
+    }
+
+    /**
+     * Creates the task a thread runs.
+     */
+    @FunctionalInterface
+    private interface ThreadTask {
+        Callable<Void> create(int thread);
+    }
+}
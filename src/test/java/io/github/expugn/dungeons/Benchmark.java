@@ -0,0 +1,52 @@
+package io.github.expugn.dungeons;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A small timing harness for the benchmark classes in the test sources.
+ * Benchmark classes end with "Benchmark" so a normal build doesn't run them (only "Test" classes are run), run one
+ * with `mvn test -Dtest=ResetClockBenchmark`. Results are printed, they are not checked.
+ * Every round is run a few times to warm up the JIT first, then the fastest of the measured runs is reported.
+ * @author S'pugn
+ * @version 0.1
+ */
+public final class Benchmark {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    private Benchmark() {
+    }
+
+    /**
+     * Time a round of operations.
+     * @param name Name printed with the result.
+     * @param operations Amount of operations one round does.
+     * @param round Runs the operations once, returns anything computed from them so they aren't optimized away.
+     * @return Nanoseconds per operation of the fastest round.
+     */
+    public static double run(String name, int operations, LongSupplier round) {
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += round.getAsLong();
+        }
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long started = System.nanoTime();
+            sink += round.getAsLong();
+            fastest = Math.min(fastest, System.nanoTime() - started);
+        }
+        double nanosPerOperation = (double) fastest / operations;
+        System.out.println(String.format("%-48s %12.1f ns/op (%d)", name, nanosPerOperation, sink));
+        return nanosPerOperation;
+    }
+
+    /**
+     * Print how much faster the new version of something is.
+     * @param name Name of what was compared.
+     * @param before Nanoseconds per operation before.
+     * @param after Nanoseconds per operation after.
+     */
+    public static void compare(String name, double before, double after) {
+        System.out.println(String.format("%-48s %12.1fx faster", name, before / after));
+    }
+}
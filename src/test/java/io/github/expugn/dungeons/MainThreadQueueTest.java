@@ -0,0 +1,180 @@
+package io.github.expugn.dungeons;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link MainThreadQueue}, driven by calling {@link MainThreadQueue#run()} once for every tick.
+ * @author S'pugn
+ * @version 0.1
+ */
+class MainThreadQueueTest {
+    private static final long NO_WARNING = 10_000L;
+    private static final long LONG_BUDGET = 10_000L;
+    private static final int ACTIONS = 5;
+    private static final long SLOW_ACTION_MILLIS = 5L;
+
+    @Test
+    void actionsLeftOverAreCarriedToTheNextTick() {
+        // NO TIME BUDGET, SO EVERY TICK ONLY RUNS THE ONE ACTION IT ALWAYS RUNS
+        MainThreadQueue queue = new MainThreadQueue(0, NO_WARNING);
+        List<Integer> ran = new ArrayList<>();
+        for (int i = 0; i < ACTIONS; i++) {
+            int action = i;
+            queue.execute(MainThreadQueue.Priority.NORMAL, "test", () -> ran.add(action));
+        }
+
+        for (int tick = 1; tick <= ACTIONS; tick++) {
+            queue.run();
+            assertEquals(tick, ran.size());
+            assertEquals(ACTIONS - tick, queue.getQueueDepth());
+        }
+        assertEquals(inOrder(ACTIONS), ran);
+        assertEquals(ACTIONS - 1, queue.getCarriedOver());
+        assertEquals(ACTIONS, queue.getRan());
+
+        // NOTHING LEFT TO RUN
+        queue.run();
+        assertEquals(ACTIONS, queue.getRan());
+        assertEquals(ACTIONS - 1, queue.getCarriedOver());
+    }
+
+    @Test
+    void everyActionRunsInOneTickWithinBudget() {
+        MainThreadQueue queue = new MainThreadQueue(LONG_BUDGET, NO_WARNING);
+        List<Integer> ran = new ArrayList<>();
+        for (int i = 0; i < ACTIONS; i++) {
+            int action = i;
+            queue.execute(MainThreadQueue.Priority.NORMAL, "test", () -> ran.add(action));
+        }
+
+        queue.run();
+        assertEquals(inOrder(ACTIONS), ran);
+        assertEquals(0, queue.getCarriedOver());
+        assertEquals(0, queue.getQueueDepth());
+    }
+
+    @Test
+    void slowActionStillRunsOneActionEveryTick() {
+        // EVERY ACTION TAKES LONGER THAN THE WHOLE BUDGET
+        MainThreadQueue queue = new MainThreadQueue(1, NO_WARNING);
+        List<Integer> ran = new ArrayList<>();
+        for (int i = 0; i < ACTIONS; i++) {
+            int action = i;
+            queue.execute(MainThreadQueue.Priority.NORMAL, "test", () -> {
+                sleep(SLOW_ACTION_MILLIS);
+                ran.add(action);
+            });
+        }
+
+        for (int tick = 1; tick <= ACTIONS; tick++) {
+            queue.run();
+            assertEquals(tick, ran.size());
+        }
+        assertEquals(0, queue.getQueueDepth());
+    }
+
+    @Test
+    void failingActionDoesNotStopTheTick() {
+        MainThreadQueue queue = new MainThreadQueue(LONG_BUDGET, NO_WARNING);
+        List<Integer> ran = new ArrayList<>();
+        queue.execute(MainThreadQueue.Priority.NORMAL, "test", () -> {
+            throw new IllegalStateException("broken action");
+        });
+        queue.execute(MainThreadQueue.Priority.NORMAL, "test", () -> ran.add(1));
+
+        queue.run();
+        assertEquals(List.of(1), ran);
+        assertEquals(2, queue.getRan());
+    }
+
+    @Test
+    void runAllIgnoresTheBudget() {
+        MainThreadQueue queue = new MainThreadQueue(0, NO_WARNING);
+        List<Integer> ran = new ArrayList<>();
+        for (int i = 0; i < ACTIONS; i++) {
+            int action = i;
+            queue.execute(MainThreadQueue.Priority.NORMAL, "test", () -> ran.add(action));
+        }
+
+        queue.runAll();
+        assertEquals(inOrder(ACTIONS), ran);
+        assertEquals(0, queue.getQueueDepth());
+    }
+
+    @Test
+    void higherPriorityActionsRunFirst() {
+        MainThreadQueue queue = new MainThreadQueue(LONG_BUDGET, NO_WARNING);
+        List<String> ran = new ArrayList<>();
+        queue.execute(MainThreadQueue.Priority.LOW, "test", () -> ran.add("low 1"));
+        queue.execute(MainThreadQueue.Priority.NORMAL, "test", () -> ran.add("normal"));
+        queue.execute(MainThreadQueue.Priority.HIGH, "test", () -> ran.add("high 1"));
+        queue.execute(MainThreadQueue.Priority.LOW, "test", () -> ran.add("low 2"));
+        queue.execute(MainThreadQueue.Priority.HIGH, "test", () -> ran.add("high 2"));
+        assertEquals(2, queue.getQueueDepth(MainThreadQueue.Priority.HIGH));
+
+        queue.run();
+        assertEquals(List.of("high 1", "high 2", "normal", "low 1", "low 2"), ran);
+    }
+
+    @Test
+    void highPriorityActionAddedLaterRunsBeforeCarriedOverActions() {
+        MainThreadQueue queue = new MainThreadQueue(0, NO_WARNING);
+        List<String> ran = new ArrayList<>();
+        queue.execute(MainThreadQueue.Priority.LOW, "test", () -> {
+            ran.add("low 1");
+            queue.execute(MainThreadQueue.Priority.HIGH, "test", () -> ran.add("high"));
+        });
+        queue.execute(MainThreadQueue.Priority.LOW, "test", () -> ran.add("low 2"));
+
+        queue.run();
+        queue.run();
+        queue.run();
+        assertEquals(List.of("low 1", "high", "low 2"), ran);
+    }
+
+    @Test
+    void invalidPriorityIsNormal() {
+        assertEquals(MainThreadQueue.Priority.LOW, MainThreadQueue.Priority.parse("low"));
+        assertEquals(MainThreadQueue.Priority.HIGH, MainThreadQueue.Priority.parse(" High "));
+        assertEquals(MainThreadQueue.Priority.NORMAL, MainThreadQueue.Priority.parse("urgent"));
+        assertEquals(MainThreadQueue.Priority.NORMAL, MainThreadQueue.Priority.parse(null));
+    }
+
+    @Test
+    void slowTicksAreCounted() {
+        MainThreadQueue queue = new MainThreadQueue(LONG_BUDGET, 1);
+        queue.execute(MainThreadQueue.Priority.NORMAL, "fast", () -> { });
+        queue.run();
+        assertEquals(0, queue.getSpikes());
+
+        queue.execute(MainThreadQueue.Priority.NORMAL, "slow", () -> sleep(SLOW_ACTION_MILLIS));
+        queue.run();
+        assertEquals(1, queue.getSpikes());
+
+        // A TICK WITHOUT ACTIONS IS NEVER LOGGED
+        MainThreadQueue idle = new MainThreadQueue(LONG_BUDGET, 0);
+        idle.run();
+        assertEquals(0, idle.getSpikes());
+    }
+
+    private static List<Integer> inOrder(int actions) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < actions; i++) {
+            order.add(i);
+        }
+        return order;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package io.github.expugn.dungeons;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the per-tick batching of {@link MovePipeline}, driven by calling {@link MovePipeline#record} for every
+ * move event and {@link MovePipeline#run()} for every tick.
+ * @author S'pugn
+ * @version 0.1
+ */
+class MovePipelineTest {
+    private static final int Y = 64;
+    private static final int STEPS = 5;
+    private static final double CENTER = 0.5;
+    private final World world = world("world");
+    private final World nether = world("world_nether");
+    private final Set<String> offline = new HashSet<>();
+    private final List<String> handled = new ArrayList<>();
+    private MovePipeline pipeline;
+
+    @Test
+    void movesAreHandledOncePerTickFromFirstToLatestBlock() {
+        pipeline = new MovePipeline(slot -> handled.add(slot.toString()));
+        Player alice = player("alice");
+        Player bob = player("bob");
+
+        // ALICE WALKS SEVERAL BLOCKS IN ONE TICK, THE WALK SCRIPTS OF THE BLOCKS IN BETWEEN ARE NEVER LOOKED UP
+        for (int x = 0; x < STEPS; x++) {
+            pipeline.record(alice, block(world, x), block(world, x + 1));
+            if (x == 1) {
+                pipeline.record(bob, block(world, -1), block(world, -STEPS));
+            }
+        }
+        pipeline.run();
+
+        assertEquals(List.of("alice world (0, 64, 0) -> (5, 64, 0)", "bob world (-1, 64, 0) -> (-5, 64, 0)"),
+            handled);
+        assertEquals(STEPS + 1, pipeline.getRecordedMoves());
+        assertEquals(2, pipeline.getHandledMoves());
+        assertEquals(1, pipeline.getDrains());
+
+        // THE NEXT TICK STARTS FROM WHERE THE PLAYER IS NOW
+        handled.clear();
+        pipeline.record(alice, block(world, STEPS), block(world, STEPS + 1));
+        pipeline.run();
+        assertEquals(List.of("alice world (5, 64, 0) -> (6, 64, 0)"), handled);
+
+        // NOTHING MOVED, NOTHING IS HANDLED
+        handled.clear();
+        pipeline.run();
+        assertEquals(List.of(), handled);
+        assertEquals(2, pipeline.getDrains());
+    }
+
+    @Test
+    void playersAreHandledInTheOrderTheyFirstMoved() {
+        pipeline = new MovePipeline(slot -> handled.add(slot.toString().split(" ")[0]));
+        Player alice = player("alice");
+        Player bob = player("bob");
+        Player carol = player("carol");
+
+        pipeline.record(carol, block(world, 0), block(world, 1));
+        pipeline.record(alice, block(world, 0), block(world, 1));
+        pipeline.record(bob, block(world, 0), block(world, 1));
+        pipeline.record(carol, block(world, 1), block(world, 2));
+        pipeline.run();
+        assertEquals(List.of("carol", "alice", "bob"), handled);
+
+        handled.clear();
+        pipeline.record(bob, block(world, 1), block(world, 2));
+        pipeline.record(carol, block(world, 2), block(world, 1));
+        pipeline.run();
+        assertEquals(List.of("bob", "carol"), handled);
+    }
+
+    @Test
+    void changingWorldsStartsTheMoveOver() {
+        pipeline = new MovePipeline(slot -> handled.add(slot.toString()));
+        Player alice = player("alice");
+
+        pipeline.record(alice, block(world, 0), block(world, 1));
+        pipeline.record(alice, block(nether, STEPS), block(nether, STEPS + 1));
+        pipeline.run();
+        assertEquals(List.of("alice world_nether (5, 64, 0) -> (6, 64, 0)"), handled);
+    }
+
+    @Test
+    void movesWhileHandlingAreHandledNextTick() {
+        Player alice = player("alice");
+        pipeline = new MovePipeline(slot -> {
+            handled.add(slot.toString());
+            if (handled.size() == 1) {
+                // LIKE A SCRIPT TELEPORTING THE PLAYER
+                pipeline.record(alice, block(world, 1), block(world, STEPS));
+            }
+        });
+
+        pipeline.record(alice, block(world, 0), block(world, 1));
+        pipeline.run();
+        assertEquals(List.of("alice world (0, 64, 0) -> (1, 64, 0)"), handled);
+
+        pipeline.run();
+        assertEquals(List.of("alice world (0, 64, 0) -> (1, 64, 0)", "alice world (1, 64, 0) -> (5, 64, 0)"),
+            handled);
+    }
+
+    @Test
+    void forgottenAndOfflinePlayersAreNotHandled() {
+        pipeline = new MovePipeline(slot -> handled.add(slot.toString().split(" ")[0]));
+        Player alice = player("alice");
+        Player bob = player("bob");
+        Player carol = player("carol");
+
+        pipeline.record(alice, block(world, 0), block(world, 1));
+        pipeline.record(bob, block(world, 0), block(world, 1));
+        pipeline.record(carol, block(world, 0), block(world, 1));
+        pipeline.forget(alice);
+        offline.add("bob");
+        pipeline.run();
+
+        assertEquals(List.of("carol"), handled);
+        assertEquals(2, pipeline.getHandledMoves());
+    }
+
+    private static Location block(World in, int x) {
+        return new Location(in, x + CENTER, Y, CENTER);
+    }
+
+    private static World world(String name) {
+        return (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[] {World.class},
+            (proxy, method, args) -> {
+                if ("getName".equals(method.getName())) {
+                    return name;
+                }
+                return null;
+            });
+    }
+
+    private Player player(String name) {
+        UUID uuid = UUID.nameUUIDFromBytes(name.getBytes());
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[] {Player.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getUniqueId":
+                        return uuid;
+                    case "getName":
+                        return name;
+                    case "isOnline":
+                        return !offline.contains(name);
+                    case "hashCode":
+                        return uuid.hashCode();
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        return null;
+                }
+            });
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.expugn.dungeons.dungeons;
+
+import io.github.expugn.dungeons.Benchmark;
+import io.github.expugn.dungeons.storage.SnapshotFormat;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Compares loading a whole dungeon file to loading it without its variables and cleared players, like
+ * {@link DungeonFile#getDungeonFile(File)} does.
+ * Not run by a normal build, see {@link Benchmark}.
+ * @author S'pugn
+ * @version 0.1
+ */
+class DungeonFileBenchmark {
+    private static final int[] CLEARED_PLAYERS = {0, 1000, 10_000};
+    private static final int VARIABLES = 50;
+    private static final int MAX_DAILY_CLEARS = 5;
+    private static final long TODAY = 19_000L;
+    private static final int OPERATIONS = 100;
+    private static final long SEED = 19L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void loadDungeonFile() throws IOException {
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            for (int clearedPlayers : CLEARED_PLAYERS) {
+                File file = save(format, clearedPlayers);
+                String name = String.format("%s, %d cleared players", format.name().toLowerCase(), clearedPlayers);
+
+                // BEFORE: EVERYTHING IS READ WHEN THE DUNGEON LOADS
+                double before = Benchmark.run(String.format("load whole file (%s)", name), OPERATIONS, () -> {
+                    long size = 0;
+                    for (int i = 0; i < OPERATIONS; i++) {
+                        size += format.read(file, DungeonFile.class).getClearedPlayers().size();
+                    }
+                    return size;
+                });
+
+                // AFTER: VARIABLES AND CLEARED PLAYERS ARE SKIPPED
+                double after = Benchmark.run(String.format("load without unread fields (%s)", name), OPERATIONS,
+                    () -> {
+                        long size = 0;
+                        for (int i = 0; i < OPERATIONS; i++) {
+                            size += DungeonFile.getDungeonFile(file, format).getMaxParty();
+                        }
+                        return size;
+                    });
+
+                // AND WHAT THE FIRST USE COSTS LATER ON, THE FILE IS READ AGAIN
+                double used = Benchmark.run(String.format("load and use cleared players (%s)", name), OPERATIONS,
+                    () -> {
+                        long size = 0;
+                        for (int i = 0; i < OPERATIONS; i++) {
+                            size += DungeonFile.getDungeonFile(file, format).getClearedPlayers().size();
+                        }
+                        return size;
+                    });
+
+                Benchmark.compare(String.format("load without unread fields (%s)", name), before, after);
+                Benchmark.compare(String.format("load and use cleared players (%s)", name), before, used);
+            }
+        }
+    }
+
+    private File save(SnapshotFormat format, int clearedPlayers) throws IOException {
+        Random random = new Random(SEED);
+        DungeonFile dungeonFile = new DungeonFile();
+        for (int i = 0; i < clearedPlayers; i++) {
+            dungeonFile.getClearedPlayers().put(UUID.randomUUID(),
+                new ClearRecord(TODAY, 1 + random.nextInt(MAX_DAILY_CLEARS)));
+        }
+        for (int i = 0; i < VARIABLES; i++) {
+            dungeonFile.setVariable("variable_" + i, Integer.toString(random.nextInt()));
+        }
+        File file = format.getFile(directory.resolve(clearedPlayers + ".json").toFile());
+        Files.write(file.toPath(), format.serialize(dungeonFile));
+        return file;
+    }
+}
@@ -0,0 +1,165 @@
+package io.github.expugn.dungeons.dungeons;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import io.github.expugn.dungeons.AppUtils;
+import io.github.expugn.dungeons.storage.BinarySnapshot;
+import io.github.expugn.dungeons.storage.SnapshotFormat;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for reading the variables and cleared players of a {@link DungeonFile} the first time they are used.
+ * @author S'pugn
+ * @version 0.1
+ */
+class DungeonFileTest {
+    private static final int MAX_PARTY = 4;
+    private static final int DAILY_CLEAR = 2;
+    private static final long CLEAR_DAY = 19_000L;
+    private static final UUID CLEARED = UUID.randomUUID();
+    private static final UUID PARTY_MEMBER = UUID.randomUUID();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void variablesAndClearedPlayersAreReadWhenFirstUsed() throws IOException {
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            DungeonFile dungeonFile = DungeonFile.getDungeonFile(save(format), format);
+
+            // LOADING AND STARTING A DUNGEON DOESN'T NEED THEM
+            assertTrue(dungeonFile.hasUnreadFields(), format.name());
+            assertEquals(MAX_PARTY, dungeonFile.getMaxParty(), format.name());
+            assertEquals(DAILY_CLEAR, dungeonFile.getDailyClear(), format.name());
+            assertEquals(Map.of(PARTY_MEMBER, PlayerState.Alive), dungeonFile.getParty(), format.name());
+            assertEquals(0, dungeonFile.pruneClearedPlayers(), format.name());
+            assertTrue(dungeonFile.hasUnreadFields(), format.name());
+
+            assertEquals("12", dungeonFile.getVariable("money_spent"), format.name());
+            assertEquals("me", dungeonFile.getVariable("hall_of_fame"), format.name());
+            assertTrue(dungeonFile.hasUnreadFields(), format.name());
+
+            Map<UUID, ClearRecord> clearedPlayers = dungeonFile.getClearedPlayers();
+            assertFalse(dungeonFile.hasUnreadFields(), format.name());
+            assertTrue(clearedPlayers instanceof ConcurrentHashMap, format.name());
+            assertEquals(1, clearedPlayers.size(), format.name());
+            assertEquals(CLEAR_DAY, clearedPlayers.get(CLEARED).getDay(), format.name());
+            assertEquals(DAILY_CLEAR, clearedPlayers.get(CLEARED).getCount(), format.name());
+        }
+    }
+
+    @Test
+    void unreadFieldsAreSaved() throws IOException {
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            File file = save(format);
+            JsonElement saved = parse(format, Files.readAllBytes(file.toPath()));
+            DungeonFile dungeonFile = DungeonFile.getDungeonFile(file, format);
+            assertTrue(dungeonFile.hasUnreadFields(), format.name());
+
+            assertEquals(saved, parse(format, dungeonFile.serialize(format)), format.name());
+            assertFalse(dungeonFile.hasUnreadFields(), format.name());
+
+            // CHANGES MADE AFTER READING THEM ARE SAVED TOO
+            dungeonFile.setVariable("money_spent", "13");
+            JsonElement changed = parse(format, dungeonFile.serialize(format));
+            assertEquals("13", changed.getAsJsonObject().getAsJsonObject("variables").get("money_spent")
+                .getAsString(), format.name());
+            assertEquals(saved.getAsJsonObject().get("clearedPlayers"), changed.getAsJsonObject().get("clearedPlayers"),
+                format.name());
+        }
+    }
+
+    @Test
+    void missingAndEmptyFieldsKeepTheirDefaults() throws IOException {
+        File file = write(String.format("{\"maxParty\": %d, \"clearedPlayers\": null}", MAX_PARTY));
+        DungeonFile dungeonFile = DungeonFile.getDungeonFile(file, SnapshotFormat.JSON);
+
+        assertEquals(MAX_PARTY, dungeonFile.getMaxParty());
+        assertTrue(dungeonFile.getVariables().isEmpty());
+        assertTrue(dungeonFile.getClearedPlayers().isEmpty());
+        assertTrue(dungeonFile.getClearedPlayers() instanceof ConcurrentHashMap);
+        assertFalse(dungeonFile.hasUnreadFields());
+
+        // EMPTY RECORDS ARE DROPPED WHEN THE CLEARED PLAYERS ARE READ
+        file = write(String.format("{\"clearedPlayers\": {\"%s\": {\"day\": %d, \"count\": 1}, \"%s\": null}}",
+            CLEARED, CLEAR_DAY, UUID.randomUUID()));
+        assertEquals(1, DungeonFile.getDungeonFile(file, SnapshotFormat.JSON).getClearedPlayers().size());
+    }
+
+    @Test
+    void missingAndCorruptFilesAreNotLoaded() throws IOException {
+        assertNull(DungeonFile.getDungeonFile(directory.resolve("missing.json").toFile(), SnapshotFormat.JSON));
+        assertNull(DungeonFile.getDungeonFile(write("[1, 2, 3]"), SnapshotFormat.JSON));
+        assertNull(DungeonFile.getDungeonFile(write("{\"maxParty\": \"many\"}"), SnapshotFormat.JSON));
+    }
+
+    @Test
+    void setDefaultForgetsUnreadFields() throws IOException {
+        DungeonFile dungeonFile = DungeonFile.getDungeonFile(save(SnapshotFormat.JSON), SnapshotFormat.JSON);
+        dungeonFile.setDefault();
+
+        assertFalse(dungeonFile.hasUnreadFields());
+        assertTrue(dungeonFile.getVariables().isEmpty());
+        assertTrue(dungeonFile.getClearedPlayers().isEmpty());
+    }
+
+    @Test
+    void unreadableFieldsAreNeverSavedOver() throws IOException {
+        DungeonFile dungeonFile = DungeonFile.getDungeonFile(write("{\"variables\": \"not a map\"}"),
+            SnapshotFormat.JSON);
+        assertThrows(JsonParseException.class, () -> dungeonFile.getVariable("money_spent"));
+        assertTrue(dungeonFile.hasUnreadFields());
+        assertThrows(JsonParseException.class, () -> dungeonFile.serialize(SnapshotFormat.JSON));
+
+        File file = save(SnapshotFormat.JSON);
+        DungeonFile deleted = DungeonFile.getDungeonFile(file, SnapshotFormat.JSON);
+        Files.delete(file.toPath());
+        assertThrows(UncheckedIOException.class, () -> deleted.getClearedPlayers());
+        assertTrue(deleted.hasUnreadFields());
+    }
+
+    /**
+     * Save a dungeon file with every field set, like {@link DungeonFile#saveJSON(File)} does.
+     */
+    private File save(SnapshotFormat format) throws IOException {
+        DungeonFile dungeonFile = new DungeonFile();
+        dungeonFile.setMaxParty(MAX_PARTY);
+        dungeonFile.setDailyClear(DAILY_CLEAR);
+        dungeonFile.setVariable("money_spent", "12");
+        dungeonFile.setVariable("hall_of_fame", "me");
+        dungeonFile.getClearedPlayers().put(CLEARED, new ClearRecord(CLEAR_DAY, DAILY_CLEAR));
+        dungeonFile.getParty().put(PARTY_MEMBER, PlayerState.Alive);
+        File file = format.getFile(directory.resolve("config.json").toFile());
+        Files.write(file.toPath(), format.serialize(dungeonFile));
+        return file;
+    }
+
+    private File write(String json) throws IOException {
+        File file = directory.resolve("config.json").toFile();
+        Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static JsonElement parse(SnapshotFormat format, byte[] data) throws IOException {
+        if (format == SnapshotFormat.BINARY) {
+            return BinarySnapshot.read(data);
+        }
+        return AppUtils.getGson().fromJson(new String(data, StandardCharsets.UTF_8), JsonElement.class);
+    }
+}
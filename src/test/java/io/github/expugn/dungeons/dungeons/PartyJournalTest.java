@@ -0,0 +1,151 @@
+package io.github.expugn.dungeons.dungeons;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link PartyJournal}.
+ * @author S'pugn
+ * @version 0.1
+ */
+class PartyJournalTest {
+    private static final int RECORD_SIZE = 18;
+    private static final int TORN_BYTES = 7;
+    private static final int FOUR_RECORDS = 4;
+    private static final int THREE_RECORDS = 3;
+    private static final byte UNKNOWN_TYPE = 9;
+    private static final UUID FIRST = UUID.randomUUID();
+    private static final UUID SECOND = UUID.randomUUID();
+    private static final UUID THIRD = UUID.randomUUID();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void setRemoveAndClearReplay() {
+        File file = journalFile();
+        PartyJournal journal = new PartyJournal(file, false);
+        journal.set(FIRST, PlayerState.Alive);
+        journal.set(SECOND, PlayerState.Alive);
+        journal.set(FIRST, PlayerState.Dead);
+        journal.remove(SECOND);
+        assertEquals(RECORD_SIZE * FOUR_RECORDS, file.length());
+
+        Map<UUID, PlayerState> party = new HashMap<>();
+        party.put(THIRD, PlayerState.Alive);
+        PartyJournal replayed = new PartyJournal(file, false);
+        assertTrue(replayed.replay(party));
+
+        // THE JOURNAL IS APPLIED ON TOP OF THE PARTY IN THE DUNGEON FILE
+        Map<UUID, PlayerState> expected = new HashMap<>();
+        expected.put(FIRST, PlayerState.Dead);
+        expected.put(THIRD, PlayerState.Alive);
+        assertEquals(expected, party);
+        assertEquals(FOUR_RECORDS, replayed.getRecordCount());
+
+        // EVERYTHING BEFORE A CLEAR IS FORGOTTEN
+        replayed.clear();
+        replayed.set(SECOND, PlayerState.Dead);
+        party = new HashMap<>();
+        party.put(THIRD, PlayerState.Alive);
+        assertTrue(new PartyJournal(file, true).replay(party));
+        assertEquals(Map.of(SECOND, PlayerState.Dead), party);
+    }
+
+    @Test
+    void missingOrEmptyJournalReplaysNothing() throws IOException {
+        File file = journalFile();
+        Map<UUID, PlayerState> party = new HashMap<>();
+        party.put(FIRST, PlayerState.Alive);
+
+        assertFalse(new PartyJournal(file, false).replay(party));
+        Files.createFile(file.toPath());
+        assertFalse(new PartyJournal(file, false).replay(party));
+        assertEquals(Map.of(FIRST, PlayerState.Alive), party);
+    }
+
+    @Test
+    void partlyWrittenRecordIsCutOff() throws IOException {
+        File file = journalFile();
+        PartyJournal journal = new PartyJournal(file, false);
+        journal.set(FIRST, PlayerState.Alive);
+        journal.set(SECOND, PlayerState.Dead);
+        // THE SERVER STOPPED WHILE APPENDING A THIRD RECORD
+        byte[] torn = new byte[TORN_BYTES];
+        torn[0] = 1;
+        Files.write(file.toPath(), torn, StandardOpenOption.APPEND);
+
+        Map<UUID, PlayerState> party = new HashMap<>();
+        PartyJournal replayed = new PartyJournal(file, false);
+        assertTrue(replayed.replay(party));
+
+        assertEquals(Map.of(FIRST, PlayerState.Alive, SECOND, PlayerState.Dead), party);
+        assertEquals(2, replayed.getRecordCount());
+        assertEquals(RECORD_SIZE * 2, file.length());
+    }
+
+    @Test
+    void appendsAfterCutOffReplay() throws IOException {
+        File file = journalFile();
+        new PartyJournal(file, false).set(FIRST, PlayerState.Alive);
+        Files.write(file.toPath(), new byte[TORN_BYTES], StandardOpenOption.APPEND);
+
+        PartyJournal journal = new PartyJournal(file, false);
+        journal.replay(new HashMap<>());
+        journal.set(SECOND, PlayerState.Dead);
+        journal.remove(FIRST);
+
+        Map<UUID, PlayerState> party = new HashMap<>();
+        assertTrue(new PartyJournal(file, false).replay(party));
+        assertEquals(Map.of(SECOND, PlayerState.Dead), party);
+        assertEquals(RECORD_SIZE * THREE_RECORDS, file.length());
+    }
+
+    @Test
+    void corruptRecordStopsReplay() throws IOException {
+        File file = journalFile();
+        new PartyJournal(file, false).set(FIRST, PlayerState.Alive);
+        byte[] corrupt = new byte[RECORD_SIZE];
+        corrupt[0] = UNKNOWN_TYPE;
+        Files.write(file.toPath(), corrupt, StandardOpenOption.APPEND);
+        new PartyJournal(file, false).set(SECOND, PlayerState.Alive);
+
+        Map<UUID, PlayerState> party = new HashMap<>();
+        assertTrue(new PartyJournal(file, false).replay(party));
+
+        // NOTHING AFTER THE CORRUPT RECORD IS TRUSTED
+        assertEquals(Map.of(FIRST, PlayerState.Alive), party);
+        assertEquals(RECORD_SIZE, file.length());
+    }
+
+    @Test
+    void compactOnlyEmptiesJournalWhenSnapshotIsSaved() {
+        File file = journalFile();
+        PartyJournal journal = new PartyJournal(file, false);
+        journal.set(FIRST, PlayerState.Alive);
+
+        assertFalse(journal.compact(() -> false));
+        assertTrue(file.exists());
+        assertEquals(1, journal.getRecordCount());
+
+        assertTrue(journal.compact(() -> true));
+        assertFalse(file.exists());
+        assertEquals(0, journal.getRecordCount());
+    }
+
+    private File journalFile() {
+        return directory.resolve("party.journal").toFile();
+    }
+}
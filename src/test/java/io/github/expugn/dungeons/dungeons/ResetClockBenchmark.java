@@ -0,0 +1,95 @@
+package io.github.expugn.dungeons.dungeons;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.expugn.dungeons.Benchmark;
+import java.text.SimpleDateFormat;
+import java.time.Clock;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares {@link ResetClock} to the SimpleDateFormat day check daily clears used before.
+ * Not run by a normal build, see {@link Benchmark}.
+ * @author S'pugn
+ * @version 0.1
+ */
+class ResetClockBenchmark {
+    private static final int CLEARS = 100_000;
+    private static final int PARTY_SIZE = 8;
+    private static final long DAYS = 3L;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final long SEED = 15L;
+
+    @Test
+    void sameDayCheck() {
+        ZoneId zone = ZoneId.systemDefault();
+        ResetClock resetClock = new ResetClock(Clock.system(zone), zone, 0);
+        long now = System.currentTimeMillis();
+        Random random = new Random(SEED);
+        long[] lastClears = new long[CLEARS];
+        long[] lastClearDays = new long[CLEARS];
+        for (int i = 0; i < CLEARS; i++) {
+            lastClears[i] = now - (long) (random.nextDouble() * DAYS * MILLIS_PER_DAY);
+            lastClearDays[i] = resetClock.toDay(lastClears[i]);
+        }
+
+        // BEFORE: FORMAT THE CURRENT TIME AND THE LAST CLEAR TO yyyyMMdd STRINGS FOR EVERY CHECK
+        double before = Benchmark.run("SimpleDateFormat (per player)", CLEARS, () -> {
+            long sameDay = 0;
+            for (long lastClear : lastClears) {
+                SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd");
+                if (sdf.format(new Date(System.currentTimeMillis())).equals(sdf.format(new Date(lastClear)))) {
+                    sameDay++;
+                }
+            }
+            return sameDay;
+        });
+
+        // AFTER: COMPARE THE SAVED DAY TO TODAY
+        double after = Benchmark.run("ResetClock.today() (per player)", CLEARS, () -> {
+            long sameDay = 0;
+            for (long lastClearDay : lastClearDays) {
+                if (lastClearDay == resetClock.today()) {
+                    sameDay++;
+                }
+            }
+            return sameDay;
+        });
+
+        // AFTER, WHOLE PARTY: TODAY IS ONLY READ ONCE, LIKE DungeonFile.getPlayersOverDailyClear
+        double party = Benchmark.run(String.format("ResetClock.today() (party of %d)", PARTY_SIZE), CLEARS, () -> {
+            long sameDay = 0;
+            for (int i = 0; i < CLEARS; i += PARTY_SIZE) {
+                long today = resetClock.today();
+                for (int j = i; j < Math.min(i + PARTY_SIZE, CLEARS); j++) {
+                    if (lastClearDays[j] == today) {
+                        sameDay++;
+                    }
+                }
+            }
+            return sameDay;
+        });
+
+        Benchmark.compare("ResetClock (per player)", before, after);
+        Benchmark.compare("ResetClock (party)", before, party);
+    }
+
+    @Test
+    void bothChecksAgree() {
+        // MIDNIGHT IN THE SERVER'S TIME ZONE, LIKE SimpleDateFormat
+        ZoneId zone = ZoneId.systemDefault();
+        ResetClock resetClock = new ResetClock(Clock.system(zone), zone, 0);
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd");
+        long now = System.currentTimeMillis();
+        Random random = new Random(SEED);
+        for (int i = 0; i < CLEARS; i++) {
+            long lastClear = now - (long) (random.nextDouble() * DAYS * MILLIS_PER_DAY);
+            boolean before = sdf.format(new Date(now)).equals(sdf.format(new Date(lastClear)));
+            boolean after = resetClock.toDay(now) == resetClock.toDay(lastClear);
+            assertEquals(before, after, String.format("%d and %d", now, lastClear));
+        }
+    }
+}
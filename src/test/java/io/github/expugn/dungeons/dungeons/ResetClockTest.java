@@ -0,0 +1,117 @@
+package io.github.expugn.dungeons.dungeons;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ResetClock}.
+ * @author S'pugn
+ * @version 0.1
+ */
+class ResetClockTest {
+    private static final ZoneId UTC = ZoneOffset.UTC;
+    private static final ZoneId TOKYO = ZoneId.of("Asia/Tokyo");
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+    private static final int RESET_HOUR = 6;
+    private static final int SPRING_FORWARD_HOUR = 2;
+    private static final int FALL_BACK_HOUR = 1;
+    private static final long HOURS_IN_SHORT_DAY = 23L;
+    private static final long HOURS_IN_LONG_DAY = 25L;
+    private static final long HOURS_UNTIL_MIDNIGHT = 12L;
+    private static final long ONE_MILLI = 1L;
+    private static final int INVALID_HOUR = 24;
+
+    @Test
+    void midnightResetUsesTheCalendarDay() {
+        ResetClock resetClock = newResetClock("2024-05-01T12:00:00Z", UTC, 0);
+
+        assertEquals(day("2024-05-01"), resetClock.today());
+        assertEquals(day("2024-04-30"), resetClock.toDay(millis("2024-04-30T23:59:59.999Z")));
+        assertEquals(day("2024-05-01"), resetClock.toDay(millis("2024-05-01T00:00:00Z")));
+        assertEquals(Duration.ofHours(HOURS_UNTIL_MIDNIGHT), resetClock.untilReset());
+    }
+
+    @Test
+    void resetHourStartsTheDay() {
+        ResetClock resetClock = newResetClock("2024-05-01T05:00:00Z", UTC, RESET_HOUR);
+
+        // BEFORE THE RESET HOUR IS STILL THE DAY BEFORE
+        assertEquals(day("2024-04-30"), resetClock.today());
+        assertEquals(Duration.ofHours(1), resetClock.untilReset());
+        assertEquals(day("2024-04-30"), resetClock.toDay(millis("2024-05-01T06:00:00Z") - ONE_MILLI));
+        assertEquals(day("2024-05-01"), resetClock.toDay(millis("2024-05-01T06:00:00Z")));
+        assertEquals(day("2024-05-01"), resetClock.toDay(millis("2024-05-02T06:00:00Z") - ONE_MILLI));
+    }
+
+    @Test
+    void resetHourIsInTheConfiguredTimeZone() {
+        // MIDNIGHT IN TOKYO IS 15:00 UTC THE DAY BEFORE
+        ResetClock resetClock = newResetClock("2024-01-01T15:00:00Z", TOKYO, 0);
+
+        assertEquals(day("2024-01-02"), resetClock.today());
+        assertEquals(day("2024-01-01"), resetClock.toDay(millis("2024-01-01T15:00:00Z") - ONE_MILLI));
+        assertEquals(Duration.ofDays(1), resetClock.untilReset());
+    }
+
+    @Test
+    void springForwardDayIsShorter() {
+        // 2024-03-10 02:00 DOESN'T EXIST IN NEW YORK, CLOCKS JUMP FROM 01:59:59 EST TO 03:00 EDT (07:00 UTC)
+        ResetClock resetClock = newResetClock("2024-03-10T07:00:00Z", NEW_YORK, SPRING_FORWARD_HOUR);
+
+        assertEquals(day("2024-03-10"), resetClock.today());
+        assertEquals(day("2024-03-09"), resetClock.toDay(millis("2024-03-10T07:00:00Z") - ONE_MILLI));
+        // NEXT RESET IS 2024-03-11 02:00 EDT (06:00 UTC)
+        assertEquals(Duration.ofHours(HOURS_IN_SHORT_DAY), resetClock.untilReset());
+        assertEquals(day("2024-03-11"), resetClock.toDay(millis("2024-03-11T06:00:00Z")));
+    }
+
+    @Test
+    void fallBackDayIsLonger() {
+        // 2024-11-03 01:00 HAPPENS TWICE IN NEW YORK, FIRST IN EDT (05:00 UTC) THEN IN EST (06:00 UTC)
+        ResetClock resetClock = newResetClock("2024-11-03T05:00:00Z", NEW_YORK, FALL_BACK_HOUR);
+
+        assertEquals(day("2024-11-03"), resetClock.today());
+        assertEquals(day("2024-11-02"), resetClock.toDay(millis("2024-11-03T05:00:00Z") - ONE_MILLI));
+        // THE REPEATED HOUR DOESN'T START ANOTHER DAY
+        assertEquals(day("2024-11-03"), resetClock.toDay(millis("2024-11-03T06:30:00Z")));
+        // NEXT RESET IS 2024-11-04 01:00 EST (06:00 UTC)
+        assertEquals(Duration.ofHours(HOURS_IN_LONG_DAY), resetClock.untilReset());
+    }
+
+    @Test
+    void oldTimesDontReplaceToday() {
+        ResetClock resetClock = newResetClock("2024-05-01T12:00:00Z", UTC, 0);
+
+        assertEquals(day("2024-05-01"), resetClock.today());
+        assertEquals(day("2023-01-01"), resetClock.toDay(millis("2023-01-01T12:00:00Z")));
+        assertEquals(day("2024-05-01"), resetClock.today());
+        assertEquals(Duration.ofHours(HOURS_UNTIL_MIDNIGHT), resetClock.untilReset());
+    }
+
+    @Test
+    void invalidResetHourIsRejected() {
+        Clock clock = Clock.fixed(Instant.parse("2024-05-01T12:00:00Z"), UTC);
+        assertThrows(IllegalArgumentException.class, () -> new ResetClock(clock, UTC, -1));
+        assertThrows(IllegalArgumentException.class, () -> new ResetClock(clock, UTC, INVALID_HOUR));
+    }
+
+    private static ResetClock newResetClock(String now, ZoneId zone, int resetHour) {
+        return new ResetClock(Clock.fixed(Instant.parse(now), zone), zone, resetHour);
+    }
+
+    private static long day(String date) {
+        return LocalDate.parse(date).toEpochDay();
+    }
+
+    private static long millis(String instant) {
+        return Instant.parse(instant).toEpochMilli();
+    }
+}
@@ -0,0 +1,165 @@
+package io.github.expugn.dungeons.regions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ChunkFilter}.
+ * @author S'pugn
+ * @version 0.1
+ */
+class ChunkFilterTest {
+    private static final int CHUNK = 16;
+    private static final int HEIGHT = 64;
+    private static final int KEYS = 10_000;
+    private static final int DENSE_CHUNKS = 100;
+    private static final int WORLD_BORDER = 30_000_000;
+    private static final int MAX_SIZE = 300;
+    private static final int WINDOW_CHUNKS = 40;
+    private static final long SEED = 23L;
+    private static final int[] EXTREMES = {Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -WORLD_BORDER, -CHUNK - 1,
+        -CHUNK, -1, 0, CHUNK - 1, CHUNK, WORLD_BORDER, Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+
+    @Test
+    void noBlockIsInTheFreeChunk() {
+        List<Long> chunkKeys = new ArrayList<>();
+        for (int x : EXTREMES) {
+            for (int z : EXTREMES) {
+                assertNotEquals(Long.MIN_VALUE, ChunkFilter.getChunkKey(x, z), x + ", " + z);
+                chunkKeys.add(ChunkFilter.getChunkKey(x, z));
+            }
+        }
+
+        // A KEY EQUAL TO THE EMPTY SLOT MARKER DOESN'T HIDE THE OTHER CHUNKS
+        chunkKeys.add(Long.MIN_VALUE);
+        ChunkFilter filter = new ChunkFilter(chunkKeys, List.of());
+        for (int x : EXTREMES) {
+            for (int z : EXTREMES) {
+                assertTrue(filter.contains(x, z), x + ", " + z);
+            }
+        }
+        assertFalse(filter.contains(CHUNK * 2, CHUNK * 2));
+    }
+
+    @Test
+    void findsEveryChunkThatSharesASlot() {
+        // WITH THOUSANDS OF CHUNKS MANY OF THEM HASH TO THE SAME SLOT AND ARE ONLY FOUND BY PROBING
+        Random random = new Random(SEED);
+        Set<Long> chunkKeys = new HashSet<>();
+        while (chunkKeys.size() < KEYS) {
+            chunkKeys.add(ChunkFilter.getChunkKey(random.nextInt(WORLD_BORDER * 2) - WORLD_BORDER,
+                random.nextInt(WORLD_BORDER * 2) - WORLD_BORDER));
+        }
+        // NEIGHBOURING CHUNKS ONLY DIFFER IN THEIR LOW BITS
+        for (int x = 0; x < DENSE_CHUNKS; x++) {
+            for (int z = 0; z < DENSE_CHUNKS; z++) {
+                chunkKeys.add(ChunkFilter.getChunkKey(x * CHUNK, -z * CHUNK));
+            }
+        }
+        ChunkFilter filter = new ChunkFilter(chunkKeys, List.of());
+
+        for (long key : chunkKeys) {
+            int x = (int) (key >> Integer.SIZE) * CHUNK;
+            int z = (int) key * CHUNK;
+            assertTrue(filter.contains(x, z), x + ", " + z);
+            assertTrue(filter.contains(x + CHUNK - 1, z + CHUNK - 1), x + ", " + z);
+        }
+        for (int i = 0; i < KEYS; i++) {
+            int x = random.nextInt(WORLD_BORDER * 2) - WORLD_BORDER;
+            int z = random.nextInt(WORLD_BORDER * 2) - WORLD_BORDER;
+            assertEquals(chunkKeys.contains(ChunkFilter.getChunkKey(x, z)), filter.contains(x, z), x + ", " + z);
+        }
+        for (int x = -1; x <= DENSE_CHUNKS; x++) {
+            assertFalse(filter.contains(x * CHUNK, CHUNK), Integer.toString(x));
+            assertFalse(filter.contains(x * CHUNK, -DENSE_CHUNKS * CHUNK), Integer.toString(x));
+        }
+    }
+
+    @Test
+    void tableGrowsToTwiceTheChunks() {
+        for (int size = 0; size <= MAX_SIZE; size++) {
+            List<Long> chunkKeys = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                chunkKeys.add(ChunkFilter.getChunkKey(i * CHUNK, -i * CHUNK));
+            }
+            ChunkFilter filter = new ChunkFilter(chunkKeys, List.of());
+
+            // THE SMALLEST POWER OF TWO THAT KEEPS THE TABLE AT MOST HALF FULL
+            int capacity = filter.getCapacity();
+            assertEquals(0, capacity & (capacity - 1), "size " + size);
+            assertTrue(capacity >= size * 2, "size " + size);
+            assertTrue(capacity == 2 || capacity / 2 < size * 2, "size " + size);
+            assertEquals(size == 0, filter.isEmpty(), "size " + size);
+
+            for (int i = 0; i < size; i++) {
+                assertTrue(filter.contains(i * CHUNK, -i * CHUNK), "size " + size + ", chunk " + i);
+            }
+            assertFalse(filter.contains(size * CHUNK, -size * CHUNK), "size " + size);
+            assertFalse(filter.contains(0, CHUNK), "size " + size);
+        }
+    }
+
+    @Test
+    void admitsEveryChunkWithAScriptOrDungeon() {
+        // BLOCKS OF Walk AND Interact SCRIPTS, LIKE ScriptIndex ADDS THEM
+        int[][] blocks = {{0, 0}, {-1, -1}, {-CHUNK, CHUNK - 1}, {-CHUNK - 1, CHUNK}, {WORLD_BORDER, -WORLD_BORDER}};
+        List<Long> chunkKeys = new ArrayList<>();
+        for (int[] block : blocks) {
+            chunkKeys.add(ChunkFilter.getChunkKey(block[0], block[1]));
+        }
+        // AreaWalk SCRIPTS, AND A DUNGEON BOUNDARY TOO BIG TO EXPAND INTO CHUNKS
+        List<Region> regions = List.of(
+            Region.parse("5_64_5~40_70_-3"),
+            Region.parse("-100_0_-200~-81_255_-150"),
+            new Region(-CHUNK * WINDOW_CHUNKS / 2, 0, CHUNK * 2, -CHUNK * 2 - 1, HEIGHT, CHUNK * WINDOW_CHUNKS / 2));
+        ChunkFilter filter = new ChunkFilter(chunkKeys, regions);
+        assertFalse(filter.isEmpty());
+
+        for (int[] block : blocks) {
+            assertTrue(filter.contains(block[0], block[1]), block[0] + ", " + block[1]);
+        }
+        for (Region region : regions) {
+            for (int x = region.getMinX(); x <= region.getMaxX(); x++) {
+                for (int z = region.getMinZ(); z <= region.getMaxZ(); z++) {
+                    assertTrue(filter.contains(x, z), region + " " + x + ", " + z);
+                }
+            }
+        }
+
+        // EVERY OTHER CHUNK AROUND THEM IS SKIPPED
+        for (int chunkX = -WINDOW_CHUNKS; chunkX <= WINDOW_CHUNKS; chunkX++) {
+            for (int chunkZ = -WINDOW_CHUNKS; chunkZ <= WINDOW_CHUNKS; chunkZ++) {
+                boolean expected = chunkKeys.contains(ChunkFilter.getChunkKey(chunkX * CHUNK, chunkZ * CHUNK));
+                for (Region region : regions) {
+                    expected |= Math.floorDiv(region.getMinX(), CHUNK) <= chunkX
+                        && Math.floorDiv(region.getMaxX(), CHUNK) >= chunkX
+                        && Math.floorDiv(region.getMinZ(), CHUNK) <= chunkZ
+                        && Math.floorDiv(region.getMaxZ(), CHUNK) >= chunkZ;
+                }
+                assertEquals(expected, filter.contains(chunkX * CHUNK, chunkZ * CHUNK), chunkX + ", " + chunkZ);
+                assertEquals(expected, filter.contains(chunkX * CHUNK + CHUNK - 1, chunkZ * CHUNK + CHUNK - 1),
+                    chunkX + ", " + chunkZ);
+            }
+        }
+    }
+
+    @Test
+    void emptyFilterAdmitsNothing() {
+        ChunkFilter filter = ChunkFilter.empty();
+        assertTrue(filter.isEmpty());
+        for (int x : EXTREMES) {
+            for (int z : EXTREMES) {
+                assertFalse(filter.contains(x, z), x + ", " + z);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.expugn.dungeons.regions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.expugn.dungeons.Benchmark;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.lang.math.IntRange;
+import org.bukkit.Location;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares {@link Region#contains} to the IntRange bounds check AppUtils.isInsideArea used before.
+ * The old check also looked up the world and both corner blocks for every call, which needs a running server, so
+ * the "before" numbers here are lower than what the old check really cost.
+ * Not run by a normal build, see {@link Benchmark}.
+ * @author S'pugn
+ * @version 0.1
+ */
+class RegionBenchmark {
+    private static final int CHECKS = 100_000;
+    private static final int SIZE = 64;
+    private static final int SPREAD = 256;
+    private static final long SEED = 5L;
+    // SAVED LIKE DungeonFile's blockA AND blockB
+    private final List<Integer> blockA = new ArrayList<>(List.of(-SIZE, 0, -SIZE));
+    private final List<Integer> blockB = new ArrayList<>(List.of(SIZE, SIZE, SIZE));
+
+    @Test
+    void boundsCheck() {
+        Location[] locations = randomLocations();
+        Region region = new Region(blockA.get(0), blockA.get(1), blockA.get(2),
+            blockB.get(0), blockB.get(1), blockB.get(2));
+
+        // BEFORE: THREE IntRange OBJECTS MADE FROM THE SAVED CORNERS FOR EVERY CHECK
+        double before = Benchmark.run("isInsideArea (IntRange)", CHECKS, () -> {
+            long inside = 0;
+            for (Location location : locations) {
+                if (isInsideArea(blockA, blockB, location)) {
+                    inside++;
+                }
+            }
+            return inside;
+        });
+
+        // AFTER: THE CACHED REGION ONLY COMPARES INTS
+        double after = Benchmark.run("Region.contains", CHECKS, () -> {
+            long inside = 0;
+            for (Location location : locations) {
+                if (region.contains(location)) {
+                    inside++;
+                }
+            }
+            return inside;
+        });
+
+        Benchmark.compare("Region.contains", before, after);
+    }
+
+    @Test
+    void bothChecksAgree() {
+        // CORNERS IN EITHER ORDER
+        Region region = new Region(blockB.get(0), blockB.get(1), blockB.get(2),
+            blockA.get(0), blockA.get(1), blockA.get(2));
+        for (Location location : randomLocations()) {
+            assertEquals(isInsideArea(blockA, blockB, location), region.contains(location), location.toString());
+        }
+        for (int x = -SIZE - 1; x <= SIZE + 1; x++) {
+            Location location = new Location(null, x, SIZE, -SIZE);
+            assertEquals(isInsideArea(blockA, blockB, location), region.contains(location), location.toString());
+        }
+    }
+
+    private static boolean isInsideArea(List<Integer> blockA, List<Integer> blockB, Location location) {
+        return new IntRange(blockA.get(0), blockB.get(0)).containsInteger(location.getBlockX())
+            && new IntRange(blockA.get(1), blockB.get(1)).containsInteger(location.getBlockY())
+            && new IntRange(blockA.get(2), blockB.get(2)).containsInteger(location.getBlockZ());
+    }
+
+    private static Location[] randomLocations() {
+        Random random = new Random(SEED);
+        Location[] locations = new Location[CHECKS];
+        for (int i = 0; i < CHECKS; i++) {
+            locations[i] = new Location(null, random.nextDouble() * SPREAD - SPREAD / 2,
+                random.nextDouble() * SPREAD - SPREAD / 2, random.nextDouble() * SPREAD - SPREAD / 2);
+        }
+        return locations;
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.expugn.dungeons.regions;
+
+import io.github.expugn.dungeons.Benchmark;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares {@link RegionGrid#find} to looping over every loaded dungeon, like onEntityDeath did before.
+ * One round is a second of 1000 entity deaths in each of 100 dungeons.
+ * Not run by a normal build, see {@link Benchmark}.
+ * @author S'pugn
+ * @version 0.1
+ */
+class RegionGridBenchmark {
+    private static final int DUNGEONS = 100;
+    private static final int DUNGEONS_PER_ROW = 10;
+    private static final int DEATHS_PER_DUNGEON = 1000;
+    private static final int DEATHS = DUNGEONS * DEATHS_PER_DUNGEON;
+    private static final int DUNGEON_SIZE = 96;
+    private static final int DUNGEON_GAP = 64;
+    private static final int HEIGHT = 64;
+    private static final long SEED = 21L;
+
+    @Test
+    void entityDeathLookup() {
+        Map<String, FakeDungeon> loadedDungeons = new HashMap<>();
+        Map<FakeDungeon, Region> regions = new HashMap<>();
+        for (int i = 0; i < DUNGEONS; i++) {
+            int x = (i % DUNGEONS_PER_ROW) * (DUNGEON_SIZE + DUNGEON_GAP);
+            int z = (i / DUNGEONS_PER_ROW) * (DUNGEON_SIZE + DUNGEON_GAP);
+            FakeDungeon dungeon = new FakeDungeon(new Region(x, 0, z, x + DUNGEON_SIZE - 1, HEIGHT,
+                z + DUNGEON_SIZE - 1));
+            loadedDungeons.put("dungeon" + i, dungeon);
+            regions.put(dungeon, dungeon.region);
+        }
+        RegionGrid<FakeDungeon> grid = new RegionGrid<>(regions);
+        FakeDungeon[] dungeons = loadedDungeons.values().toArray(new FakeDungeon[0]);
+
+        // DEATHS HAPPEN INSIDE RANDOM DUNGEONS
+        Random random = new Random(SEED);
+        int[][] insideDeaths = new int[DEATHS][];
+        int[][] outsideDeaths = new int[DEATHS][];
+        for (int i = 0; i < DEATHS; i++) {
+            Region region = dungeons[random.nextInt(DUNGEONS)].region;
+            insideDeaths[i] = new int[] {region.getMinX() + random.nextInt(DUNGEON_SIZE), random.nextInt(HEIGHT),
+                region.getMinZ() + random.nextInt(DUNGEON_SIZE)};
+            // IN THE GAP NEXT TO THE DUNGEON
+            outsideDeaths[i] = new int[] {region.getMaxX() + 1 + random.nextInt(DUNGEON_GAP), random.nextInt(HEIGHT),
+                region.getMinZ() + random.nextInt(DUNGEON_SIZE)};
+        }
+
+        for (int[][] deaths : new int[][][] {insideDeaths, outsideDeaths}) {
+            String where = deaths == insideDeaths ? "inside" : "outside";
+
+            // BEFORE: EVERY LOADED DUNGEON IS CHECKED UNTIL AN ACTIVE ONE CONTAINS THE DEATH
+            double before = Benchmark.run(String.format("every dungeon (%s)", where), DEATHS, () -> {
+                long found = 0;
+                for (int[] death : deaths) {
+                    for (Map.Entry<String, FakeDungeon> entry : loadedDungeons.entrySet()) {
+                        FakeDungeon dungeon = entry.getValue();
+                        if (dungeon.isActive() && dungeon.region.contains(death[0], death[1], death[2])) {
+                            found++;
+                            break;
+                        }
+                    }
+                }
+                return found;
+            });
+
+            // AFTER: ONLY DUNGEONS IN THE SAME CHUNK ARE CHECKED
+            double after = Benchmark.run(String.format("RegionGrid.find (%s)", where), DEATHS, () -> {
+                long found = 0;
+                for (int[] death : deaths) {
+                    if (grid.find(death[0], death[1], death[2], FakeDungeon::isActive) != null) {
+                        found++;
+                    }
+                }
+                return found;
+            });
+
+            Benchmark.compare(String.format("RegionGrid.find (%s)", where), before, after);
+        }
+    }
+
+    /**
+     * Stands in for a loaded dungeon and its cached boundaries.
+     */
+    private static final class FakeDungeon {
+        private final Region region;
+        private volatile boolean active = true;
+
+        FakeDungeon(Region region) {
+            this.region = region;
+        }
+
+        boolean isActive() {
+            return active;
+        }
+    }
+}
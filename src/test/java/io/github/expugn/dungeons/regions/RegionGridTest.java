@@ -0,0 +1,97 @@
+package io.github.expugn.dungeons.regions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link RegionGrid}.
+ * @author S'pugn
+ * @version 0.1
+ */
+class RegionGridTest {
+    private static final int CHUNK = 16;
+    private static final int BUCKETED_CHUNKS = 16;
+    private static final int LARGE_CHUNKS = 17;
+    private static final int HEIGHT = 64;
+    private static final int FAR = 10_000;
+
+    @Test
+    void findsBlocksOnTheEdges() {
+        // CROSSES THE CHUNK BORDERS AT 0 AND -16 ON BOTH AXES
+        Region region = new Region(-CHUNK - 1, 0, -CHUNK - 1, CHUNK, HEIGHT, CHUNK);
+        RegionGrid<String> grid = new RegionGrid<>(Map.of("dungeon", region));
+
+        for (int x : new int[] {-CHUNK - 1, -CHUNK, -1, 0, CHUNK - 1, CHUNK}) {
+            for (int z : new int[] {-CHUNK - 1, CHUNK}) {
+                assertEquals("dungeon", grid.find(x, 0, z, value -> true), x + ", " + z);
+                assertEquals("dungeon", grid.find(x, HEIGHT, z, value -> true), x + ", " + z);
+            }
+        }
+
+        // ONE BLOCK OUTSIDE OF EVERY FACE
+        assertNull(grid.find(-CHUNK - 2, 0, 0, value -> true));
+        assertNull(grid.find(CHUNK + 1, 0, 0, value -> true));
+        assertNull(grid.find(0, 0, -CHUNK - 2, value -> true));
+        assertNull(grid.find(0, 0, CHUNK + 1, value -> true));
+        assertNull(grid.find(0, -1, 0, value -> true));
+        assertNull(grid.find(0, HEIGHT + 1, 0, value -> true));
+    }
+
+    @Test
+    void findsLargeRegions() {
+        Map<String, Region> regions = new HashMap<>();
+        // 16 x 16 CHUNKS IS STILL BUCKETED, 17 x 17 CHUNKS IS CHECKED FOR EVERY BLOCK
+        regions.put("bucketed", new Region(0, 0, 0, BUCKETED_CHUNKS * CHUNK - 1, HEIGHT, BUCKETED_CHUNKS * CHUNK - 1));
+        regions.put("large", new Region(-LARGE_CHUNKS * CHUNK, 0, -LARGE_CHUNKS * CHUNK, -1, HEIGHT, -1));
+        RegionGrid<String> grid = new RegionGrid<>(regions);
+
+        int bucketedEdge = BUCKETED_CHUNKS * CHUNK - 1;
+        assertEquals("bucketed", grid.find(0, 0, 0, value -> true));
+        assertEquals("bucketed", grid.find(bucketedEdge, HEIGHT, bucketedEdge, value -> true));
+        assertNull(grid.find(bucketedEdge + 1, 0, 0, value -> true));
+
+        int largeEdge = -LARGE_CHUNKS * CHUNK;
+        assertEquals("large", grid.find(-1, 0, -1, value -> true));
+        assertEquals("large", grid.find(largeEdge, HEIGHT, largeEdge, value -> true));
+        assertEquals("large", grid.find(largeEdge, 0, -1, value -> true));
+        assertNull(grid.find(largeEdge - 1, 0, -1, value -> true));
+        assertNull(grid.find(-FAR, 0, -FAR, value -> true));
+        assertEquals(2, grid.size());
+    }
+
+    @Test
+    void filterSkipsToTheNextRegion() {
+        Map<String, Region> regions = new LinkedHashMap<>();
+        regions.put("inactive", new Region(0, 0, 0, CHUNK, HEIGHT, CHUNK));
+        regions.put("active", new Region(0, 0, 0, CHUNK, HEIGHT, CHUNK));
+        regions.put("large", new Region(-FAR, 0, -FAR, FAR, HEIGHT, FAR));
+        RegionGrid<String> grid = new RegionGrid<>(regions);
+
+        assertEquals("active", grid.find(1, 1, 1, "active"::equals));
+        assertEquals("large", grid.find(1, 1, 1, "large"::equals));
+        assertNull(grid.find(1, 1, 1, "missing"::equals));
+
+        // CANDIDATES ARE THE CHUNK'S BUCKET AND EVERY LARGE REGION
+        List<String> candidates = new ArrayList<>();
+        grid.forEachCandidate(1, 1, entry -> candidates.add(entry.getValue()));
+        assertEquals(List.of("inactive", "active", "large"), candidates);
+        candidates.clear();
+        grid.forEachCandidate(-FAR, -FAR, entry -> candidates.add(entry.getValue()));
+        assertEquals(List.of("large"), candidates);
+    }
+
+    @Test
+    void emptyGridFindsNothing() {
+        RegionGrid<String> grid = RegionGrid.empty();
+        assertTrue(grid.isEmpty());
+        assertNull(grid.find(0, 0, 0, value -> true));
+    }
+}
@@ -0,0 +1,136 @@
+package io.github.expugn.dungeons.scripts;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the retry queue of a bounded {@link ScriptExecutor}.
+ * @author S'pugn
+ * @version 0.1
+ */
+class ScriptExecutorTest {
+    private static final int QUEUE_SIZE = 2;
+    private static final int RETRY_QUEUE_SIZE = 3;
+    private static final int TASKS = 8;
+    private static final long TIMEOUT_SECONDS = 10L;
+    private ScriptExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void retriesAreLimitedAndRunInOrder() throws InterruptedException {
+        executor = newExecutor(ScriptExecutor.RejectionPolicy.RETRY);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1 + QUEUE_SIZE + RETRY_QUEUE_SIZE);
+
+        // THE ONLY THREAD IS BUSY UNTIL THE GATE OPENS
+        assertTrue(executor.execute(ScriptType.Dungeon, () -> {
+            started.countDown();
+            await(gate);
+            order.add(0);
+            finished.countDown();
+        }));
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        List<Boolean> accepted = new ArrayList<>();
+        for (int i = 1; i <= TASKS; i++) {
+            int task = i;
+            accepted.add(executor.execute(ScriptType.Dungeon, () -> {
+                order.add(task);
+                finished.countDown();
+            }));
+        }
+
+        // QUEUE_SIZE TASKS ARE QUEUED, RETRY_QUEUE_SIZE TASKS WAIT IN THE RETRY QUEUE, THE REST ARE DROPPED
+        List<Boolean> expected = new ArrayList<>();
+        for (int i = 1; i <= TASKS; i++) {
+            expected.add(i <= QUEUE_SIZE + RETRY_QUEUE_SIZE);
+        }
+        assertEquals(expected, accepted);
+        assertEquals(RETRY_QUEUE_SIZE, executor.getRetryQueueDepth());
+        assertEquals(TASKS - QUEUE_SIZE - RETRY_QUEUE_SIZE, executor.getRejections(ScriptType.Dungeon));
+
+        gate.countDown();
+        assertTrue(finished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        List<Integer> expectedOrder = new ArrayList<>();
+        for (int i = 0; i <= QUEUE_SIZE + RETRY_QUEUE_SIZE; i++) {
+            expectedOrder.add(i);
+        }
+        assertEquals(expectedOrder, order);
+        assertEquals(0, executor.getRetryQueueDepth());
+    }
+
+    @Test
+    void dropDoesNotUseTheRetryQueue() throws InterruptedException {
+        executor = newExecutor(ScriptExecutor.RejectionPolicy.DROP);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        assertTrue(executor.execute(ScriptType.Dungeon, () -> {
+            started.countDown();
+            await(gate);
+        }));
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        for (int i = 0; i < QUEUE_SIZE; i++) {
+            assertTrue(executor.execute(ScriptType.Dungeon, () -> { }));
+        }
+        assertFalse(executor.execute(ScriptType.Dungeon, () -> { }));
+        assertEquals(0, executor.getRetryQueueDepth());
+        gate.countDown();
+    }
+
+    @Test
+    void resubmitIsNeverDropped() throws InterruptedException {
+        executor = newExecutor(ScriptExecutor.RejectionPolicy.DROP);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(QUEUE_SIZE + RETRY_QUEUE_SIZE + 1);
+        assertTrue(executor.execute(ScriptType.Dungeon, () -> {
+            started.countDown();
+            await(gate);
+        }));
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // MORE THAN THE QUEUE AND RETRY QUEUE CAN HOLD
+        for (int i = 0; i < QUEUE_SIZE + RETRY_QUEUE_SIZE + 1; i++) {
+            executor.resubmit(finished::countDown);
+        }
+        gate.countDown();
+        assertTrue(finished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private static ScriptExecutor newExecutor(ScriptExecutor.RejectionPolicy rejectionPolicy) {
+        Map<ScriptType, ScriptExecutor.RejectionPolicy> rejectionPolicies = new EnumMap<>(ScriptType.class);
+        for (ScriptType scriptType : ScriptType.values()) {
+            rejectionPolicies.put(scriptType, rejectionPolicy);
+        }
+        return new ScriptExecutor(ScriptExecutor.Mode.BOUNDED, 1, QUEUE_SIZE, RETRY_QUEUE_SIZE, rejectionPolicies,
+            null, false);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
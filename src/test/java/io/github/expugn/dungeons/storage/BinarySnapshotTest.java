@@ -0,0 +1,166 @@
+package io.github.expugn.dungeons.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.github.expugn.dungeons.AppUtils;
+import io.github.expugn.dungeons.dungeons.ClearRecord;
+import io.github.expugn.dungeons.dungeons.DungeonFile;
+import io.github.expugn.dungeons.dungeons.PlayerState;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link BinarySnapshot}.
+ * @author S'pugn
+ * @version 0.1
+ */
+class BinarySnapshotTest {
+    private static final long LONG_VALUE = 9_007_199_254_740_993L;
+    private static final double DOUBLE_VALUE = 0.1;
+    private static final String BIG_DECIMAL = "12345678901234567890.000000000000000000001";
+    private static final String BIG_INTEGER = "123456789012345678901234567890";
+    private static final long CLEAR_DAY = 19_000L;
+    private static final int CLEAR_COUNT = 3;
+    private static final int MAX_PARTY = 4;
+    private static final int DAILY_CLEAR = 2;
+    private static final int HEADER_SIZE = 6; // MAGIC (INT) + VERSION (SHORT)
+
+    @Test
+    void nestedObjectsAndArraysRoundTrip() throws IOException {
+        JsonObject inner = new JsonObject();
+        inner.addProperty("name", "dungeon");
+        inner.addProperty("enabled", true);
+        inner.addProperty("disabled", false);
+        JsonArray array = new JsonArray();
+        array.add(new JsonPrimitive(1));
+        array.add(new JsonPrimitive("two"));
+        array.add(inner);
+        JsonArray nested = new JsonArray();
+        nested.add(new JsonArray());
+        nested.add(new JsonObject());
+        array.add(nested);
+        JsonObject root = new JsonObject();
+        root.add("array", array);
+        root.add("object", inner);
+        root.addProperty("long", LONG_VALUE);
+        root.addProperty("double", DOUBLE_VALUE);
+        root.addProperty("unicode", "\u00e9\u4e2d\ud83d\ude00");
+        root.addProperty("empty", "");
+
+        JsonElement read = BinarySnapshot.read(BinarySnapshot.write(root));
+
+        assertEquals(root, read);
+        assertEquals(LONG_VALUE, read.getAsJsonObject().get("long").getAsLong());
+        assertEquals(DOUBLE_VALUE, read.getAsJsonObject().get("double").getAsDouble());
+    }
+
+    @Test
+    void numberTextKeepsEveryDigit() throws IOException {
+        JsonObject root = new JsonObject();
+        root.add("decimal", new JsonPrimitive(new BigDecimal(BIG_DECIMAL)));
+        root.add("integer", new JsonPrimitive(new BigInteger(BIG_INTEGER)));
+
+        JsonObject read = BinarySnapshot.read(BinarySnapshot.write(root)).getAsJsonObject();
+
+        assertEquals(new BigDecimal(BIG_DECIMAL), read.get("decimal").getAsBigDecimal());
+        assertEquals(new BigInteger(BIG_INTEGER), read.get("integer").getAsBigInteger());
+    }
+
+    @Test
+    void nullValuesRoundTrip() throws IOException {
+        JsonObject root = new JsonObject();
+        root.add("null", JsonNull.INSTANCE);
+        JsonArray array = new JsonArray();
+        array.add(JsonNull.INSTANCE);
+        root.add("array", array);
+
+        JsonObject read = BinarySnapshot.read(BinarySnapshot.write(root)).getAsJsonObject();
+
+        assertTrue(read.get("null").isJsonNull());
+        assertTrue(read.getAsJsonArray("array").get(0).isJsonNull());
+        assertTrue(BinarySnapshot.read(BinarySnapshot.write(null)).isJsonNull());
+    }
+
+    @Test
+    void dungeonFileRoundTripsInBothFormats() throws IOException {
+        DungeonFile dungeonFile = new DungeonFile();
+        dungeonFile.setMaxParty(MAX_PARTY);
+        dungeonFile.setDailyClear(DAILY_CLEAR);
+        UUID cleared = UUID.randomUUID();
+        UUID member = UUID.randomUUID();
+        dungeonFile.getClearedPlayers().put(cleared, new ClearRecord(CLEAR_DAY, CLEAR_COUNT));
+        dungeonFile.getParty().put(member, PlayerState.Dead);
+        dungeonFile.setVariable("hall_of_fame", "S'pugn");
+
+        DungeonFile fromJson = AppUtils.getGson().fromJson(
+            new String(SnapshotFormat.JSON.serialize(dungeonFile), StandardCharsets.UTF_8), DungeonFile.class);
+        DungeonFile fromBinary = AppUtils.getGson().fromJson(
+            BinarySnapshot.read(SnapshotFormat.BINARY.serialize(dungeonFile)), DungeonFile.class);
+
+        for (DungeonFile read : Arrays.asList(fromJson, fromBinary)) {
+            assertEquals(MAX_PARTY, read.getMaxParty());
+            assertEquals(DAILY_CLEAR, read.getDailyClear());
+            ClearRecord record = read.getClearedPlayers().get(cleared);
+            assertEquals(CLEAR_DAY, record.getDay());
+            assertEquals(CLEAR_COUNT, record.getCount());
+            assertEquals(PlayerState.Dead, read.getParty().get(member));
+            assertEquals("S'pugn", read.getVariable("hall_of_fame"));
+        }
+        assertEquals(AppUtils.getGson().toJsonTree(fromJson), AppUtils.getGson().toJsonTree(fromBinary));
+    }
+
+    @Test
+    void truncatedInputIsRejected() throws IOException {
+        JsonObject root = new JsonObject();
+        root.addProperty("name", "dungeon");
+        JsonArray array = new JsonArray();
+        array.add(new JsonPrimitive(LONG_VALUE));
+        root.add("array", array);
+        byte[] data = BinarySnapshot.write(root);
+
+        for (int length = 0; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThrows(IOException.class, () -> BinarySnapshot.read(truncated),
+                String.format("%d of %d bytes", length, data.length));
+        }
+    }
+
+    @Test
+    void corruptInputIsRejected() throws IOException {
+        byte[] notSnapshot = "{\"name\": \"dungeon\"}".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> BinarySnapshot.read(notSnapshot));
+
+        byte[] data = BinarySnapshot.write(new JsonPrimitive("dungeon"));
+
+        // UNKNOWN TAG
+        byte[] unknownTag = data.clone();
+        unknownTag[HEADER_SIZE] = Byte.MAX_VALUE;
+        assertThrows(IOException.class, () -> BinarySnapshot.read(unknownTag));
+
+        // NEWER VERSION
+        byte[] newerVersion = data.clone();
+        newerVersion[HEADER_SIZE - 1] = Byte.MAX_VALUE;
+        assertThrows(IOException.class, () -> BinarySnapshot.read(newerVersion));
+
+        // STRING LENGTH LONGER THAN THE DATA THAT IS LEFT
+        byte[] badLength = data.clone();
+        badLength[HEADER_SIZE + 1] = Byte.MAX_VALUE;
+        assertThrows(IOException.class, () -> BinarySnapshot.read(badLength));
+
+        // UNCHANGED DATA STILL READS
+        assertArrayEquals(data, BinarySnapshot.write(BinarySnapshot.read(data)));
+    }
+}
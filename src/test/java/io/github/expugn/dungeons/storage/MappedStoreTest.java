@@ -0,0 +1,240 @@
+package io.github.expugn.dungeons.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.expugn.dungeons.AppConstants;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link MappedStore}.
+ * @author S'pugn
+ * @version 0.1
+ */
+class MappedStoreTest {
+    private static final int FILE_HEADER = 8;
+    private static final int HEADER_BYTES = 10;
+    private static final int CHANGES = 5000;
+    private static final int VALUE_SIZE = 1024;
+    private static final int THREADS = 8;
+    private static final int ADDS = 1000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void tornTailRecordIsDroppedAndZeroed() throws IOException {
+        byte[] torn = recordBytes("third", "three");
+        // CUT OFF INSIDE THE RECORD'S HEADER, AND RIGHT BEFORE ITS LAST BYTE
+        for (int tornBytes : new int[] {HEADER_BYTES, torn.length - 1}) {
+            File file = storeFile();
+            Files.deleteIfExists(file.toPath());
+            MappedStore store = MappedStore.open(file, false);
+            store.set("first", "one");
+            store.set("second", "two");
+            store.close();
+
+            // THE SERVER STOPPED WHILE APPENDING A THIRD RECORD
+            int end = findEnd(file);
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(end);
+                channel.write(ByteBuffer.wrap(Arrays.copyOf(torn, tornBytes)), end);
+            }
+
+            store = MappedStore.open(file, false);
+            assertEquals(List.of("first", "second"), sortedKeys(store));
+            assertEquals("one", store.get("first"));
+            assertEquals("two", store.get("second"));
+            byte[] data = Files.readAllBytes(file.toPath());
+            assertTrue(Arrays.equals(new byte[tornBytes], Arrays.copyOfRange(data, end, end + tornBytes)));
+
+            // NEW RECORDS GO WHERE THE TORN RECORD WAS
+            store.set("fourth", "four");
+            store.close();
+            assertEquals(end + recordBytes("fourth", "four").length, findEnd(file));
+            store = MappedStore.open(file, false);
+            assertEquals(List.of("first", "fourth", "second"), sortedKeys(store));
+            assertEquals("four", store.get("fourth"));
+            store.close();
+        }
+    }
+
+    @Test
+    void crcMismatchDropsTheRestOfTheStore() throws IOException {
+        File file = storeFile();
+        MappedStore store = MappedStore.open(file, false);
+        store.set("first", "one");
+        store.set("second", "two");
+        store.set("third", "three");
+        store.close();
+
+        // FLIP THE LAST BYTE OF THE SECOND RECORD'S VALUE
+        int second = FILE_HEADER + recordBytes("first", "one").length;
+        int secondEnd = second + recordBytes("second", "two").length;
+        byte[] data = Files.readAllBytes(file.toPath());
+        data[secondEnd - 1] ^= 1;
+        Files.write(file.toPath(), data);
+
+        store = MappedStore.open(file, false);
+        assertEquals(List.of("first"), sortedKeys(store));
+        assertEquals("one", store.get("first"));
+
+        store.set("fourth", "four");
+        store.close();
+        store = MappedStore.open(file, false);
+        assertEquals(List.of("first", "fourth"), sortedKeys(store));
+        assertEquals("four", store.get("fourth"));
+        store.close();
+    }
+
+    @Test
+    void compactsOnOpenWhenGarbageIsBiggerThanLiveRecords() throws IOException {
+        File file = storeFile();
+        MappedStore store = MappedStore.open(file, false);
+        store.set("kept", "value");
+        for (int i = 0; i < CHANGES; i++) {
+            store.set("changed", "value " + i);
+        }
+        store.set("removed", "value");
+        store.remove("removed");
+        long garbage = store.getGarbage();
+        assertTrue(garbage > AppConstants.MAPPED_STORE_COMPACT_BYTES);
+        store.close();
+
+        store = MappedStore.open(file, false);
+        assertEquals(0, store.getGarbage());
+        assertEquals(List.of("changed", "kept"), sortedKeys(store));
+        assertEquals("value " + (CHANGES - 1), store.get("changed"));
+        assertEquals("value", store.get("kept"));
+        int end = findEnd(file);
+        assertEquals(FILE_HEADER + recordBytes("kept", "value").length
+            + recordBytes("changed", "value " + (CHANGES - 1)).length, end);
+
+        // THE COMPACTED STORE IS A NORMAL STORE
+        store.set("added", "value");
+        store.close();
+        store = MappedStore.open(file, false);
+        assertEquals(List.of("added", "changed", "kept"), sortedKeys(store));
+        store.close();
+    }
+
+    @Test
+    void smallGarbageIsNotCompacted() throws IOException {
+        File file = storeFile();
+        MappedStore store = MappedStore.open(file, false);
+        store.set("changed", "old");
+        store.set("changed", "new");
+        long garbage = store.getGarbage();
+        assertTrue(garbage > 0);
+        store.close();
+
+        store = MappedStore.open(file, false);
+        assertEquals(garbage, store.getGarbage());
+        assertEquals("new", store.get("changed"));
+        store.close();
+    }
+
+    @Test
+    void growsPastTheInitialSize() throws IOException {
+        File file = storeFile();
+        MappedStore store = MappedStore.open(file, false);
+        char[] filler = new char[VALUE_SIZE];
+        int keys = (int) (AppConstants.MAPPED_STORE_INITIAL_SIZE / VALUE_SIZE) * 2;
+        for (int i = 0; i < keys; i++) {
+            Arrays.fill(filler, (char) ('a' + i % ('z' - 'a')));
+            store.set("key " + i, new String(filler));
+        }
+        assertTrue(file.length() > AppConstants.MAPPED_STORE_INITIAL_SIZE);
+        for (int i = 0; i < keys; i++) {
+            assertEquals(VALUE_SIZE, ((String) store.get("key " + i)).length(), "key " + i);
+        }
+        store.close();
+
+        store = MappedStore.open(file, false);
+        assertEquals(keys, store.size());
+        Arrays.fill(filler, (char) ('a' + (keys - 1) % ('z' - 'a')));
+        assertEquals(new String(filler), store.get("key " + (keys - 1)));
+        store.close();
+    }
+
+    @Test
+    void concurrentAddsAreNotLost() throws Exception {
+        File file = storeFile();
+        MappedStore store = MappedStore.open(file, false);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < ADDS; j++) {
+                    store.add("counter", 1);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals((double) THREADS * ADDS, store.get("counter"));
+        store.close();
+        MappedStore reopened = MappedStore.open(file, false);
+        assertEquals((double) THREADS * ADDS, reopened.get("counter"));
+        assertNull(reopened.get("missing"));
+        reopened.close();
+    }
+
+    private File storeFile() {
+        return directory.resolve("variables.store").toFile();
+    }
+
+    /**
+     * Get the bytes a single record of a variable takes up, by writing it to an empty store.
+     */
+    private byte[] recordBytes(String key, String value) throws IOException {
+        File file = directory.resolve("record.store").toFile();
+        Files.deleteIfExists(file.toPath());
+        MappedStore store = MappedStore.open(file, false);
+        store.set(key, value);
+        store.close();
+        byte[] data = Files.readAllBytes(file.toPath());
+        return Arrays.copyOfRange(data, FILE_HEADER, findEnd(file));
+    }
+
+    /**
+     * Find where the last record of a store ends by following the record lengths.
+     */
+    private static int findEnd(File file) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        int position = FILE_HEADER;
+        while (position + Integer.BYTES <= data.limit() && data.getInt(position) != 0) {
+            position += data.getInt(position);
+        }
+        return position;
+    }
+
+    private static List<String> sortedKeys(MappedStore store) {
+        List<String> keys = new ArrayList<>(store.keys());
+        keys.sort(null);
+        return keys;
+    }
+}
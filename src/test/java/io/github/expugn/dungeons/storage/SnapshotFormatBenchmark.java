@@ -0,0 +1,105 @@
+package io.github.expugn.dungeons.storage;
+
+import com.google.gson.JsonElement;
+import io.github.expugn.dungeons.AppUtils;
+import io.github.expugn.dungeons.Benchmark;
+import io.github.expugn.dungeons.dungeons.ClearRecord;
+import io.github.expugn.dungeons.dungeons.DungeonFile;
+import io.github.expugn.dungeons.dungeons.PlayerState;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the size of a dungeon file and the time it takes to save and load it in both {@link SnapshotFormat}s.
+ * Not run by a normal build, see {@link Benchmark}.
+ * @author S'pugn
+ * @version 0.1
+ */
+class SnapshotFormatBenchmark {
+    private static final int[] CLEARED_PLAYERS = {0, 100, 1000};
+    private static final int VARIABLES = 50;
+    private static final int PARTY_SIZE = 8;
+    private static final int MAX_DAILY_CLEARS = 5;
+    private static final long TODAY = 19_000L;
+    private static final int OPERATIONS = 100;
+    private static final double PERCENT = 100.0;
+    private static final long SEED = 16L;
+
+    @Test
+    void dungeonFile() {
+        for (int clearedPlayers : CLEARED_PLAYERS) {
+            DungeonFile dungeonFile = newDungeonFile(clearedPlayers);
+            String name = String.format("%d cleared players", clearedPlayers);
+            byte[] json = SnapshotFormat.JSON.serialize(dungeonFile);
+            byte[] binary = SnapshotFormat.BINARY.serialize(dungeonFile);
+            System.out.println(String.format("%-48s %12d bytes (json)", name, json.length));
+            System.out.println(String.format("%-48s %12d bytes (binary, %.0f%% of json)", name, binary.length,
+                binary.length * PERCENT / json.length));
+
+            // SAVING
+            double jsonWrite = Benchmark.run(String.format("save json (%s)", name), OPERATIONS, () -> {
+                long size = 0;
+                for (int i = 0; i < OPERATIONS; i++) {
+                    size += SnapshotFormat.JSON.serialize(dungeonFile).length;
+                }
+                return size;
+            });
+            double binaryWrite = Benchmark.run(String.format("save binary (%s)", name), OPERATIONS, () -> {
+                long size = 0;
+                for (int i = 0; i < OPERATIONS; i++) {
+                    size += SnapshotFormat.BINARY.serialize(dungeonFile).length;
+                }
+                return size;
+            });
+
+            // LOADING, THE SAME WAY SnapshotFormat READS A FILE'S BYTES
+            double jsonRead = Benchmark.run(String.format("load json (%s)", name), OPERATIONS, () -> {
+                long size = 0;
+                for (int i = 0; i < OPERATIONS; i++) {
+                    size += AppUtils.getGson().fromJson(new String(json, StandardCharsets.UTF_8), DungeonFile.class)
+                        .getClearedPlayers().size();
+                }
+                return size;
+            });
+            double binaryRead = Benchmark.run(String.format("load binary (%s)", name), OPERATIONS, () -> {
+                long size = 0;
+                for (int i = 0; i < OPERATIONS; i++) {
+                    size += AppUtils.getGson().fromJson(readBinary(binary), DungeonFile.class)
+                        .getClearedPlayers().size();
+                }
+                return size;
+            });
+
+            Benchmark.compare(String.format("save binary (%s)", name), jsonWrite, binaryWrite);
+            Benchmark.compare(String.format("load binary (%s)", name), jsonRead, binaryRead);
+        }
+    }
+
+    private static DungeonFile newDungeonFile(int clearedPlayers) {
+        Random random = new Random(SEED);
+        DungeonFile dungeonFile = new DungeonFile();
+        for (int i = 0; i < clearedPlayers; i++) {
+            dungeonFile.getClearedPlayers().put(UUID.randomUUID(),
+                new ClearRecord(TODAY, 1 + random.nextInt(MAX_DAILY_CLEARS)));
+        }
+        for (int i = 0; i < VARIABLES; i++) {
+            dungeonFile.setVariable("variable_" + i, Integer.toString(random.nextInt()));
+        }
+        for (int i = 0; i < PARTY_SIZE; i++) {
+            dungeonFile.getParty().put(UUID.randomUUID(), PlayerState.Alive);
+        }
+        return dungeonFile;
+    }
+
+    private static JsonElement readBinary(byte[] data) {
+        try {
+            return BinarySnapshot.read(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}